@@ -3,16 +3,22 @@ package dev.efnilite.witp;
 import dev.efnilite.witp.api.Registry;
 import dev.efnilite.witp.command.MainCommand;
 import dev.efnilite.witp.events.Handler;
+import dev.efnilite.witp.generator.reward.RewardQueue;
 import dev.efnilite.witp.generator.subarea.SubareaDivider;
 import dev.efnilite.witp.hook.MultiverseHook;
 import dev.efnilite.witp.hook.PlaceholderHook;
 import dev.efnilite.witp.hook.ProtocolHook;
+import dev.efnilite.witp.player.ParkourPlayer;
 import dev.efnilite.witp.player.ParkourUser;
+import dev.efnilite.witp.player.data.GameLogger;
+import dev.efnilite.witp.player.data.GameStats;
+import dev.efnilite.witp.player.data.PlayerMigration;
 import dev.efnilite.witp.util.Util;
 import dev.efnilite.witp.util.Verbose;
 import dev.efnilite.witp.util.Version;
 import dev.efnilite.witp.util.config.Configuration;
 import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.config.Settings;
 import dev.efnilite.witp.util.inventory.InventoryBuilder;
 import dev.efnilite.witp.util.sql.Database;
 import dev.efnilite.witp.util.sql.InvalidStatementException;
@@ -35,9 +41,12 @@ public final class WITP extends JavaPlugin {
     public static boolean OUTDATED = false;
     private static WITP instance;
     private static Database database;
+    private static GameLogger gameLogger;
+    private static GameStats gameStats;
     private static Configuration configuration;
     private static SubareaDivider divider;
     private static Registry registry;
+    private static RewardQueue rewardQueue;
     private static @Nullable MultiverseHook multiverseHook;
     private static @Nullable ProtocolHook protocolHook;
     private static @Nullable PlaceholderHook placeholderHook;
@@ -50,6 +59,7 @@ public final class WITP extends JavaPlugin {
         instance = this;
         Tasks.time("load");
         registry = new Registry();
+        rewardQueue = new RewardQueue();
         Verbose.init();
 
         // ----- Versions -----
@@ -102,16 +112,24 @@ public final class WITP extends JavaPlugin {
         // ----- Configurations -----
 
         configuration = new Configuration(this);
-        Option.init(true);
+        Option.init();
         addCommand("witp", new MainCommand());
         divider = new SubareaDivider();
 
         // ----- SQL and data -----
 
-        if (Option.SQL) {
+        Settings settings = Option.get();
+        if (settings.sql) {
             database = new Database();
-            database.connect(Option.SQL_URL, Option.SQL_PORT, Option.SQL_DB, Option.SQL_USERNAME, Option.SQL_PASSWORD);
+            database.connect(settings.sqlUrl, settings.sqlPort, settings.sqlDb, settings.sqlUsername, settings.sqlPassword);
+            if (settings.gameLogs) {
+                gameStats = new GameStats(database);
+                gameLogger = new GameLogger(database, gameStats);
+                gameLogger.start();
+            }
         }
+        ParkourPlayer.getStore().start(); // before the leaderboards, which may read from the store
+        ParkourUser.getNames().start();
         ParkourUser.initHighScores();
 
         // ----- Events -----
@@ -121,7 +139,7 @@ public final class WITP extends JavaPlugin {
 
         // ----- Update checker -----
 
-        if (Option.UPDATER) {
+        if (settings.updater) {
             UpdateChecker checker = new UpdateChecker();
             Tasks.syncRepeat(checker::check, 8 * 72000); // 8 hours
         }
@@ -129,9 +147,9 @@ public final class WITP extends JavaPlugin {
         // ----- Metrics -----
 
         Metrics metrics = new Metrics(this, 9272);
-        metrics.addCustomChart(new Metrics.SimplePie("using_sql", () -> Boolean.toString(Option.SQL)));
-        metrics.addCustomChart(new Metrics.SimplePie("using_logs", () -> Boolean.toString(Option.GAMELOGS)));
-        metrics.addCustomChart(new Metrics.SimplePie("locale_count", () -> Integer.toString(Option.LANGUAGES.size())));
+        metrics.addCustomChart(new Metrics.SimplePie("using_sql", () -> Boolean.toString(Option.get().sql)));
+        metrics.addCustomChart(new Metrics.SimplePie("using_logs", () -> Boolean.toString(Option.get().gameLogs)));
+        metrics.addCustomChart(new Metrics.SimplePie("locale_count", () -> Integer.toString(Option.get().languages.size())));
         metrics.addCustomChart(new Metrics.SingleLineChart("player_joins", () -> {
             int joins = ParkourUser.JOIN_COUNT;
             ParkourUser.JOIN_COUNT = 0;
@@ -145,18 +163,29 @@ public final class WITP extends JavaPlugin {
     public void onDisable() {
         HandlerList.unregisterAll(this);
         Bukkit.getScheduler().cancelTasks(this);
-        if (database != null) {
-            database.close();
-        }
+        rewardQueue.flush(); // while the players are still online
 
         for (ParkourUser user : ParkourUser.getUsers()) {
             try {
-                ParkourUser.unregister(user, true, true, false);
+                ParkourUser.unregister(user, true, true, true); // saves are staged and written in one go below
             } catch (IOException | InvalidStatementException ex) {
                 ex.printStackTrace();
                 Verbose.error("Error while unregistering");
             }
         }
+        PlayerMigration migration = PlayerMigration.getRunning();
+        if (migration != null) { // continues from its checkpoint after the restart
+            migration.cancel();
+        }
+        ParkourPlayer.getStore().close();
+        ParkourUser.getNames().close();
+        ParkourUser.saveLeaderboards();
+        if (gameLogger != null) {
+            gameLogger.close();
+        }
+        if (database != null) { // after saving, so all queued queries are finished
+            database.close();
+        }
         if (divider != null) { // somehow this can be null despite it only ever being set to a new instance?
             for (Player player : divider.getWorld().getPlayers()) {
                 player.kickPlayer("Server is restarting");
@@ -197,10 +226,22 @@ public final class WITP extends JavaPlugin {
         return registry;
     }
 
+    public static RewardQueue getRewardQueue() {
+        return rewardQueue;
+    }
+
     public static Database getDatabase() {
         return database;
     }
 
+    public static @Nullable GameLogger getGameLogger() {
+        return gameLogger;
+    }
+
+    public static @Nullable GameStats getGameStats() {
+        return gameStats;
+    }
+
     public static SubareaDivider getDivider() {
         return divider;
     }
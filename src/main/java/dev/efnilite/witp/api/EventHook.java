@@ -0,0 +1,79 @@
+package dev.efnilite.witp.api;
+
+import dev.efnilite.witp.util.wrapper.EventWrapper;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The listeners of one of WITP's events.
+ * <p>
+ * Listeners added here are called directly, without going through Bukkit. The event is only passed on to Bukkit
+ * if a plugin listens to it there, and callers only create the event if {@link #isListened()} returns true.
+ * </p>
+ *
+ * @param   <E>
+ *          The event
+ */
+public class EventHook<E extends EventWrapper> {
+
+    private final HandlerList handlers;
+    private final List<Consumer<? super E>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new instance
+     *
+     * @param   handlers
+     *          The Bukkit handlers of the event
+     */
+    public EventHook(@NotNull HandlerList handlers) {
+        this.handlers = handlers;
+    }
+
+    /**
+     * Adds a listener
+     *
+     * @param   listener
+     *          The listener, which is called on the main thread
+     */
+    public void listen(@NotNull Consumer<? super E> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener
+     *
+     * @param   listener
+     *          The listener
+     */
+    public void unlisten(@NotNull Consumer<? super E> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns whether anything listens to this event, here or in Bukkit
+     *
+     * @return true if the event should be created and called
+     */
+    public boolean isListened() {
+        return !listeners.isEmpty() || handlers.getRegisteredListeners().length > 0;
+    }
+
+    /**
+     * Calls the listeners, and the Bukkit listeners if there are any
+     *
+     * @param   event
+     *          The event
+     */
+    public void call(@NotNull E event) {
+        for (Consumer<? super E> listener : listeners) {
+            listener.accept(event);
+        }
+        if (handlers.getRegisteredListeners().length > 0) {
+            event.call();
+        }
+    }
+}
@@ -3,12 +3,20 @@ package dev.efnilite.witp.api;
 import dev.efnilite.witp.api.gamemode.DefaultGamemode;
 import dev.efnilite.witp.api.gamemode.Gamemode;
 import dev.efnilite.witp.api.gamemode.SpectatorGamemode;
+import dev.efnilite.witp.events.BlockGenerateEvent;
+import dev.efnilite.witp.events.PlayerFallEvent;
+import dev.efnilite.witp.events.PlayerLeaveEvent;
+import dev.efnilite.witp.events.PlayerScoreEvent;
 import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.wrapper.EventWrapper;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Class which features registration for custom modes/addons
@@ -17,12 +25,19 @@ public class Registry {
 
     private boolean closed;
     private final HashMap<String, Gamemode> gamemodes;
+    private final Map<Class<? extends EventWrapper>, EventHook<?>> hooks;
 
     public Registry() {
         this.gamemodes = new LinkedHashMap<>();
+        this.hooks = new HashMap<>();
 
         gamemodes.put("default", new DefaultGamemode());
         gamemodes.put("spectator", new SpectatorGamemode());
+
+        hooks.put(BlockGenerateEvent.class, BlockGenerateEvent.HOOK);
+        hooks.put(PlayerScoreEvent.class, PlayerScoreEvent.HOOK);
+        hooks.put(PlayerFallEvent.class, PlayerFallEvent.HOOK);
+        hooks.put(PlayerLeaveEvent.class, PlayerLeaveEvent.HOOK);
     }
 
     public void register(Gamemode gamemode) {
@@ -34,6 +49,48 @@ public class Registry {
         }
     }
 
+    /**
+     * Adds a listener to one of WITP's events. Unlike Bukkit listeners, it's called directly,
+     * and the event isn't even created if nothing listens to it. Can be called after the registry is closed.
+     *
+     * @param   event
+     *          The class of the event (e.g. {@link BlockGenerateEvent})
+     *
+     * @param   listener
+     *          The listener, which is called on the main thread
+     *
+     * @param   <E>
+     *          The event
+     */
+    public <E extends EventWrapper> void listen(@NotNull Class<E> event, @NotNull Consumer<? super E> listener) {
+        getHook(event).listen(listener);
+    }
+
+    /**
+     * Removes a listener which was added with {@link #listen(Class, Consumer)}
+     *
+     * @param   event
+     *          The class of the event
+     *
+     * @param   listener
+     *          The listener
+     *
+     * @param   <E>
+     *          The event
+     */
+    public <E extends EventWrapper> void unlisten(@NotNull Class<E> event, @NotNull Consumer<? super E> listener) {
+        getHook(event).unlisten(listener);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends EventWrapper> EventHook<E> getHook(Class<E> event) {
+        EventHook<?> hook = hooks.get(event);
+        if (hook == null) {
+            throw new IllegalArgumentException("Unknown event " + event.getName());
+        }
+        return (EventHook<E>) hook;
+    }
+
     public List<Gamemode> getGamemodes() {
         return new ArrayList<>(gamemodes.values());
     }
@@ -31,9 +31,10 @@ public class DefaultGamemode implements Gamemode {
         try {
             player.closeInventory();
             ParkourUser.unregister(user, false, false, true);
-            ParkourPlayer pp = ParkourPlayer.register(player);
-            ParkourGenerator generator = new DefaultGenerator(pp);
-            WITP.getDivider().generate(pp, generator);
+            ParkourPlayer.register(player, pp -> {
+                ParkourGenerator generator = new DefaultGenerator(pp);
+                WITP.getDivider().generate(pp, generator);
+            });
         } catch (IOException | SQLException ex) {
             ex.printStackTrace();
             Verbose.error("Error while trying to register player" + player.getName());
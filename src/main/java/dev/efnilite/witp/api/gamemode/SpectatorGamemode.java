@@ -46,7 +46,7 @@ public class SpectatorGamemode implements Gamemode {
                 meta.setOwningPlayer(pl);
                 item.setItemMeta(meta);
                 spectatable.setItem(index, item, (t2, e2) -> {
-                    if (ParkourUser.getActivePlayers().contains(pp) && pp.getGenerator() != null) {
+                    if (ParkourUser.getRegistry().getPlayer(pp.uuid) == pp && pp.getGenerator() != null) {
                         new ParkourSpectator(user, pp);
                     }
                 });
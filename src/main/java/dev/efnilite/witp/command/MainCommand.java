@@ -1,17 +1,20 @@
 package dev.efnilite.witp.command;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import dev.efnilite.witp.WITP;
 import dev.efnilite.witp.generator.DefaultGenerator;
 import dev.efnilite.witp.generator.ParkourGenerator;
+import dev.efnilite.witp.player.LeaderboardRenderer;
 import dev.efnilite.witp.player.ParkourPlayer;
 import dev.efnilite.witp.player.ParkourSpectator;
 import dev.efnilite.witp.player.ParkourUser;
+import dev.efnilite.witp.player.data.GameStats;
+import dev.efnilite.witp.player.data.PeriodLeaderboard;
+import dev.efnilite.witp.player.data.PlayerMigration;
 import dev.efnilite.witp.schematic.Schematic;
 import dev.efnilite.witp.schematic.selection.Selection;
 import dev.efnilite.witp.util.Util;
 import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.MessageCatalog;
 import dev.efnilite.witp.util.config.Option;
 import dev.efnilite.witp.util.inventory.ItemBuilder;
 import dev.efnilite.witp.util.particle.ParticleData;
@@ -27,12 +30,9 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.sql.SQLException;
 import java.util.*;
 
 public class MainCommand extends BukkitCommand {
@@ -57,7 +57,10 @@ public class MainCommand extends BukkitCommand {
             send(sender, "&a/witp leave &f- &7Leave the game on this server");
             send(sender, "&a/witp menu &f- &7Open the customization menu");
             send(sender, "&a/witp gamemode &f- &7Open the gamemode menu");
-            send(sender, "&a/witp leaderboard &f- &7Open the leaderboard");
+            send(sender, "&a/witp leaderboard [daily|weekly|monthly] &f- &7Open the leaderboard");
+            if (WITP.getGameStats() != null) {
+                send(sender, "&a/witp stats [player] &f- &7View your (or someone else's) stats");
+            }
 
             // Advanced settings based per permission
             if (sender.hasPermission("witp.reload") || sender.hasPermission("witp.schematic") || sender.isOp()) {
@@ -68,55 +71,59 @@ public class MainCommand extends BukkitCommand {
             }
             if (sender.hasPermission("witp.reload")) {
                 send(sender, "&a/witp reload &f- &7Reloads the lang.yml file");
-                send(sender, "&a/witp migrate &f- &7Migrate your Json files to MySQL");
+                send(sender, "&a/witp migrate &f- &7Migrate your Json files to MySQL, or view its progress");
+                send(sender, "&a/witp database &f- &7View the database statistics");
             }
             return true;
         } else if (args.length == 1) {
             switch (args[0].toLowerCase()) {
                 case "reload":
-                    if (Option.PERMISSIONS && !sender.hasPermission("witp.reload")) {
-                        Util.sendDefaultLang(player, "cant-do");
+                    if (Option.get().permissions && !sender.hasPermission("witp.reload")) {
+                        Util.sendDefaultLang(player, MessageCatalog.CANT_DO);
                         return false;
                     }
 
                     Tasks.time("reload");
                     send(sender, "&a&l(!) &7Reloading config files..");
-                    WITP.getConfiguration().reload();
-                    Option.init(false);
-                    long time = Tasks.end("reload");
-                    send(sender, "&a&l(!) &7Reloaded all config files in " + time + "ms!");
+                    Option.reload(success -> {
+                        long time = Tasks.end("reload");
+                        if (!success) {
+                            send(sender, "&c&l(!) &7Error while reloading the config files, the previous config is still used. Check the console for more information.");
+                            return;
+                        }
+                        LeaderboardRenderer.clear();
+                        send(sender, "&a&l(!) &7Reloaded all config files in " + time + "ms!");
+                    });
+                    return true;
+                case "database":
+                    if (Option.get().permissions && !sender.hasPermission("witp.reload")) {
+                        Util.sendDefaultLang(player, MessageCatalog.CANT_DO);
+                        return false;
+                    } else if (!Option.get().sql) {
+                        send(sender, "&a&l(!) &7You have disabled SQL support in the config");
+                        return false;
+                    }
+
+                    send(sender, "&7--------------- &aDatabase &7---------------");
+                    for (String line : WITP.getDatabase().getMetrics()) {
+                        send(sender, "&7" + line);
+                    }
                     return true;
                 case "migrate":
-                    if (Option.PERMISSIONS && !sender.hasPermission("witp.reload")) {
-                        Util.sendDefaultLang(player, "cant-do");
+                    if (Option.get().permissions && !sender.hasPermission("witp.reload")) {
+                        Util.sendDefaultLang(player, MessageCatalog.CANT_DO);
                         return false;
-                    } else if (!Option.SQL) {
+                    } else if (!Option.get().sql) {
                         send(sender, "&a&l(!) &7You have disabled SQL support in the config");
                         return false;
                     }
 
-                    Tasks.time("migrate");
-                    File folder = new File(WITP.getInstance().getDataFolder() + "/players/");
-                    if (!folder.exists()) {
-                        folder.mkdirs();
+                    PlayerMigration running = PlayerMigration.getRunning();
+                    if (running != null) {
+                        send(sender, "&a&l(!) &7" + running.getProgress());
                         return true;
                     }
-                    Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
-                    for (File file : folder.listFiles()) {
-                        FileReader reader;
-                        try {
-                            reader = new FileReader(file);
-                        } catch (FileNotFoundException e) {
-                            e.printStackTrace();
-                            send(sender, "&a&l(!) &cError while trying to read file, check your console");
-                            return true;
-                        }
-                        ParkourPlayer from = gson.fromJson(reader, ParkourPlayer.class);
-                        String name = file.getName();
-                        from.uuid = UUID.fromString(name.substring(0, name.lastIndexOf('.')));
-                        from.save(true);
-                    }
-                    send(sender, "&a&l(!) &7Your players' data has been migrated in " + Tasks.end("migrate") + "ms!");
+                    PlayerMigration.start(ParkourPlayer.getStore(), message -> send(sender, "&a&l(!) &7" + message));
                     return true;
             }
             if (player == null) {
@@ -124,23 +131,19 @@ public class MainCommand extends BukkitCommand {
             }
             switch (args[0]) {
                 case "join": {
-                    if (!player.hasPermission("witp.join") && Option.PERMISSIONS) {
-                        Util.sendDefaultLang(player, "cant-do");
+                    if (!player.hasPermission("witp.join") && Option.get().permissions) {
+                        Util.sendDefaultLang(player, MessageCatalog.CANT_DO);
                         return false;
                     }
                     ParkourUser user = ParkourUser.getUser(player);
                     if (user != null) {
                         return false;
                     }
-                    try {
-                        ParkourPlayer pp = ParkourPlayer.register(player);
+                    ParkourPlayer.register(player, pp -> {
                         ParkourGenerator generator = new DefaultGenerator(pp);
                         WITP.getDivider().generate(pp, generator);
-                        pp.sendTranslated("joined");
-                    } catch (IOException | SQLException ex) {
-                        ex.printStackTrace();
-                        Verbose.error("Error while joining");
-                    }
+                        pp.sendTranslated(MessageCatalog.JOINED);
+                    });
                     return true;
                 }
                 case "leave": {
@@ -149,7 +152,7 @@ public class MainCommand extends BukkitCommand {
                         return false;
                     }
                     try {
-                        pp.sendTranslated("left");
+                        pp.sendTranslated(MessageCatalog.LEFT);
                         ParkourUser.unregister(pp, true, true, true);
                     } catch (IOException | InvalidStatementException ex) {
                         ex.printStackTrace();
@@ -174,16 +177,19 @@ public class MainCommand extends BukkitCommand {
                     }
                     return false;
                 }
+                case "stats":
+                    stats(player, player.getUniqueId(), player.getName());
+                    return true;
                 case "leaderboard":
-                    if (Option.PERMISSIONS && !player.hasPermission("witp.leaderboard")) {
-                        Util.sendDefaultLang(player, "cant-do");
+                    if (Option.get().permissions && !player.hasPermission("witp.leaderboard")) {
+                        Util.sendDefaultLang(player, MessageCatalog.CANT_DO);
                         return false;
                     }
                     ParkourUser.leaderboard(ParkourUser.getUser(player), player, 1);
                     break;
                 case "schematic":
-                    if (Option.PERMISSIONS && !player.hasPermission("witp.schematic")) {
-                        Util.sendDefaultLang(player, "cant-do");
+                    if (Option.get().permissions && !player.hasPermission("witp.schematic")) {
+                        Util.sendDefaultLang(player, MessageCatalog.CANT_DO);
                         return false;
                     }
                     send(player, "&8----------- &4&lSchematics &8-----------");
@@ -253,19 +259,19 @@ public class MainCommand extends BukkitCommand {
                         return true;
                 }
             } else if (args[0].equalsIgnoreCase("leaderboard") && args[1] != null && player != null) {
-                int page = 0;
-                try {
-                    Integer.parseInt(args[1]);
-                } catch (NumberFormatException ex) {
-                    send(player, "&c&l(!) &7" + args[1] + " is not a number! Please enter a page.");
-                    return false;
+                PeriodLeaderboard.Period period = PeriodLeaderboard.Period.getPeriod(args[1]);
+                if (period != null) {
+                    leaderboard(player, period, "1");
+                } else {
+                    leaderboard(player, null, args[1]);
                 }
-                ParkourUser user = ParkourUser.getUser(player);
-                if (user != null) {
-                    if (user.checkPermission("witp.leaderboard")) {
-                        ParkourUser.leaderboard(user, player, page);
-                    }
+            } else if (args[0].equalsIgnoreCase("stats")) {
+                Player other = Bukkit.getPlayer(args[1]);
+                if (other == null) {
+                    send(sender, "&c&l(!) &7" + args[1] + " isn't online!");
+                    return true;
                 }
+                stats(sender, other.getUniqueId(), other.getName());
             } else if (args[0].equalsIgnoreCase("join") && args[1] != null) {
                 if (sender.isOp()) {
                     Player join = Bukkit.getPlayer(args[1]);
@@ -273,16 +279,7 @@ public class MainCommand extends BukkitCommand {
                         Verbose.error("Player " + args[1] + " doesn't exist!");
                         return true;
                     }
-                    try {
-                        ParkourPlayer.register(join);
-                        ParkourPlayer pp = ParkourPlayer.getPlayer(join);
-                        if (pp != null) {
-                            pp.sendTranslated("joined");
-                        }
-                    } catch (IOException | SQLException ex) {
-                        ex.printStackTrace();
-                        Verbose.error("Error while joining");
-                    }
+                    ParkourPlayer.register(join, pp -> pp.sendTranslated(MessageCatalog.JOINED));
                 }
             } else if (args[0].equalsIgnoreCase("search") && player != null) {
                 ParkourUser user = ParkourUser.getUser(player);
@@ -304,7 +301,14 @@ public class MainCommand extends BukkitCommand {
                 }
             }
         } else if (args.length == 3) {
-            if (args[0].equalsIgnoreCase("askreset") && player != null && args[2] != null) {
+            if (args[0].equalsIgnoreCase("leaderboard") && player != null) {
+                PeriodLeaderboard.Period period = PeriodLeaderboard.Period.getPeriod(args[1]);
+                if (period == null) {
+                    send(player, "&c&l(!) &7" + args[1] + " is not a leaderboard! Use daily, weekly or monthly.");
+                    return false;
+                }
+                leaderboard(player, period, args[2]);
+            } else if (args[0].equalsIgnoreCase("askreset") && player != null && args[2] != null) {
                 ParkourPlayer user = ParkourPlayer.getPlayer(player);
                 if (user != null) {
                     boolean option = Boolean.parseBoolean(args[2]);
@@ -319,6 +323,62 @@ public class MainCommand extends BukkitCommand {
         return true;
     }
 
+    // shows a page of the leaderboard of a period (or the all-time one if period is null)
+    private void leaderboard(Player player, @Nullable PeriodLeaderboard.Period period, String pageArg) {
+        int page;
+        try {
+            page = Integer.parseInt(pageArg);
+        } catch (NumberFormatException ex) {
+            send(player, "&c&l(!) &7" + pageArg + " is not a number! Please enter a page.");
+            return;
+        }
+        ParkourUser user = ParkourUser.getUser(player);
+        if (user != null) {
+            if (user.checkPermission("witp.leaderboard")) {
+                ParkourUser.leaderboard(user, player, period, page);
+            }
+        }
+    }
+
+    // shows the stats of a player from the game history
+    private void stats(CommandSender sender, UUID uuid, String name) {
+        if (Option.get().permissions && !sender.hasPermission("witp.stats")) {
+            Util.sendDefaultLang(sender, MessageCatalog.CANT_DO);
+            return;
+        }
+        GameStats stats = WITP.getGameStats();
+        if (stats == null) {
+            send(sender, "&a&l(!) &7Stats need SQL and game logs to be enabled in the config");
+            return;
+        }
+        stats.get(uuid).whenComplete((result, ex) -> Tasks.syncTask(() -> {
+            if (ex != null) {
+                Verbose.error("Error while trying to read the stats of " + name + ": " + ex.getMessage());
+                send(sender, "&c&l(!) &7Error while trying to read the stats, check your console");
+                return;
+            }
+            send(sender, "&7--------------- &a" + name + "'s stats &7---------------");
+            if (result.runs == 0) {
+                send(sender, "&7No runs have been played yet");
+                return;
+            }
+            send(sender, "&7Runs: &a" + result.runs + " &7Best: &a" + result.best + " &7Average: &a" + String.format("%.1f", result.average));
+            if (result.averageDuration > 0) {
+                send(sender, "&7Average time: &a" + String.format("%.1fs", result.averageDuration / 1000.0));
+            }
+            Double trend = result.getTrend();
+            if (trend != null) {
+                send(sender, "&7Last 7 days: &a" + String.format("%.1f", result.recentAverage) + " &7average ("
+                        + (trend >= 0 ? "&a+" : "&c") + Math.round(trend * 100) + "% &7compared to the week before)");
+            }
+            send(sender, "&7Recent runs:");
+            for (GameStats.Run run : result.recent) {
+                String ago = run.played > 0 ? " &7(" + Util.formatAgo(run.played) + " ago)" : "";
+                send(sender, "&7- &a" + run.score + " &7in &a" + run.time + ago);
+            }
+        }));
+    }
+
     public static void send(CommandSender sender, String message) {
         sender.sendMessage(Util.color(message));
     }
@@ -338,12 +398,15 @@ public class MainCommand extends BukkitCommand {
                 return names;
             } else if (args[0].equalsIgnoreCase("schematic") && player.hasPermission("witp.schematic")) {
                 return Arrays.asList("wand", "pos1", "pos2", "save");
+            } else if (args[0].equalsIgnoreCase("leaderboard")) {
+                return Arrays.asList("daily", "weekly", "monthly");
             }
         }
-        List<String> suggestions = new ArrayList<>(Arrays.asList("join", "leave", "menu", "leaderboard", "gamemode"));
+        List<String> suggestions = new ArrayList<>(Arrays.asList("join", "leave", "menu", "leaderboard", "gamemode", "stats"));
         if (player.hasPermission("witp.reload")) {
             suggestions.add("reload");
             suggestions.add("migrate");
+            suggestions.add("database");
         }
         if (player.hasPermission("witp.schematic")) {
             suggestions.add("schematic");
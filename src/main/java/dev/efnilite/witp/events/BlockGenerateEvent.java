@@ -1,8 +1,11 @@
 package dev.efnilite.witp.events;
 
+import dev.efnilite.witp.api.EventHook;
 import dev.efnilite.witp.generator.DefaultGenerator;
 import dev.efnilite.witp.player.ParkourPlayer;
 import dev.efnilite.witp.util.wrapper.EventWrapper;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
 import org.bukkit.block.Block;
 
 /**
@@ -10,6 +13,9 @@ import org.bukkit.block.Block;
  */
 public class BlockGenerateEvent extends EventWrapper {
 
+    private static final HandlerList handlerList = new HandlerList();
+    public static final EventHook<BlockGenerateEvent> HOOK = new EventHook<>(handlerList);
+
     public Block block;
     public DefaultGenerator generator;
     public ParkourPlayer player;
@@ -19,4 +25,13 @@ public class BlockGenerateEvent extends EventWrapper {
         this.generator = generator;
         this.player = player;
     }
+
+    public static HandlerList getHandlerList() {
+        return handlerList;
+    }
+
+    @Override
+    public @NotNull HandlerList getHandlers() {
+        return handlerList;
+    }
 }
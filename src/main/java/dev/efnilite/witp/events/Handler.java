@@ -7,6 +7,7 @@ import dev.efnilite.witp.player.ParkourUser;
 import dev.efnilite.witp.schematic.selection.Selection;
 import dev.efnilite.witp.util.Util;
 import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.MessageCatalog;
 import dev.efnilite.witp.util.config.Option;
 import dev.efnilite.witp.util.inventory.ItemBuilder;
 import dev.efnilite.witp.util.inventory.PersistentUtil;
@@ -29,12 +30,19 @@ import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.util.BoundingBox;
 
 import java.io.IOException;
-import java.sql.SQLException;
 import java.time.Duration;
 import java.time.Instant;
 
 public class Handler implements Listener {
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void preLogin(AsyncPlayerPreLoginEvent event) {
+        // every player joins the parkour in bungeecord mode, so read their data while they're still logging in
+        if (Option.get().bungeecord && Option.get().joining && event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            ParkourPlayer.getPreloader().preload(event.getUniqueId());
+        }
+    }
+
     @EventHandler(priority = EventPriority.LOWEST)
     public void join(PlayerJoinEvent event) {
         Player player = event.getPlayer();
@@ -47,17 +55,12 @@ public class Handler implements Listener {
             player.sendMessage(Util.color("&c&l(!) &7You're running Multiverse without support for creating void worlds." +
                     "Go to the wiki to add support for this."));
         }
-        if (Option.BUNGEECORD) {
-            try {
-                ParkourPlayer.register(player); // todo update joining
-            } catch (IOException | SQLException ex) {
-                ex.printStackTrace();
-                Verbose.error("Something went wrong while trying to fetch a player's (" + player.getName() + ") data");
-            }
-            if (Option.JOIN_LEAVE) {
+        if (Option.get().bungeecord) {
+            ParkourPlayer.register(player, null); // the data has usually been preloaded during login
+            if (Option.get().joinLeave) {
                 event.setJoinMessage(null);
                 for (ParkourUser user : ParkourUser.getUsers()) {
-                    user.sendTranslated("join", player.getName());
+                    user.sendTranslated(MessageCatalog.JOIN, player.getName());
                 }
             }
         } else if (player.getWorld() == WITP.getDivider().getWorld()) {
@@ -91,17 +94,17 @@ public class Handler implements Listener {
 
     @EventHandler(priority = EventPriority.HIGHEST)
     public void command(PlayerCommandPreprocessEvent event) {
-        if (Option.FOCUS_MODE) {
+        if (Option.get().focusMode) {
             ParkourUser user = ParkourUser.getUser(event.getPlayer());
             if (user != null) {
                 String command = event.getMessage().toLowerCase();
-                for (String item : Option.FOCUS_MODE_WHITELIST) {   // i.e.: "msg", "w"
+                for (String item : Option.get().focusModeWhitelist) {   // i.e.: "msg", "w"
                     if (command.contains(item.toLowerCase())) {     // "/msg Efnilite hi" contains "msg"?
                         return;                                     // yes, so let event go through
                     }
                 }
                 event.setCancelled(true);
-                user.sendTranslated("cant-do");
+                user.sendTranslated(MessageCatalog.CANT_DO);
             }
         }
     }
@@ -207,7 +210,7 @@ public class Handler implements Listener {
             if (WITP.getConfiguration().getFile("lang").getBoolean("messages.join-leave-enabled")) {
                 event.setQuitMessage(null);
                 for (ParkourUser user : ParkourUser.getUsers()) {
-                    user.sendTranslated("leave", player.getPlayer().getName());
+                    user.sendTranslated(MessageCatalog.LEAVE, player.getPlayer().getName());
                 }
             }
             try {
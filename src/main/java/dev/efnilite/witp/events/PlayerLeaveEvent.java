@@ -1,16 +1,31 @@
 package dev.efnilite.witp.events;
 
+import dev.efnilite.witp.api.EventHook;
 import dev.efnilite.witp.player.ParkourUser;
 import dev.efnilite.witp.util.wrapper.EventWrapper;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * When a player scores
  */
 public class PlayerLeaveEvent extends EventWrapper {
 
+    private static final HandlerList handlerList = new HandlerList();
+    public static final EventHook<PlayerLeaveEvent> HOOK = new EventHook<>(handlerList);
+
     public ParkourUser player;
 
     public PlayerLeaveEvent(ParkourUser player) {
         this.player = player;
     }
+
+    public static HandlerList getHandlerList() {
+        return handlerList;
+    }
+
+    @Override
+    public @NotNull HandlerList getHandlers() {
+        return handlerList;
+    }
 }
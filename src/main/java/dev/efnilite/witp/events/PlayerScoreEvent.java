@@ -1,16 +1,31 @@
 package dev.efnilite.witp.events;
 
+import dev.efnilite.witp.api.EventHook;
 import dev.efnilite.witp.player.ParkourPlayer;
 import dev.efnilite.witp.util.wrapper.EventWrapper;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * When a player scores
  */
 public class PlayerScoreEvent extends EventWrapper {
 
+    private static final HandlerList handlerList = new HandlerList();
+    public static final EventHook<PlayerScoreEvent> HOOK = new EventHook<>(handlerList);
+
     public ParkourPlayer player;
 
     public PlayerScoreEvent(ParkourPlayer player) {
         this.player = player;
     }
+
+    public static HandlerList getHandlerList() {
+        return handlerList;
+    }
+
+    @Override
+    public @NotNull HandlerList getHandlers() {
+        return handlerList;
+    }
 }
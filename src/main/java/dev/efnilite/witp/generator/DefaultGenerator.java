@@ -4,15 +4,20 @@ import dev.efnilite.witp.WITP;
 import dev.efnilite.witp.events.BlockGenerateEvent;
 import dev.efnilite.witp.events.PlayerFallEvent;
 import dev.efnilite.witp.events.PlayerScoreEvent;
+import dev.efnilite.witp.generator.reward.RewardAction;
+import dev.efnilite.witp.generator.reward.RewardQueue;
 import dev.efnilite.witp.player.ParkourPlayer;
 import dev.efnilite.witp.schematic.Schematic;
 import dev.efnilite.witp.schematic.SchematicAdjuster;
 import dev.efnilite.witp.schematic.SchematicCache;
 import dev.efnilite.witp.util.Util;
 import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.MessageCatalog;
 import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.config.Settings;
 import dev.efnilite.witp.util.particle.ParticleData;
-import dev.efnilite.witp.util.particle.Particles;
+import dev.efnilite.witp.util.particle.ParticleRenderer;
+import dev.efnilite.witp.util.particle.ParticleShape;
 import dev.efnilite.witp.util.task.Tasks;
 import org.bukkit.*;
 import org.bukkit.block.Block;
@@ -23,7 +28,6 @@ import org.bukkit.block.data.type.Wall;
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.util.BoundingBox;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
@@ -62,13 +66,9 @@ public class DefaultGenerator extends ParkourGenerator {
     protected final Queue<Block> generatedHistory;
     protected final LinkedHashMap<String, Integer> buildLog;
     protected final HashMap<Integer, Integer> distanceChances;
-    protected final HashMap<Integer, Integer> specialChances;
-    protected final HashMap<Integer, Integer> heightChances;
-    protected final HashMap<Integer, Integer> defaultChances;
     protected final HashMap<Integer, Double> multiplierDecreases;
 
-    private static final ParticleData<?> PARTICLE_DATA = new ParticleData<>(Particle.SPELL_INSTANT, null, 10, 0,
-            0, 0, 0);
+    protected final ParticleRenderer particles;
 
     /**
      * Creates a new ParkourGenerator instance
@@ -88,19 +88,18 @@ public class DefaultGenerator extends ParkourGenerator {
         this.latestLocation = lastSpawn.clone();
         this.generatedHistory = new LinkedList<>();
         this.distanceChances = new HashMap<>();
-        this.heightChances = new HashMap<>();
-        this.specialChances = new HashMap<>();
         this.buildLog = new LinkedHashMap<>();
-        this.defaultChances = new HashMap<>();
         this.structureBlocks = new ArrayList<>();
         this.multiplierDecreases = new HashMap<>();
+        this.particles = new ParticleRenderer(player.getPlayer());
         this.deleteStructure = false;
 
-        double multiplier = Option.MULTIPLIER;
-        multiplierDecreases.put(1, (Option.MAXED_ONE_BLOCK - Option.NORMAL_ONE_BLOCK) / multiplier);
-        multiplierDecreases.put(2, (Option.MAXED_TWO_BLOCK - Option.NORMAL_TWO_BLOCK) / multiplier);
-        multiplierDecreases.put(3, (Option.MAXED_THREE_BLOCK - Option.NORMAL_THREE_BLOCK) / multiplier);
-        multiplierDecreases.put(4, (Option.MAXED_FOUR_BLOCK - Option.NORMAL_FOUR_BLOCK) / multiplier);
+        Settings settings = Option.get();
+        double multiplier = settings.multiplier;
+        multiplierDecreases.put(1, (settings.maxedOneBlock - settings.normalOneBlock) / multiplier);
+        multiplierDecreases.put(2, (settings.maxedTwoBlock - settings.normalTwoBlock) / multiplier);
+        multiplierDecreases.put(3, (settings.maxedThreeBlock - settings.normalThreeBlock) / multiplier);
+        multiplierDecreases.put(4, (settings.maxedFourBlock - settings.normalFourBlock) / multiplier);
     }
 
     /**
@@ -120,7 +119,9 @@ public class DefaultGenerator extends ParkourGenerator {
 
                 // Fall check
                 if (lastPlayer.getY() - playerLoc.getY() > 10 && playerSpawn.distance(playerLoc) > 5) {
-                    new PlayerFallEvent(player).call();
+                    if (PlayerFallEvent.HOOK.isListened()) {
+                        PlayerFallEvent.HOOK.call(new PlayerFallEvent(player));
+                    }
                     reset(true);
                     return;
                 }
@@ -172,7 +173,9 @@ public class DefaultGenerator extends ParkourGenerator {
 
                             latestLocation = current.getLocation();
 
-                            new PlayerScoreEvent(player).call();
+                            if (PlayerScoreEvent.HOOK.isListened()) {
+                                PlayerScoreEvent.HOOK.call(new PlayerScoreEvent(player));
+                            }
                             List<String> locations = new ArrayList<>(buildLog.keySet());
                             int lastIndex = locations.indexOf(last) + 1;
                             int size = locations.size();
@@ -193,37 +196,34 @@ public class DefaultGenerator extends ParkourGenerator {
                 player.updateScoreboard();
             }
         };
-        Tasks.defaultSyncRepeat(task, Option.GENERATOR_CHECK);
+        Tasks.defaultSyncRepeat(task, Option.get().generatorCheck);
     }
 
+    // queues the rewards of the current score, which are given over the next ticks
     private void checkRewards() {
-        // Rewards
-        HashMap<Integer, List<String>> scores = Option.REWARDS_SCORES;
-        if ((Option.REWARDS_INTERVAL > 0 && totalScore % Option.REWARDS_INTERVAL == 0)
-                || (scores.size() > 0 && scores.containsKey(score))) {
-            if (Option.REWARDS) {
-                if (scores.containsKey(score) && scores.get(score) != null) {
-                    List<String> commands = scores.get(score);
-                    if (commands != null) {
-                        for (String command : commands) {
-                            Bukkit.dispatchCommand(Bukkit.getServer().getConsoleSender(),
-                                    command.replaceAll("%player%", player.getPlayer().getName()));
-                        }
-                    }
-                }
-                if (Option.INTERVAL_REWARDS_SCORES != null) {
-                    for (String command : Option.INTERVAL_REWARDS_SCORES) {
-                        Bukkit.dispatchCommand(Bukkit.getServer().getConsoleSender(),
-                                command.replaceAll("%player%", player.getPlayer().getName()));
-                    }
-                }
-                if (Option.REWARDS_MONEY != 0) {
-                    Util.depositPlayer(player.getPlayer(), Option.REWARDS_MONEY);
-                }
-                if (Option.REWARDS_MESSAGE != null) {
-                    player.send(Option.REWARDS_MESSAGE);
-                }
+        Settings settings = Option.get();
+        if (!settings.rewards) {
+            return;
+        }
+        RewardQueue queue = WITP.getRewardQueue();
+        Player bukkitPlayer = player.getPlayer();
+        List<RewardAction> scoreRewards = settings.rewardsScores.get(score);
+        if ((settings.rewardsInterval > 0 && totalScore % settings.rewardsInterval == 0) || scoreRewards != null) {
+            if (scoreRewards != null) {
+                queue.add(bukkitPlayer, scoreRewards);
             }
+            queue.add(bukkitPlayer, settings.intervalRewards);
+        }
+        List<RewardAction> oneTimeRewards = settings.oneTimeRewardsScores.get(score);
+        if (oneTimeRewards != null && !player.claimedRewards.contains(score)) {
+            int claimed = score;
+            ParkourPlayer earner = player;
+            queue.add(bukkitPlayer, oneTimeRewards, given -> { // only claimed once given, so leaving before that doesn't lose it
+                ParkourPlayer current = ParkourPlayer.getPlayer(given); // may have left the parkour in the meantime
+                ParkourPlayer pp = current != null ? current : earner;
+                pp.claimedRewards.add(claimed);
+                pp.save(true);
+            });
         }
     }
 
@@ -271,12 +271,12 @@ public class DefaultGenerator extends ParkourGenerator {
             if (score > player.highScore) {
                 player.setHighScore(score, time, diff);
             }
-            player.sendTranslated("divider");
-            player.sendTranslated("score", Integer.toString(score));
-            player.sendTranslated("time", time);
-            player.sendTranslated("highscore", Integer.toString(player.highScore));
+            player.sendTranslated(MessageCatalog.DIVIDER);
+            player.sendTranslated(MessageCatalog.SCORE, Integer.toString(score));
+            player.sendTranslated(MessageCatalog.TIME, time);
+            player.sendTranslated(MessageCatalog.HIGHSCORE, Integer.toString(player.highScore));
             player.sendTranslated(message, Integer.toString(number));
-            player.sendTranslated("divider");
+            player.sendTranslated(MessageCatalog.DIVIDER);
         } else {
             if (score >= player.highScore) {
                 player.setHighScore(score, time, diff);
@@ -314,23 +314,8 @@ public class DefaultGenerator extends ParkourGenerator {
         }
 
         ThreadLocalRandom random = ThreadLocalRandom.current();
-        if (defaultChances.size() == 0) {
-            int index = 0;
-            for (int i = 0; i < Option.NORMAL; i++) {
-                defaultChances.put(index, 0);
-                index++;
-            }
-            for (int i = 0; i < Option.STRUCTURES; i++) {
-                defaultChances.put(index, 1);
-                index++;
-            }
-            for (int i = 0; i < Option.SPECIAL; i++) {
-                defaultChances.put(index, 2);
-                index++;
-            }
-        }
-
-        int def = defaultChances.get(random.nextInt(defaultChances.size())); // 0 = normal, 1 = structures, 2 = special
+        Settings settings = Option.get();
+        int def = settings.jumpTypes[random.nextInt(settings.jumpTypes.length)]; // 0 = normal, 1 = structures, 2 = special
         int special = def == 2 ? 1 : 0; // 1 = yes, 0 = no
         if (special == 1) {
             def = 0;
@@ -349,22 +334,22 @@ public class DefaultGenerator extends ParkourGenerator {
                 }
 
                 if (player.useDifficulty || distanceChances.size() == 0) {
-                    int one = Option.MAXED_ONE_BLOCK;
-                    int two = Option.MAXED_TWO_BLOCK;
-                    int three = Option.MAXED_THREE_BLOCK;
-                    int four = Option.MAXED_FOUR_BLOCK;
+                    int one = settings.maxedOneBlock;
+                    int two = settings.maxedTwoBlock;
+                    int three = settings.maxedThreeBlock;
+                    int four = settings.maxedFourBlock;
                     if (player.useDifficulty) {
-                        if (score <= Option.MULTIPLIER) {
-                            one = (int) (Option.NORMAL_ONE_BLOCK + (multiplierDecreases.get(1) * score));
-                            two = (int) (Option.NORMAL_TWO_BLOCK + (multiplierDecreases.get(2) * score));
-                            three = (int) (Option.NORMAL_THREE_BLOCK + (multiplierDecreases.get(3) * score));
-                            four = (int) (Option.NORMAL_FOUR_BLOCK + (multiplierDecreases.get(4) * score));
+                        if (score <= settings.multiplier) {
+                            one = (int) (settings.normalOneBlock + (multiplierDecreases.get(1) * score));
+                            two = (int) (settings.normalTwoBlock + (multiplierDecreases.get(2) * score));
+                            three = (int) (settings.normalThreeBlock + (multiplierDecreases.get(3) * score));
+                            four = (int) (settings.normalFourBlock + (multiplierDecreases.get(4) * score));
                         }
                     } else {
-                        one = Option.NORMAL_ONE_BLOCK;
-                        two = Option.NORMAL_TWO_BLOCK;
-                        three = Option.NORMAL_THREE_BLOCK;
-                        four = Option.NORMAL_FOUR_BLOCK;
+                        one = settings.normalOneBlock;
+                        two = settings.normalTwoBlock;
+                        three = settings.normalThreeBlock;
+                        four = settings.normalFourBlock;
                     }
                     distanceChances.clear();
                     int index = 0;
@@ -386,36 +371,17 @@ public class DefaultGenerator extends ParkourGenerator {
                     }
                 }
 
-                if (heightChances.size() == 0) { // regenerate the chances for height
-                    int index1 = 0;
-                    for (int i = 0; i < Option.NORMAL_UP; i++) {
-                        heightChances.put(index1, 1);
-                        index1++;
-                    }
-                    for (int i = 0; i < Option.NORMAL_LEVEL; i++) {
-                        heightChances.put(index1, 0);
-                        index1++;
-                    }
-                    for (int i = 0; i < Option.NORMAL_DOWN; i++) {
-                        heightChances.put(index1, -1);
-                        index1++;
-                    }
-                    for (int i = 0; i < Option.NORMAL_DOWN2; i++) {
-                        heightChances.put(index1, -2);
-                        index1++;
-                    }
-                }
-
+                int[] heights = settings.heights;
                 int height = 0;
-                int deltaYMin = lastSpawn.getBlockY() - Option.MIN_Y;
-                int deltaYMax = lastSpawn.getBlockY() - Option.MAX_Y;
+                int deltaYMin = lastSpawn.getBlockY() - settings.minY;
+                int deltaYMax = lastSpawn.getBlockY() - settings.maxY;
                 if (deltaYMin < 20) { // buffer of 20, so the closer to the max/min the more chance of opposite
                     int delta = (deltaYMin - 20) * -1;
                     int chanceRise = delta * 5;
                     if (chanceRise >= random.nextInt(100) + 1) {
                         height = 1;
                     } else {
-                        height = heightChances.get(random.nextInt(heightChances.size()));
+                        height = heights[random.nextInt(heights.length)];
                     }
                 } else if (deltaYMax > -20) {
                     int delta = deltaYMax + 20;
@@ -430,36 +396,16 @@ public class DefaultGenerator extends ParkourGenerator {
                                 break;
                         }
                     } else {
-                        height = heightChances.get(random.nextInt(heightChances.size()));
+                        height = heights[random.nextInt(heights.length)];
                     }
                 } else {
-                    height = heightChances.get(random.nextInt(heightChances.size()));
+                    height = heights[random.nextInt(heights.length)];
                 }
                 double gap = distanceChances.get(random.nextInt(distanceChances.size())) + 1;
 
                 BlockData material = player.randomMaterial().createBlockData();
                 if (special == 1 && player.useSpecial) {
-                    if (specialChances.size() == 0) {
-                        int index = 0;
-                        for (int i = 0; i < Option.SPECIAL_ICE; i++) {
-                            specialChances.put(index, 0);
-                            index++;
-                        }
-                        for (int i = 0; i < Option.SPECIAL_SLAB; i++) {
-                            specialChances.put(index, 1);
-                            index++;
-                        }
-                        for (int i = 0; i < Option.SPECIAL_PANE; i++) {
-                            specialChances.put(index, 2);
-                            index++;
-                        }
-                        for (int i = 0; i < Option.SPECIAL_FENCE; i++) {
-                            specialChances.put(index, 3);
-                            index++;
-                        }
-                    }
-
-                    int spec = specialChances.get(random.nextInt(specialChances.size()));
+                    int spec = settings.specialTypes[random.nextInt(settings.specialTypes.length)];
                     switch (spec) {
                         case 0: // ice
                             material = Material.PACKED_ICE.createBlockData();
@@ -504,32 +450,27 @@ public class DefaultGenerator extends ParkourGenerator {
                 if (generatedHistory.size() > player.blockLead + 5) {
                     generatedHistory.remove();
                 }
-                new BlockGenerateEvent(chosen, this, player).call();
+                if (BlockGenerateEvent.HOOK.isListened()) { // only created if something listens
+                    BlockGenerateEvent.HOOK.call(new BlockGenerateEvent(chosen, this, player));
+                }
                 lastSpawn = chosen.getLocation().clone();
 
                 if (player.useParticles) {
-                    PARTICLE_DATA.setType(Option.PARTICLE_TYPE);
-
-                    Player bukkitPlayer = player.getPlayer();
-                    switch (Option.PARTICLE_SHAPE) {
+                    switch (settings.particleShape) {
                         case DOT:
-                            PARTICLE_DATA.setSpeed(0.4);
-                            PARTICLE_DATA.setSize(20);
-                            PARTICLE_DATA.setOffsetX(0.5);
-                            PARTICLE_DATA.setOffsetY(1);
-                            PARTICLE_DATA.setOffsetZ(0.5);
-                            Particles.draw(lastSpawn.clone().add(0.5, 1, 0.5), PARTICLE_DATA, bukkitPlayer);
+                            particles.draw(lastSpawn.clone().add(0.5, 1, 0.5), ParticleShape.point(),
+                                    new ParticleData<>(settings.particleType, null, 20, 0.4, 0.5, 1, 0.5));
                             break;
                         case CIRCLE:
-                            PARTICLE_DATA.setSize(5);
-                            Particles.circle(lastSpawn.clone().add(0.5, 0.5, 0.5), PARTICLE_DATA, bukkitPlayer, 1, 25);
+                            particles.draw(lastSpawn.clone().add(0.5, 0.5, 0.5), ParticleShape.circle(1, 25),
+                                    new ParticleData<>(settings.particleType, null, 5));
                             break;
                         case BOX:
-                            PARTICLE_DATA.setSize(1);
-                            Particles.box(BoundingBox.of(chosen), player.getPlayer().getWorld(), PARTICLE_DATA, bukkitPlayer, 0.15);
+                            particles.draw(chosen.getLocation(), ParticleShape.cube(1, 0.15),
+                                    new ParticleData<>(settings.particleType, null, 1));
                             break;
                     }
-                    player.getPlayer().playSound(lastSpawn.clone(), Option.SOUND_TYPE, 4, Option.SOUND_PITCH);
+                    player.getPlayer().playSound(lastSpawn.clone(), settings.soundType, 4, settings.soundPitch);
                 }
 
                 if (structureCooldown > 0) {
@@ -623,7 +564,8 @@ public class DefaultGenerator extends ParkourGenerator {
         double detail = (radius * 8);
         double increment = (2 * Math.PI) / detail;
 
-        double heightGap = dy >= 0 ? Option.HEIGHT_GAP - dy : Option.HEIGHT_GAP - (dy + 1);
+        double gap = Option.get().heightGap;
+        double heightGap = dy >= 0 ? gap - dy : gap - (dy + 1);
         // if dy <= 2 set max gap between blocks to default -1,
         // otherwise jump will be impossible
         for (int i = 0; i < detail; i++) {
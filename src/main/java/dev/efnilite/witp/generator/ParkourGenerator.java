@@ -8,7 +8,9 @@ import dev.efnilite.witp.util.Verbose;
 import dev.efnilite.witp.util.config.Option;
 import org.bukkit.util.Vector;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class ParkourGenerator {
 
@@ -27,7 +29,7 @@ public abstract class ParkourGenerator {
      */
     public int score;
     public SubareaPoint.Data data;
-    public final HashMap<String, ParkourSpectator> spectators;
+    public final Map<UUID, ParkourSpectator> spectators;
     protected final double borderOffset;
     protected final Stopwatch stopwatch;
     protected final ParkourPlayer player;
@@ -35,8 +37,8 @@ public abstract class ParkourGenerator {
     public ParkourGenerator(ParkourPlayer player) {
         this.player = player;
         this.stopwatch = new Stopwatch();
-        this.spectators = new HashMap<>();
-        this.borderOffset = Option.BORDER_SIZE / 2.0;
+        this.spectators = new ConcurrentHashMap<>();
+        this.borderOffset = Option.get().borderSize / 2.0;
         this.heading = WITP.getDivider().getHeading();
         player.setGenerator(this);
     }
@@ -49,13 +51,13 @@ public abstract class ParkourGenerator {
 
     public void removeSpectators(ParkourSpectator... spectators) {
         for (ParkourSpectator spectator : spectators) {
-            this.spectators.remove(spectator.getPlayer().getName());
+            this.spectators.remove(spectator.getPlayer().getUniqueId());
         }
     }
 
     public void addSpectator(ParkourSpectator... spectators) {
         for (ParkourSpectator spectator : spectators) {
-            this.spectators.put(spectator.getPlayer().getName(), spectator);
+            this.spectators.put(spectator.getPlayer().getUniqueId(), spectator);
         }
     }
 
@@ -64,8 +66,7 @@ public abstract class ParkourGenerator {
      */
     public void updateSpectators() {
         for (ParkourSpectator spectator : spectators.values()) {
-            spectator.checkDistance();
-            spectator.updateScoreboard();
+            spectator.checkDistance(); // the scoreboard is sent by the player when it changes
         }
     }
 
@@ -73,6 +74,15 @@ public abstract class ParkourGenerator {
         return player;
     }
 
+    /**
+     * Returns the duration of the current run
+     *
+     * @return the duration in ms
+     */
+    public long getDuration() {
+        return stopwatch.getElapsed();
+    }
+
     /**
      * Updates the time
      */
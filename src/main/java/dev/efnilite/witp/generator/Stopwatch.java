@@ -23,6 +23,15 @@ public class Stopwatch {
         start = 0;
     }
 
+    /**
+     * Returns the time since the stopwatch was started
+     *
+     * @return the time in ms, or 0 if it hasn't been started
+     */
+    public long getElapsed() {
+        return start == 0 ? 0 : System.currentTimeMillis() - start;
+    }
+
     @Override
     public String toString() {
         if (start == 0) {
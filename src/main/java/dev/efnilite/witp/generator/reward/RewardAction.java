@@ -0,0 +1,180 @@
+package dev.efnilite.witp.generator.reward;
+
+import dev.efnilite.witp.util.Util;
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.PlaceholderTemplate;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single reward, compiled from the config when the settings are loaded.
+ * <p>
+ * Rewards are written as <code>type:value</code>, where the type is one of
+ * <ul>
+ *     <li><code>money:5</code> - deposits money using Vault</li>
+ *     <li><code>message:&amp;6+5 coins</code> - sends a message</li>
+ *     <li><code>item:golden_apple 2</code> - gives an item, dropping it if the inventory is full</li>
+ *     <li><code>command:say hi</code> - runs a command from the console</li>
+ * </ul>
+ * Anything without a type is a command. Commands are the slowest, since the server has to parse them every time,
+ * so the other types should be used where possible. %player% is replaced with the name of the player in messages
+ * and commands.
+ * </p>
+ */
+public interface RewardAction {
+
+    /**
+     * Gives the reward to a player. Should be called on the main thread.
+     *
+     * @param   player
+     *          The player
+     */
+    void run(@NotNull Player player);
+
+    /**
+     * Compiles a reward
+     *
+     * @param   definition
+     *          The reward, as written in the config
+     *
+     * @return the action, or null if the reward is 'null' or invalid
+     */
+    static @Nullable RewardAction compile(@NotNull String definition) {
+        String trimmed = definition.trim();
+        if (trimmed.isEmpty() || trimmed.equalsIgnoreCase("null")) {
+            return null;
+        }
+        int split = trimmed.indexOf(':');
+        String type = split > 0 ? trimmed.substring(0, split).toLowerCase() : "";
+        String value = split > 0 ? trimmed.substring(split + 1).trim() : trimmed;
+        switch (type) {
+            case "money":
+                try {
+                    return new Money(Double.parseDouble(value));
+                } catch (NumberFormatException ex) {
+                    Verbose.error("Invalid money reward in config: " + definition);
+                    return null;
+                }
+            case "message":
+                return new Message(Util.color(value));
+            case "item":
+                String[] parts = value.split(" ");
+                Material material = Material.matchMaterial(parts[0]);
+                if (material == null) {
+                    Verbose.error("Invalid item reward in config: " + definition);
+                    return null;
+                }
+                int amount = 1;
+                if (parts.length > 1) {
+                    try {
+                        amount = Integer.parseInt(parts[1]);
+                    } catch (NumberFormatException ex) {
+                        Verbose.error("Invalid item amount in config: " + definition);
+                        return null;
+                    }
+                }
+                return new Item(new ItemStack(material, amount));
+            case "command":
+                return new Command(value);
+            default: // no type, or a command with a colon (e.g. minecraft:give)
+                return new Command(trimmed);
+        }
+    }
+
+    /**
+     * Compiles a list of rewards, leaving out the ones which are 'null' or invalid
+     *
+     * @param   definitions
+     *          The rewards, as written in the config
+     *
+     * @return the actions
+     */
+    static List<RewardAction> compile(@NotNull List<String> definitions) {
+        List<RewardAction> actions = new ArrayList<>(definitions.size());
+        for (String definition : definitions) {
+            RewardAction action = compile(definition);
+            if (action != null) {
+                actions.add(action);
+            }
+        }
+        return Collections.unmodifiableList(actions);
+    }
+
+    /**
+     * Deposits money using Vault
+     */
+    class Money implements RewardAction {
+
+        private final double amount;
+
+        public Money(double amount) {
+            this.amount = amount;
+        }
+
+        @Override
+        public void run(@NotNull Player player) {
+            Util.depositPlayer(player, amount);
+        }
+    }
+
+    /**
+     * Sends a message
+     */
+    class Message implements RewardAction {
+
+        private final PlaceholderTemplate message;
+
+        public Message(@NotNull String message) {
+            this.message = PlaceholderTemplate.named(message, "%player%");
+        }
+
+        @Override
+        public void run(@NotNull Player player) {
+            player.sendMessage(message.format(player.getName()));
+        }
+    }
+
+    /**
+     * Gives an item
+     */
+    class Item implements RewardAction {
+
+        private final ItemStack item;
+
+        public Item(@NotNull ItemStack item) {
+            this.item = item;
+        }
+
+        @Override
+        public void run(@NotNull Player player) {
+            for (ItemStack left : player.getInventory().addItem(item.clone()).values()) {
+                player.getWorld().dropItem(player.getLocation(), left);
+            }
+        }
+    }
+
+    /**
+     * Runs a command from the console
+     */
+    class Command implements RewardAction {
+
+        private final PlaceholderTemplate command;
+
+        public Command(@NotNull String command) {
+            this.command = PlaceholderTemplate.named(command.startsWith("/") ? command.substring(1) : command, "%player%");
+        }
+
+        @Override
+        public void run(@NotNull Player player) {
+            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command.format(player.getName()));
+        }
+    }
+}
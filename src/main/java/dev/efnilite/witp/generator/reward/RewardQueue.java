@@ -0,0 +1,128 @@
+package dev.efnilite.witp.generator.reward;
+
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.task.Tasks;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Gives rewards spread over ticks, instead of all at once in the tick they were earned.
+ * <p>
+ * Completing a structure can earn ten rewards at once, each of which may run several commands, so at most
+ * {@link #PER_TICK} actions are run every tick. The task only runs while there are rewards left.
+ * Only used on the main thread.
+ * </p>
+ */
+public class RewardQueue {
+
+    /**
+     * The max amount of actions that are run every tick
+     */
+    public static final int PER_TICK = 5;
+
+    private final Queue<Entry> queue = new ArrayDeque<>();
+    private BukkitTask task;
+
+    /**
+     * Adds rewards for a player
+     *
+     * @param   player
+     *          The player
+     *
+     * @param   actions
+     *          The rewards
+     */
+    public void add(@NotNull Player player, @NotNull List<RewardAction> actions) {
+        add(player, actions, null);
+    }
+
+    /**
+     * Adds rewards for a player
+     *
+     * @param   player
+     *          The player
+     *
+     * @param   actions
+     *          The rewards
+     *
+     * @param   done
+     *          Runs after the last reward has been given, but not if the player has left before that
+     */
+    public void add(@NotNull Player player, @NotNull List<RewardAction> actions, @Nullable Consumer<Player> done) {
+        if (actions.isEmpty()) {
+            if (done != null) {
+                done.accept(player);
+            }
+            return;
+        }
+        UUID uuid = player.getUniqueId();
+        for (int i = 0; i < actions.size(); i++) {
+            queue.add(new Entry(uuid, actions.get(i), i == actions.size() - 1 ? done : null));
+        }
+        if (task == null) {
+            task = Tasks.syncRepeat(this::tick, 1);
+        }
+    }
+
+    /**
+     * Gives all rewards that are left right away. Used when disabling.
+     */
+    public void flush() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        while (!queue.isEmpty()) {
+            run(queue.poll());
+        }
+    }
+
+    private void tick() {
+        for (int i = 0; i < PER_TICK && !queue.isEmpty(); i++) {
+            run(queue.poll());
+        }
+        if (queue.isEmpty() && task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void run(Entry entry) {
+        Player player = Bukkit.getPlayer(entry.uuid);
+        if (player == null) { // left before getting the reward
+            Verbose.verbose("Skipped reward of offline player " + entry.uuid);
+            return;
+        }
+        try {
+            entry.action.run(player);
+        } catch (RuntimeException ex) { // a broken reward shouldn't stop the others
+            ex.printStackTrace();
+            Verbose.error("Error while trying to give a reward to " + player.getName());
+        }
+        if (entry.done != null) {
+            entry.done.accept(player);
+        }
+    }
+
+    private static class Entry {
+
+        private final UUID uuid;
+        private final RewardAction action;
+        private final @Nullable Consumer<Player> done;
+
+        private Entry(UUID uuid, RewardAction action, @Nullable Consumer<Player> done) {
+            this.uuid = uuid;
+            this.action = action;
+            this.done = done;
+        }
+    }
+}
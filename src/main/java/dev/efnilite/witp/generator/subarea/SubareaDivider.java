@@ -5,6 +5,7 @@ import dev.efnilite.witp.api.WITPAPI;
 import dev.efnilite.witp.generator.DefaultGenerator;
 import dev.efnilite.witp.generator.ParkourGenerator;
 import dev.efnilite.witp.player.ParkourPlayer;
+import dev.efnilite.witp.player.ParkourUser;
 import dev.efnilite.witp.schematic.RotationAngle;
 import dev.efnilite.witp.schematic.Schematic;
 import dev.efnilite.witp.schematic.Vector3D;
@@ -119,12 +120,7 @@ public class SubareaDivider {
      * @return the point of the player
      */
     public @Nullable SubareaPoint getPoint(@NotNull ParkourPlayer player) {
-        for (SubareaPoint point : collection.keySet()) {
-            if (collection.get(point).getPlayer().getUniqueId() == player.getPlayer().getUniqueId()) {
-                return point;
-            }
-        }
-        return null;
+        return ParkourUser.getRegistry().getPoint(player.getPlayer().getUniqueId());
     }
 
     /**
@@ -198,6 +194,7 @@ public class SubareaDivider {
     public void leave(@NotNull ParkourPlayer player) {
         SubareaPoint point = getPoint(player);
         collection.remove(point);
+        ParkourUser.getRegistry().setPoint(player.getPlayer().getUniqueId(), null);
         openSpaces.add(point);
         for (Block block : player.getGenerator().data.blocks) {
             block.setType(Material.AIR, false);
@@ -270,7 +267,8 @@ public class SubareaDivider {
         }
         Player player = pp.getPlayer();
         collection.put(point, pp);
-        Location spawn = point.getEstimatedCenter((int) Option.BORDER_SIZE).toLocation(world).clone();
+        ParkourUser.getRegistry().setPoint(player.getUniqueId(), point);
+        Location spawn = point.getEstimatedCenter((int) Option.get().borderSize).toLocation(world).clone();
 
         Vector3D dimension = spawnIsland.getDimensions().getDimensions();
         spawn.setY(spawn.getY() - dimension.y);
@@ -296,7 +294,7 @@ public class SubareaDivider {
                 pp.teleport(to);
                 block.setType(Material.AIR);
                 player.setGameMode(GameMode.ADVENTURE);
-                if (Option.INVENTORY_HANDLING) {
+                if (Option.get().inventoryHandling) {
                     player.getInventory().clear();
                     ItemStack mat = WITP.getConfiguration().getFromItemData(pp.locale, "general.menu");
                     if (mat == null) {
@@ -330,7 +328,7 @@ public class SubareaDivider {
             ((DefaultGenerator) pp.getGenerator()).generateFirst(to.clone(), parkourBegin.clone());
         }
 
-        if (!Option.INVENTORY_HANDLING) {
+        if (!Option.get().inventoryHandling) {
             pp.sendTranslated("customize-menu");
         }
         pp.getGenerator().start();
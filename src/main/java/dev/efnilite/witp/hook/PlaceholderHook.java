@@ -5,10 +5,11 @@ import dev.efnilite.witp.player.ParkourPlayer;
 import dev.efnilite.witp.player.ParkourSpectator;
 import dev.efnilite.witp.player.ParkourUser;
 import dev.efnilite.witp.player.data.Highscore;
+import dev.efnilite.witp.player.data.Leaderboard;
+import dev.efnilite.witp.player.data.PeriodLeaderboard;
 import dev.efnilite.witp.util.Util;
 import me.clip.placeholderapi.PlaceholderAPI;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
@@ -83,40 +84,66 @@ public class PlaceholderHook extends PlaceholderExpansion {
             }
         }
 
+        switch (params) {
+            case "version":
+            case "ver":
+                return WITP.getInstance().getDescription().getVersion();
+        }
+
+        Leaderboard leaderboard = ParkourUser.getLeaderboard();
+        for (PeriodLeaderboard.Period period : PeriodLeaderboard.Period.values()) {
+            String prefix = period.getName() + "_";
+            if (params.startsWith(prefix)) { // e.g. daily_score_rank_1
+                leaderboard = ParkourUser.getLeaderboard(period);
+                params = params.substring(prefix.length());
+                break;
+            }
+        }
+        return translateLeaderboard(leaderboard, player, params);
+    }
+
+    private String translateLeaderboard(Leaderboard leaderboard, Player player, String params) {
         switch (params) {
             case "highscore":
             case "high_score":
-                Integer value = ParkourPlayer.getHighScoreValue(player.getUniqueId());
+                Integer value = leaderboard.getScore(player.getUniqueId());
                 if (value == null) {
                     value = 0;
                 }
                 return Integer.toString(value);
-            case "version":
-            case "ver":
-                return WITP.getInstance().getDescription().getVersion();
+            case "rank":
+                return Integer.toString(leaderboard.getRank(player.getUniqueId()));
             case "leader":
             case "record_player":
-                UUID recordPlayer = ParkourPlayer.getAtPlace(1);
-                return recordPlayer == null ? "N/A" : Bukkit.getOfflinePlayer(recordPlayer).getName();
+                UUID recordPlayer = leaderboard.getAtPlace(1);
+                if (recordPlayer == null) {
+                    return "N/A";
+                }
+                Highscore record = leaderboard.getHighscore(recordPlayer);
+                if (record != null && record.name != null && !record.name.equals("null")) {
+                    return record.name;
+                }
+                String name = ParkourUser.getNames().get(recordPlayer);
+                return name != null ? name : "N/A";
             case "leader_score":
             case "record_score":
             case "record":
-                UUID uuid = ParkourPlayer.getAtPlace(1);
+                UUID uuid = leaderboard.getAtPlace(1);
                 if (uuid == null) {
                     return "N/A";
                 }
-                Integer score = ParkourPlayer.getHighScoreValue(uuid);
+                Integer score = leaderboard.getScore(uuid);
                 return score == null ? "N/A" : Integer.toString(score);
             default:
                 if (params.contains("player_rank_")) {
                     String replaced = params.replaceAll("player_rank_", "");
                     int rank = Integer.parseInt(replaced);
                     if (rank > 0) {
-                        UUID uuidRank = ParkourPlayer.getAtPlace(rank);
+                        UUID uuidRank = leaderboard.getAtPlace(rank);
                         if (uuidRank == null) {
                             return "N/A";
                         }
-                        Highscore highscore = ParkourPlayer.getHighScore(uuidRank);
+                        Highscore highscore = leaderboard.getHighscore(uuidRank);
                         if (highscore == null) {
                             return "N/A";
                         }
@@ -128,11 +155,11 @@ public class PlaceholderHook extends PlaceholderExpansion {
                     String replaced = params.replaceAll("score_rank_", "");
                     int rank = Integer.parseInt(replaced);
                     if (rank > 0) {
-                        UUID uuidRank1 = ParkourPlayer.getAtPlace(rank);
+                        UUID uuidRank1 = leaderboard.getAtPlace(rank);
                         if (uuidRank1 == null) {
                             return "N/A";
                         }
-                        Integer score1 = ParkourPlayer.getHighScoreValue(uuidRank1);
+                        Integer score1 = leaderboard.getScore(uuidRank1);
                         return score1 == null ? "N/A" : Integer.toString(score1);
                     } else {
                         return "N/A";
@@ -141,12 +168,12 @@ public class PlaceholderHook extends PlaceholderExpansion {
                     String replaced = params.replaceAll("time_rank_", "");
                     int rank = Integer.parseInt(replaced);
                     if (rank > 0) {
-                        UUID uuidRank1 = ParkourPlayer.getAtPlace(rank);
+                        UUID uuidRank1 = leaderboard.getAtPlace(rank);
                         if (uuidRank1 == null) {
                             return "N/A";
                         }
-                        String time = ParkourPlayer.getHighScoreTime(uuidRank1);
-                        return time == null ? "N/A" : time;
+                        Highscore highscore = leaderboard.getHighscore(uuidRank1);
+                        return highscore == null || highscore.time == null ? "N/A" : highscore.time;
                     } else {
                         return "N/A";
                     }
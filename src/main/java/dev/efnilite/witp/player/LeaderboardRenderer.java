@@ -0,0 +1,206 @@
+package dev.efnilite.witp.player;
+
+import dev.efnilite.witp.player.data.Highscore;
+import dev.efnilite.witp.player.data.Leaderboard;
+import dev.efnilite.witp.player.data.PeriodLeaderboard;
+import dev.efnilite.witp.util.Util;
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.MessageCatalog;
+import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.config.PlaceholderTemplate;
+import dev.efnilite.witp.util.config.Settings;
+import dev.efnilite.witp.util.task.Tasks;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.ClickEvent;
+import net.md_5.bungee.api.chat.ComponentBuilder;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Renders leaderboard pages to chat components, and keeps them per (language, leaderboard, page).
+ * <p>
+ * A rendered page stays valid until the leaderboard publishes a new snapshot, so showing a page which hasn't changed
+ * only sends the components again. Pages are rendered on another thread. Only the rank of the viewer is added
+ * when the page is sent.
+ * </p>
+ */
+public class LeaderboardRenderer {
+
+    /**
+     * The max amount of rendered pages which are kept
+     */
+    private static final int MAX_PAGES = 256;
+
+    private static final Map<String, Rendered> pages = Collections.synchronizedMap(new LinkedHashMap<String, Rendered>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Rendered> eldest) {
+            return size() > MAX_PAGES;
+        }
+    });
+
+    /**
+     * Gets a rendered page, if it's rendered from the current snapshot of the leaderboard with the current settings
+     *
+     * @param   locale
+     *          The language
+     *
+     * @param   period
+     *          The period of the leaderboard, or null for the all-time leaderboard
+     *
+     * @param   page
+     *          The page
+     *
+     * @param   version
+     *          The version of the current snapshot
+     *
+     * @return the page, or null if it has to be rendered
+     */
+    public static @Nullable Rendered getCached(String locale, @Nullable PeriodLeaderboard.Period period, int page, long version) {
+        Rendered rendered = pages.get(key(locale, period, page));
+        return rendered != null && rendered.version == version && rendered.settings == Option.get() ? rendered : null;
+    }
+
+    /**
+     * Renders a page on another thread
+     *
+     * @param   locale
+     *          The language
+     *
+     * @param   period
+     *          The period of the leaderboard, or null for the all-time leaderboard
+     *
+     * @param   page
+     *          The page
+     *
+     * @param   consumer
+     *          Receives the rendered page, on the main thread
+     */
+    public static void render(String locale, @Nullable PeriodLeaderboard.Period period, @NotNull Leaderboard.Page page,
+                              @NotNull Consumer<Rendered> consumer) {
+        Tasks.asyncTask(() -> {
+            Rendered rendered = render(Option.get(), locale, period, page);
+            if (rendered.complete && rendered.settings == Option.get()) { // not kept if the settings were reloaded meanwhile
+                pages.put(key(locale, period, page.number), rendered);
+            }
+            Tasks.syncTask(() -> consumer.accept(rendered));
+        });
+    }
+
+    /**
+     * Forgets all rendered pages, e.g. after the languages have been reloaded
+     */
+    public static void clear() {
+        pages.clear();
+    }
+
+    // translates everything with the same settings, so a page is never made from two versions of lang.yml
+    private static Rendered render(Settings settings, String locale, @Nullable PeriodLeaderboard.Period period, Leaderboard.Page page) {
+        boolean complete = true;
+        String difficulty = translate(settings, locale, MessageCatalog.DIFFICULTY);
+        List<BaseComponent[]> rows = new ArrayList<>(page.entries.size());
+        for (Leaderboard.Entry entry : page.entries) {
+            Highscore highscore = entry.highscore;
+            @Nullable String name = highscore.name;
+            if (name == null || name.equals("null")) {
+                name = ParkourUser.getNames().get(entry.uuid); // looked up in the background if unknown
+                if (name == null) {
+                    name = "?";
+                    complete = false; // render again once the name is known
+                }
+            }
+            @Nullable String time = highscore.time;
+            if (time == null || time.equals("null")) {
+                time = "N/A";
+            }
+            @Nullable String diff = highscore.diff;
+            if (diff == null || diff.equals("null")) {
+                diff = "?";
+            }
+            // #1. Efnilite - 354 (3m 12s, difficulty: 0.6/1.0)
+            rows.add(TextComponent.fromLegacyText(Util.color("&a#" + entry.rank + ". &7" + name + " &f- " + entry.score +
+                    " &7(" + time + ", " + difficulty + ": " + diff + "/1.0)")));
+        }
+
+        String command = "/witp leaderboard " + (period != null ? period.getName() + " " : "");
+        BaseComponent[] navigation = new ComponentBuilder()
+                .append(translate(settings, locale, MessageCatalog.PREVIOUS_PAGE))
+                .event(new ClickEvent(ClickEvent.Action.RUN_COMMAND, command + (page.number - 1)))
+                .append(" | ").color(net.md_5.bungee.api.ChatColor.GRAY)
+                .event((ClickEvent) null)
+                .append(translate(settings, locale, MessageCatalog.NEXT_PAGE))
+                .event(new ClickEvent(ClickEvent.Action.RUN_COMMAND, command + (page.number + 1)))
+                .create();
+        return new Rendered(settings, page.version, complete, translate(settings, locale, MessageCatalog.DIVIDER), rows,
+                template(settings, locale, MessageCatalog.YOUR_RANK), navigation);
+    }
+
+    private static String translate(Settings settings, String locale, int key) {
+        return template(settings, locale, key).format();
+    }
+
+    private static PlaceholderTemplate template(Settings settings, String locale, int key) {
+        PlaceholderTemplate template = settings.messages.get(locale, key);
+        if (template == null) {
+            Verbose.error("Custom language '" + locale + "' is missing a path: '" + MessageCatalog.getPath(key) + "'. Please add this path to the language in lang.yml!");
+            return PlaceholderTemplate.positional("");
+        }
+        return template;
+    }
+
+    private static String key(String locale, @Nullable PeriodLeaderboard.Period period, int page) {
+        return locale + ":" + (period != null ? period.getName() : "all") + ":" + page;
+    }
+
+    /**
+     * A rendered page
+     */
+    public static class Rendered {
+
+        private final Settings settings; // the settings the page was translated with
+        private final long version;
+        private final boolean complete; // false if some names weren't known yet
+        private final String divider;
+        private final List<BaseComponent[]> rows;
+        private final PlaceholderTemplate rank; // filled in with the rank and score of the viewer
+        private final BaseComponent[] navigation;
+
+        private Rendered(Settings settings, long version, boolean complete, String divider, List<BaseComponent[]> rows, PlaceholderTemplate rank, BaseComponent[] navigation) {
+            this.settings = settings;
+            this.version = version;
+            this.complete = complete;
+            this.divider = divider;
+            this.rows = rows;
+            this.rank = rank;
+            this.navigation = navigation;
+        }
+
+        /**
+         * Sends the page to a player
+         *
+         * @param   player
+         *          The player
+         *
+         * @param   viewer
+         *          The entry of the player, or null if they're not on the leaderboard
+         */
+        public void send(@NotNull Player player, @Nullable Leaderboard.Entry viewer) {
+            player.sendMessage(divider);
+            for (BaseComponent[] row : rows) {
+                player.spigot().sendMessage(row);
+            }
+            player.sendMessage(rank.format(Integer.toString(viewer != null ? viewer.rank : 0), Integer.toString(viewer != null ? viewer.score : 0)));
+            player.sendMessage("");
+            player.spigot().sendMessage(navigation);
+            player.sendMessage(divider);
+        }
+    }
+}
@@ -1,23 +1,27 @@
 package dev.efnilite.witp.player;
 
-import com.google.gson.annotations.Expose;
 import dev.efnilite.witp.WITP;
 import dev.efnilite.witp.api.WITPAPI;
 import dev.efnilite.witp.generator.DefaultGenerator;
 import dev.efnilite.witp.generator.ParkourGenerator;
 import dev.efnilite.witp.hook.PlaceholderHook;
+import dev.efnilite.witp.player.data.GameLogger;
 import dev.efnilite.witp.player.data.Highscore;
+import dev.efnilite.witp.player.data.PeriodLeaderboard;
+import dev.efnilite.witp.player.data.PlayerPreloader;
+import dev.efnilite.witp.player.data.PlayerRecord;
+import dev.efnilite.witp.player.data.PlayerStore;
 import dev.efnilite.witp.util.Util;
 import dev.efnilite.witp.util.Verbose;
 import dev.efnilite.witp.util.config.Configuration;
+import dev.efnilite.witp.util.config.MessageCatalog;
 import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.config.PlaceholderTemplate;
+import dev.efnilite.witp.util.config.Settings;
 import dev.efnilite.witp.util.fastboard.FastBoard;
 import dev.efnilite.witp.util.inventory.InventoryBuilder;
 import dev.efnilite.witp.util.inventory.ItemBuilder;
-import dev.efnilite.witp.util.sql.InsertStatement;
 import dev.efnilite.witp.util.sql.InvalidStatementException;
-import dev.efnilite.witp.util.sql.SelectStatement;
-import dev.efnilite.witp.util.sql.UpdertStatement;
 import dev.efnilite.witp.util.task.Tasks;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.ComponentBuilder;
@@ -28,14 +32,15 @@ import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 /**
  * Wrapper class for a regular player to store plugin-usable data
@@ -47,28 +52,38 @@ public class ParkourPlayer extends ParkourUser {
     /**
      * Player data used in saving
      */
-    public @Expose int highScore;
-    public @Expose String highScoreTime;
-    public @Expose int blockLead;
-    public @Expose boolean useDifficulty;
-    public @Expose String highScoreDifficulty;
-    public @Expose Boolean useParticles;
-    public @Expose Boolean useSpecial;
-    public @Expose Boolean showDeathMsg;
-    public @Expose Boolean showScoreboard;
-    public @Expose Boolean useStructure;
-    public @Expose String time;
-    public @Expose String style;
-    public @Expose String lang;
-    public @Expose String name; // for fixing null in leaderboard
-    public @Expose double difficulty;
+    public int highScore;
+    public String highScoreTime;
+    public int blockLead;
+    public boolean useDifficulty;
+    public String highScoreDifficulty;
+    public Boolean useParticles;
+    public Boolean useSpecial;
+    public Boolean showDeathMsg;
+    public Boolean showScoreboard;
+    public Boolean useStructure;
+    public String time;
+    public String style;
+    public String lang;
+    public String name; // for fixing null in leaderboard
+    public double difficulty;
+    public Set<Integer> claimedRewards = new HashSet<>(); // the scores of the one-time rewards they've got
 
     public final Instant joinTime;
 
     public UUID uuid;
     private ParkourGenerator generator;
     private List<Material> possibleStyle;
-    private final File file;
+
+    // the last rendered scoreboard, which is shared with spectators
+    private Settings scoreboardSettings;
+    private String[] scoreboardValues;
+    private String scoreboardTitle;
+    private List<String> scoreboardLines;
+
+    private static final PlayerStore store = new PlayerStore();
+    private static final PlayerPreloader preloader = new PlayerPreloader(store);
+    private static final Set<UUID> registering = new HashSet<>(); // players whose data is being read, only used on the main thread
 
     /**
      * Creates a new instance of a ParkourPlayer<br>
@@ -81,9 +96,8 @@ public class ParkourPlayer extends ParkourUser {
         this.name = player.getName();
         this.joinTime = Instant.now();
 
-        this.file = new File(WITP.getInstance().getDataFolder() + "/players/" + uuid.toString() + ".json");
         this.possibleStyle = new ArrayList<>();
-        this.locale = Option.DEFAULT_LANG;
+        this.locale = Option.get().defaultLang;
         this.lang = locale;
     }
 
@@ -118,47 +132,83 @@ public class ParkourPlayer extends ParkourUser {
     }
 
     /**
-     * Updates the scoreboard
+     * Updates the scoreboard of the player and their spectators.
+     * The scoreboard is only rendered again if one of its values has changed, and is then sent to the spectators.
      */
     @Override
     public void updateScoreboard() {
         if (showScoreboard == null) {
             showScoreboard = true;
         }
-        if (showScoreboard && Option.SCOREBOARD && board != null && generator != null) {
-            String title = Option.SCOREBOARD_TITLE;
-            List<String> list = new ArrayList<>();
-            List<String> lines = Option.SCOREBOARD_LINES;
-            if (lines == null) {
-                Verbose.error("Scoreboard lines are null! Check your config!");
-                return;
+        Settings settings = Option.get();
+        if (!settings.scoreboard || generator == null) {
+            return;
+        }
+        boolean shown = showScoreboard && board != null;
+        if (!shown && generator.spectators.isEmpty()) {
+            return;
+        }
+        Integer rank = getHighScoreValue(uuid);
+        UUID one = getAtPlace(1);
+        Integer top = 0;
+        Highscore highscore = null;
+        if (one != null) {
+            top = getHighScoreValue(one);
+            highscore = getHighScore(one);
+        }
+        String[] values = { Integer.toString(generator.score), generator.time, rank != null ? rank.toString() : "0",
+                top != null ? top.toString() : "0", highscore != null && highscore.name != null ? highscore.name : "N/A" };
+
+        boolean changed = settings != scoreboardSettings || !Arrays.equals(values, scoreboardValues);
+        if (changed) {
+            List<String> lines = new ArrayList<>(settings.scoreboardLineTemplates.size());
+            for (PlaceholderTemplate line : settings.scoreboardLineTemplates) {
+                lines.add(line.format(values));
             }
-            Integer rank = getHighScoreValue(uuid);
-            UUID one = getAtPlace(1);
-            Integer top = 0;
-            Highscore highscore = null;
-            if (one != null) {
-                top = getHighScoreValue(one);
-                highscore = scoreMap.get(one);
+            scoreboardTitle = settings.scoreboardTitleTemplate.format(values);
+            scoreboardLines = lines;
+            scoreboardValues = values;
+            scoreboardSettings = settings;
+        }
+
+        if (shown) {
+            if (WITP.getPlaceholderHook() == null) {
+                board.updateTitle(scoreboardTitle); // only sends what has changed
+                board.updateLines(scoreboardLines);
+            } else { // PAPI placeholders may change at any time
+                List<String> lines = new ArrayList<>(scoreboardLines.size());
+                for (String line : scoreboardLines) {
+                    lines.add(translatePlaceholders(player, line));
+                }
+                board.updateTitle(translatePlaceholders(player, scoreboardTitle));
+                board.updateLines(lines);
             }
-            for (String s : lines) {
-                s = translatePlaceholders(player, s); // add support for PAPI placeholders in scoreboard
-                list.add(s.replaceAll("%score%", Integer.toString(generator.score))
-                        .replaceAll("%time%", generator.time)
-                        .replaceAll("%highscore%", rank != null ? rank.toString() : "0")
-                        .replaceAll("%topscore%", top != null ? top.toString() : "0")
-                        .replaceAll("%topplayer%", highscore != null && highscore.name != null ? highscore.name : "N/A"));
+        }
+        if (changed) {
+            for (ParkourSpectator spectator : generator.spectators.values()) {
+                spectator.updateScoreboard();
             }
-            title = translatePlaceholders(player, title);
-            board.updateTitle(title.replaceAll("%score%", Integer.toString(generator.score))
-                    .replaceAll("%time%", generator.time)
-                    .replaceAll("%highscore%", rank != null ? rank.toString() : "0")
-                    .replaceAll("%topscore%", top != null ? top.toString() : "0")
-                    .replaceAll("%topplayer%", highscore != null && highscore.name != null ? highscore.name : "N/A"));
-            board.updateLines(list);
         }
     }
 
+    /**
+     * Gets the last rendered scoreboard title, without PlaceholderAPI placeholders
+     *
+     * @return the title, or null if the scoreboard hasn't been rendered yet
+     */
+    @Nullable String getScoreboardTitle() {
+        return scoreboardTitle;
+    }
+
+    /**
+     * Gets the last rendered scoreboard lines, without PlaceholderAPI placeholders
+     *
+     * @return the lines, or null if the scoreboard hasn't been rendered yet
+     */
+    @Nullable List<String> getScoreboardLines() {
+        return scoreboardLines;
+    }
+
     private String translatePlaceholders(Player player, String string) {
         if (WITP.getPlaceholderHook() == null) {
             return string;
@@ -174,7 +224,7 @@ public class ParkourPlayer extends ParkourUser {
      */
     public Material randomMaterial() {
         if (possibleStyle == null) {
-            setStyle(Option.DEFAULT_STYLE);
+            setStyle(Option.get().defaultStyle);
             return randomMaterial();
         }
         return possibleStyle.get(ThreadLocalRandom.current().nextInt(possibleStyle.size()));
@@ -208,14 +258,7 @@ public class ParkourPlayer extends ParkourUser {
             diff = diff.substring(0, 3);
         }
         highScoreDifficulty = diff;
-        if (scoreMap.get(uuid) == null) {
-            scoreMap.put(uuid, new Highscore(player.getName(), highScoreTime, diff));
-        } else {
-            scoreMap.get(uuid).time = highScoreTime;
-            scoreMap.get(uuid).diff = diff;
-        }
-        highScores.put(uuid, score);
-        highScores = Util.sortByValue(highScores);
+        getLeaderboard().update(uuid, score, new Highscore(name, highScoreTime, diff));
     }
 
     /**
@@ -260,7 +303,7 @@ public class ParkourPlayer extends ParkourUser {
                 styling.build();
             }
         });
-        List<Integer> possible = Option.POSSIBLE_LEADS;
+        List<Integer> possible = Option.get().possibleLeads;
         InventoryBuilder.DynamicInventory dynamicLead = new InventoryBuilder.DynamicInventory(possible.size(), 1);
         builder.setItem(dynamic.next(), config.getFromItemData(locale, "options.lead", Integer.toString(blockLead)), (t, e) -> {
             if (checkOptions("lead", "witp.lead")) {
@@ -301,22 +344,20 @@ public class ParkourPlayer extends ParkourUser {
                 difficultyMenu();
             }
         });
-        String particlesString = Boolean.toString(useParticles);
-        item = config.getFromItemData(locale, "options.particles", normalizeBoolean(Util.colorBoolean(particlesString)));
+        item = config.getFromItemData(locale, "options.particles", normalizeBoolean(useParticles));
         item.setType(useParticles ? Material.GREEN_WOOL : Material.RED_WOOL);
         builder.setItem(dynamic.next(), item, (t2, e2) -> {
             if (checkOptions("particles", "witp.particles")) {
                 useParticles = !useParticles;
-                sendTranslated("selected-particles", normalizeBoolean(Util.colorBoolean(Util.reverseBoolean(particlesString))));
+                sendTranslated("selected-particles", normalizeBoolean(useParticles));
                 menu();
             }
         });
-        String scoreboardString = Boolean.toString(showScoreboard);
-        item = config.getFromItemData(locale, "options.scoreboard", normalizeBoolean(Util.colorBoolean(scoreboardString)));
+        item = config.getFromItemData(locale, "options.scoreboard", normalizeBoolean(showScoreboard));
         item.setType(showScoreboard ? Material.GREEN_WOOL : Material.RED_WOOL);
         builder.setItem(dynamic.next(), item, (t2, e2) -> {
             if (checkOptions("scoreboard", "witp.scoreboard")) {
-                if (Option.SCOREBOARD) {
+                if (Option.get().scoreboard) {
                     showScoreboard = !showScoreboard;
                     if (showScoreboard) {
                         board = new FastBoard(player);
@@ -324,33 +365,30 @@ public class ParkourPlayer extends ParkourUser {
                     } else {
                         board.delete();
                     }
-                    sendTranslated("selected-scoreboard", normalizeBoolean(Util.colorBoolean(Util.reverseBoolean(scoreboardString))));
+                    sendTranslated("selected-scoreboard", normalizeBoolean(showScoreboard));
                     menu();
                 } else {
-                    sendTranslated("cant-do");
+                    sendTranslated(MessageCatalog.CANT_DO);
                 }
             }
         });
-        String deathString = Boolean.toString(showDeathMsg);
-        item = config.getFromItemData(locale, "options.death-msg", normalizeBoolean(Util.colorBoolean(deathString)));
+        item = config.getFromItemData(locale, "options.death-msg", normalizeBoolean(showDeathMsg));
         item.setType(showDeathMsg ? Material.GREEN_WOOL : Material.RED_WOOL);
         builder.setItem(dynamic.next(), item, (t2, e2) -> {
             if (checkOptions("death-msg", "witp.fall")) {
                 showDeathMsg = !showDeathMsg;
-                sendTranslated("selected-fall-message", normalizeBoolean(Util.colorBoolean(Util.reverseBoolean(deathString))));
+                sendTranslated("selected-fall-message", normalizeBoolean(showDeathMsg));
                 menu();
             }
         });
-        String specialString = Boolean.toString(useSpecial);
-        item = config.getFromItemData(locale, "options.special", normalizeBoolean(Util.colorBoolean(specialString)));
+        item = config.getFromItemData(locale, "options.special", normalizeBoolean(useSpecial));
         item.setType(useSpecial ? Material.GREEN_WOOL : Material.RED_WOOL);
         builder.setItem(dynamic.next(), item, (t2, e2) -> {
             if (checkOptions("special", "witp.special")) {
                 askReset("special");
             }
         });
-        String structuresString = Boolean.toString(useStructure);
-        item = config.getFromItemData(locale, "options.structure", normalizeBoolean(Util.colorBoolean(structuresString)));
+        item = config.getFromItemData(locale, "options.structure", normalizeBoolean(useStructure));
         item.setType(useStructure ? Material.GREEN_WOOL : Material.RED_WOOL);
         builder.setItem(dynamic.next(), item, (t2, e2) -> {
             if (checkOptions("structure", "witp.structures")) {
@@ -363,9 +401,9 @@ public class ParkourPlayer extends ParkourUser {
                 gamemode();
             }
         });
-        Integer score = highScores.get(uuid);
+        Integer score = getHighScoreValue(uuid);
         builder.setItem(19, WITP.getConfiguration().getFromItemData(locale, "options.leaderboard",
-                getTranslated("your-rank", Integer.toString(getRank(uuid)),
+                getTranslated(MessageCatalog.YOUR_RANK, Integer.toString(getRank(uuid)),
                 Integer.toString(score == null ? 0 : score))), (t2, e2) -> {
             if (checkOptions("leaderboard", "witp.leaderboard")) {
                 leaderboard(this, player, 1);
@@ -374,7 +412,7 @@ public class ParkourPlayer extends ParkourUser {
         });
         builder.setItem(22, WITP.getConfiguration().getFromItemData(locale, "options.language", locale), (t2, e2) -> {
             if (checkOptions("language", "witp.language")) {
-                List<String> langs = Option.LANGUAGES;
+                List<String> langs = Option.get().languages;
                 InventoryBuilder.DynamicInventory dynamic1 = new InventoryBuilder.DynamicInventory(langs.size(), 1);
                 for (String langName : langs) {
                     language.setItem(dynamic1.next(), new ItemBuilder(Material.PAPER, "&c" + langName).build(), (t3, e3) -> {
@@ -390,7 +428,7 @@ public class ParkourPlayer extends ParkourUser {
         builder.setItem(26, WITP.getConfiguration().getFromItemData(locale, "general.quit"), (t2, e2) -> {
             player.closeInventory();
             try {
-                sendTranslated("left");
+                sendTranslated(MessageCatalog.LEFT);
                 ParkourPlayer.unregister(this, true, true, true);
             } catch (IOException | InvalidStatementException ex) {
                 ex.printStackTrace();
@@ -407,8 +445,7 @@ public class ParkourPlayer extends ParkourUser {
         ItemStack close = config.getFromItemData(locale, "general.close");
 
         InventoryBuilder.DynamicInventory dynamic1 = new InventoryBuilder.DynamicInventory(5, 1);
-        String difficultyString = Boolean.toString(useDifficulty);
-        ItemStack diffSwitchItem = config.getFromItemData(locale, "options.difficulty-switch", normalizeBoolean(Util.colorBoolean(difficultyString)));
+        ItemStack diffSwitchItem = config.getFromItemData(locale, "options.difficulty-switch", normalizeBoolean(useDifficulty));
         diffSwitchItem.setType(useDifficulty ? Material.GREEN_WOOL : Material.RED_WOOL);
         int diffSlot = dynamic1.next();
         difficulty.setItem(diffSlot, diffSwitchItem, (t3, e3) -> {
@@ -432,7 +469,7 @@ public class ParkourPlayer extends ParkourUser {
         }
         sendTranslated("confirm");
         ComponentBuilder builder = new ComponentBuilder()
-                .append(Util.color("&a&l" + getTranslated("true").toUpperCase()))
+                .append(Util.color("&a&l" + getTranslated(MessageCatalog.TRUE).toUpperCase()))
                 .event(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/witp askreset " + item + " true"))
                 .append(Util.color(" &8| " + getTranslated("confirm-click")));
         player.spigot().sendMessage(builder.create());
@@ -443,12 +480,12 @@ public class ParkourPlayer extends ParkourUser {
         switch (item) {
             case "structure":
                 useStructure = !useStructure;
-                sendTranslated("selected-structures", normalizeBoolean(Util.colorBoolean(Boolean.toString(useStructure))));
+                sendTranslated("selected-structures", normalizeBoolean(useStructure));
                 menu();
                 break;
             case "special":
                 useSpecial = !useSpecial;
-                sendTranslated("selected-special-blocks", normalizeBoolean(Util.colorBoolean(Boolean.toString(useSpecial))));
+                sendTranslated("selected-special-blocks", normalizeBoolean(useSpecial));
                 menu();
                 break;
             case "e-difficulty":
@@ -469,7 +506,7 @@ public class ParkourPlayer extends ParkourUser {
                 break;
             case "difficulty":
                 useDifficulty = !useDifficulty;
-                sendTranslated("selected-difficulty", normalizeBoolean(Util.colorBoolean(Util.reverseBoolean(Boolean.toString(useDifficulty)))));
+                sendTranslated("selected-difficulty", normalizeBoolean(!useDifficulty));
                 difficultyMenu();
                 break;
         }
@@ -497,7 +534,7 @@ public class ParkourPlayer extends ParkourUser {
     private boolean checkOptions(String option, @Nullable String perm) {
         boolean enabled = WITP.getConfiguration().getFile("items").getBoolean("items.options." + option + ".enabled");
         if (!enabled) {
-            sendTranslated("cant-do");
+            sendTranslated(MessageCatalog.CANT_DO);
             return false;
         } else {
             return checkPermission(perm);
@@ -509,76 +546,52 @@ public class ParkourPlayer extends ParkourUser {
     }
 
     /**
-     * Saves the player's data to their file
+     * Saves the player's data. The data is copied right away, but only written in the next flush of the
+     * {@link PlayerStore}, and only if it has changed.
+     *
+     * @param   async
+     *          False to write the data before returning
      */
     public void save(boolean async) {
-        Runnable runnable = () -> {
-            try {
-                if (Option.SQL) {
-                    Verbose.verbose("Writing player's data to SQL server");
-
-                    if (highScoreDifficulty == null) {
-                        calculateDifficultyScore();
-                    }
-                    if (highScoreDifficulty.length() > 3) {
-                        highScoreDifficulty = highScoreDifficulty.substring(0, 3);
-                    }
-
-                    UpdertStatement statement = new UpdertStatement(WITP.getDatabase(), Option.SQL_PREFIX + "players")
-                            .setDefault("uuid", uuid.toString()).setDefault("name", name)
-                            .setDefault("highscore", highScore).setDefault("hstime", highScoreTime)
-                            .setDefault("lang" , locale).setDefault("hsdiff", highScoreDifficulty)
-                            .setCondition("`uuid` = '" + uuid.toString() + "'");
-                    statement.query();
-                    statement = new UpdertStatement(WITP.getDatabase(), Option.SQL_PREFIX + "options")
-                            .setDefault("uuid", uuid.toString()).setDefault("time", time)
-                            .setDefault("style", style).setDefault("blockLead", blockLead)
-                            .setDefault("useParticles", useParticles).setDefault("useDifficulty", useDifficulty)
-                            .setDefault("useStructure", useStructure).setDefault("useSpecial", useSpecial)
-                            .setDefault("showFallMsg", showDeathMsg).setDefault("showScoreboard", showScoreboard)
-                            .setCondition("`uuid` = '" + uuid.toString() + "'"); // saves all options
-                    statement.query();
-                } else {
-                    if (!file.exists()) {
-                        File folder = new File(WITP.getInstance().getDataFolder() + "/players");
-                        if (!folder.exists()) {
-                            folder.mkdirs();
-                        }
-                        file.createNewFile();
-                    }
-                    FileWriter writer = new FileWriter(file);
-                    gson.toJson(ParkourPlayer.this, writer);
-                    writer.flush();
-                    writer.close();
-                }
-            } catch (IOException | InvalidStatementException ex) {
-                ex.printStackTrace();
-                Verbose.error("Error while trying to save the player's data..");
-            }
-        };
-        if (async) {
-            Tasks.asyncTask(runnable);
-        } else {
-            runnable.run();
+        if (highScoreDifficulty == null) {
+            calculateDifficultyScore();
+        }
+        if (highScoreDifficulty.length() > 3) {
+            highScoreDifficulty = highScoreDifficulty.substring(0, 3);
+        }
+        boolean staged = store.stage(PlayerRecord.of(this));
+        names.put(uuid, name);
+        if (!Option.get().sql && getHighScore(uuid) == null) { // new player, add them to the high score index
+            getLeaderboard().update(uuid, highScore, new Highscore(name, highScoreTime, highScoreDifficulty));
+        }
+        if (staged && !async) {
+            store.flush();
         }
     }
 
+    /**
+     * Gets the store which writes the data of players
+     *
+     * @return the store
+     */
+    public static PlayerStore getStore() {
+        return store;
+    }
+
     /**
      * Saves the current game of the player
      */
     public void saveGame() {
-        if (Option.GAMELOGS && Option.SQL && generator.score > 0) {
-            InsertStatement statement = new InsertStatement(WITP.getDatabase(), Option.SQL_PREFIX + "game-history")
-                    .setValue("code", Util.randomOID()).setValue("uuid", uuid.toString())
-                    .setValue("name", player.getName()).setValue("score", generator.score)
-                    .setValue("hstime", generator.time).setValue("scoreDiff", calculateDifficultyScore());
-            try {
-                statement.query();
-            } catch (InvalidStatementException ex) {
-                ex.printStackTrace();
-                Verbose.error("Error while saving game");
+        if (generator.score > 0) {
+            Highscore run = new Highscore(name, generator.time, calculateDifficultyScore());
+            for (PeriodLeaderboard board : getPeriodLeaderboards()) {
+                board.update(uuid, generator.score, run);
             }
         }
+        GameLogger logger = WITP.getGameLogger();
+        if (logger != null && generator.score > 0) {
+            logger.log(uuid, player.getName(), generator.score, generator.time, generator.getDuration(), calculateDifficultyScore());
+        }
     }
 
     /**
@@ -613,15 +626,16 @@ public class ParkourPlayer extends ParkourUser {
      * @return the high score of the player
      */
     public static @Nullable Integer getHighScoreValue(@NotNull UUID player) {
-        return highScores.get(player);
+        return getLeaderboard().getScore(player);
     }
 
     public static @Nullable String getHighScoreTime(@NotNull UUID player) {
-        return scoreMap.get(player).time;
+        Highscore highscore = getHighScore(player);
+        return highscore != null ? highscore.time : null;
     }
 
     public static @Nullable Highscore getHighScore(@NotNull UUID player) {
-        return scoreMap.get(player);
+        return getLeaderboard().getHighscore(player);
     }
 
 
@@ -635,17 +649,12 @@ public class ParkourPlayer extends ParkourUser {
      * @return the player at that place
      */
     public static @Nullable UUID getAtPlace(int place) {
-        List<UUID> scores = new ArrayList<>(highScores.keySet());
-        place--;
-        if (scores.size() > place) {
-            return scores.get(place);
-        }
-        return null;
+        return getLeaderboard().getAtPlace(place);
     }
 
     /**
-     * Registers a player
-     * Doesn't use async reading because the system immediately needs the data.
+     * Registers a player. If their data hasn't been preloaded, this waits for it to be read,
+     * so {@link #register(Player, Consumer)} should be used on the main thread.
      *
      * @param   player
      *          The player
@@ -654,124 +663,133 @@ public class ParkourPlayer extends ParkourUser {
      *          Thrown if the reader fails or the getting fails
      */
     public static @Nullable ParkourPlayer register(@NotNull Player player) throws IOException, SQLException {
-        if (!Option.JOINING) {
+        if (!Option.get().joining) {
             player.sendMessage(Util.color("&c&l(!) &7Parkour is currently disabled. Try again later."));
             return null;
         }
+        ParkourPlayer registered = registry.getPlayer(player.getUniqueId());
+        if (registered != null) { // creating a new instance would replace the registered user
+            JOIN_COUNT++;
+            return registered;
+        }
         return register(new ParkourPlayer(player));
     }
 
     /**
-     * Registers a player
-     * Doesn't use async reading because the system immediately needs the data.
+     * Registers a player once their data has been read, without blocking.
+     * If the data has been preloaded, the player is registered right away.
+     * Registering a player who is already registered, or who is still being registered, does nothing.
+     *
+     * @param   player
+     *          The player
+     *
+     * @param   consumer
+     *          What to do with the registered player, on the main thread
+     */
+    public static void register(@NotNull Player player, @Nullable Consumer<ParkourPlayer> consumer) {
+        if (!Option.get().joining) {
+            player.sendMessage(Util.color("&c&l(!) &7Parkour is currently disabled. Try again later."));
+            return;
+        }
+        UUID uuid = player.getUniqueId();
+        if (registry.getPlayer(uuid) != null || !registering.add(uuid)) { // e.g. clicking join twice
+            Verbose.verbose("Ignored registering " + player.getName() + ", who is already (being) registered");
+            return;
+        }
+        CompletableFuture<PlayerRecord> future = preloader.get(uuid);
+        if (future.isDone()) {
+            complete(player, future, consumer);
+            return;
+        }
+        future.whenComplete((record, throwable) -> {
+            if (WITP.getInstance().isEnabled()) {
+                Tasks.syncTask(() -> complete(player, future, consumer));
+            } else {
+                registering.remove(uuid);
+            }
+        });
+    }
+
+    private static void complete(Player player, CompletableFuture<PlayerRecord> future, @Nullable Consumer<ParkourPlayer> consumer) {
+        registering.remove(player.getUniqueId());
+        if (!player.isOnline() || registry.getPlayer(player.getUniqueId()) != null) { // registered in the meantime, e.g. by the API
+            return;
+        }
+        try {
+            ParkourPlayer pp = register(new ParkourPlayer(player), future.join());
+            if (consumer != null) {
+                consumer.accept(pp);
+            }
+        } catch (CompletionException ex) {
+            ex.printStackTrace();
+            Verbose.error("Something went wrong while trying to fetch a player's (" + player.getName() + ") data");
+        }
+    }
+
+    /**
+     * Registers a player. If their data hasn't been preloaded, this waits for it to be read.
      *
      * @param   pp
      *          The player
      *
+     * @return the registered player, which is the player that was already registered if there is one
+     *
      * @throws  IOException
      *          Thrown if the reader fails or the getting fails
      */
     public static ParkourPlayer register(@NotNull ParkourPlayer pp) throws IOException, SQLException {
-        if (players.get(pp.player) == null) {
-            UUID uuid = pp.getPlayer().getUniqueId();
-            if (!Option.SQL) {
-                File data = new File(WITP.getInstance().getDataFolder() + "/players/" + uuid + ".json");
-                if (data.exists()) {
-                    Verbose.verbose("Reading player data..");
-                    FileReader reader = new FileReader(data);
-                    ParkourPlayer from = gson.fromJson(reader, ParkourPlayer.class);
-                    if (from.useParticles == null) { // outdated file format
-                        from.useParticles = true;
-                    }
-                    if (from.showDeathMsg == null) {
-                        from.showDeathMsg = true;
-                    }
-                    if (from.useSpecial == null) {
-                        from.useSpecial = true;
-                    }
-                    if (from.useStructure == null) {
-                        from.useStructure = true;
-                    }
-                    if (from.showScoreboard == null) {
-                        from.showScoreboard = true;
-                    }
-                    if (from.highScoreTime == null) {
-                        from.highScoreTime = "0.0s";
-                    }
-                    if (from.difficulty == 0) {
-                        from.difficulty = 0.5;
-                    }
-                    if (from.blockLead < 1) {
-                        from.blockLead = 4;
-                    }
-                    if (from.lang == null) {
-                        from.lang = Option.DEFAULT_LANG;
-                    }
-                    if (from.highScoreDifficulty == null) {
-                        from.highScoreDifficulty = "?";
-                    }
-                    pp.setDefaults(from.highScore, from.time, from.style, from.highScoreTime, from.lang, from.blockLead,
-                            from.useParticles, from.useDifficulty, from.useStructure, from.useSpecial, from.showDeathMsg, from.showScoreboard, from.highScoreDifficulty);
-                    pp.saveStats();
-                    players.put(pp.player, pp);
-                    reader.close();
-                } else {
-                    Verbose.verbose("Setting new player data..");
-                    pp.setDefaults(0, "Day", WITP.getConfiguration().getString("config", "styles.default"),
-                            "0.0s", Option.DEFAULT_LANG,
-                            4, true, true, true, true, true, true, "?");
-                    players.put(pp.player, pp);
-                    pp.saveStats();
-                }
-            } else {
-                SelectStatement select = new SelectStatement(WITP.getDatabase(),Option.SQL_PREFIX + "players")
-                        .addColumns("`uuid`", "`name`", "`highscore`", "`hstime`", "`hsdiff`").addCondition("`uuid` = '" + uuid + "'");
-                HashMap<String, List<Object>> map = select.fetch();
-                List<Object> objects = map != null ? map.get(uuid.toString()) : null;
-                String highScoreTime;
-                String highScoreDifficulty;
-                int highscore;
-                if (objects != null) {
-                    highscore = Integer.parseInt((String) objects.get(1));
-                    highScoreTime = (String) objects.get(2);
-                    highScoreDifficulty = (String) objects.get(3);
-                } else {
-                    pp.setDefaults(0, "Day", WITP.getConfiguration().getString("config", "styles.default"),
-                            "0.0s", Option.DEFAULT_LANG, 4,
-                            true, true, true, true, true, true, "?");
-                    players.put(pp.player, pp);
-                    pp.saveStats();
-                    return pp;
-                }
-
-                SelectStatement options = new SelectStatement(WITP.getDatabase(),Option.SQL_PREFIX + "options")
-                        .addColumns("uuid", "time", "style", "blockLead", "useParticles", "useDifficulty", "useStructure",
-                                "useSpecial", "showFallMsg", "showScoreboard").addCondition("uuid = '" + uuid + "'");
-                map = options.fetch();
-                objects = map != null ? map.get(uuid.toString()) : null;
-                if (objects != null) {
-                    pp.setDefaults(highscore, (String) objects.get(0), (String) objects.get(1), highScoreTime,
-                            Option.DEFAULT_LANG,
-                            Integer.parseInt((String) objects.get(2)), translateSqlBoolean((String) objects.get(3)),
-                            translateSqlBoolean((String) objects.get(4)), translateSqlBoolean((String) objects.get(5)),
-                            translateSqlBoolean((String) objects.get(6)), translateSqlBoolean((String) objects.get(7)),
-                            translateSqlBoolean((String) objects.get(8)), highScoreDifficulty);
-                } else {
-                    pp.setDefaults(highscore, "Day", WITP.getConfiguration().getString("config", "styles.default"),
-                            highScoreTime, Option.DEFAULT_LANG, 4,
-                            true, true, true, true, true, true, "?");
-                    pp.saveStats();
-                }
-                players.put(pp.player, pp);
+        ParkourPlayer registered = registry.getPlayer(pp.uuid);
+        if (registered != null) {
+            JOIN_COUNT++;
+            return registered;
+        }
+        try {
+            return register(pp, preloader.get(pp.uuid).get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading player data", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
             }
-            return pp;
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
         }
-        JOIN_COUNT++;
+    }
+
+    // sets the data of a player, preferring data that hasn't been written yet over the stored data
+    private static ParkourPlayer register(ParkourPlayer pp, @Nullable PlayerRecord stored) {
+        ParkourPlayer registered = registry.getPlayer(pp.uuid);
+        if (registered != null) {
+            JOIN_COUNT++;
+            return registered;
+        }
+        getLeaderboard().track(pp.uuid);
+        PlayerRecord unwritten = store.getUnwritten(pp.uuid);
+        if (unwritten != null) { // joined again before their data was written, which is newer than the stored data
+            Verbose.verbose("Using unwritten player data..");
+            unwritten.apply(pp);
+        } else if (stored != null) {
+            Verbose.verbose("Reading player data..");
+            stored.apply(pp);
+            store.loaded(stored);
+        } else {
+            Verbose.verbose("Setting new player data..");
+            pp.setDefaults(0, "Day", WITP.getConfiguration().getString("config", "styles.default"),
+                    "0.0s", Option.get().defaultLang, 4, true, true, true, true, true, true, "?");
+        }
+        registry.addPlayer(pp);
+        pp.saveStats(); // only written if something has changed
         return pp;
     }
 
-    private static boolean translateSqlBoolean(String string) {
-        return string.equals("1");
+    /**
+     * Gets the preloader, which reads the data of players before they join
+     *
+     * @return the preloader
+     */
+    public static PlayerPreloader getPreloader() {
+        return preloader;
     }
 
     /**
@@ -782,12 +800,7 @@ public class ParkourPlayer extends ParkourUser {
      * @return the ParkourPlayer
      */
     public static @Nullable ParkourPlayer getPlayer(Player player) {
-        for (Player p : players.keySet()) {
-            if (p == player) {
-                return players.get(p);
-            }
-        }
-        return null;
+        return registry.getPlayer(player.getUniqueId());
     }
 
     /**
@@ -834,10 +847,10 @@ public class ParkourPlayer extends ParkourUser {
      * @param   value
      *          The value
      *
-     * @return true -> yes, false -> no
+     * @return true -> yes in green, false -> no in red
      */
-    public String normalizeBoolean(String value) {
-        return value.replaceAll("true", getTranslated("true")).replaceAll("false", getTranslated("false"));
+    public String normalizeBoolean(boolean value) {
+        return WITP.getConfiguration().getBooleanLabel(locale, value);
     }
 }
 
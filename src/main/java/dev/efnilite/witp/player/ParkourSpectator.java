@@ -1,20 +1,20 @@
 package dev.efnilite.witp.player;
 
 import dev.efnilite.witp.generator.ParkourGenerator;
-import dev.efnilite.witp.player.data.Highscore;
 import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.MessageCatalog;
 import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.config.Settings;
 import dev.efnilite.witp.util.sql.InvalidStatementException;
 import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.api.chat.TextComponent;
 import org.bukkit.GameMode;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Class for spectators
@@ -23,6 +23,11 @@ public class ParkourSpectator extends ParkourUser {
 
     protected final ParkourGenerator watching;
 
+    private static final long BAR_INTERVAL = 1000; // in ms
+    private long lastBar;
+    private BaseComponent[] bar; // the spectator bar in the locale of this spectator
+    private Settings barSettings; // the settings the bar was made with
+
     public ParkourSpectator(@NotNull ParkourUser player, @NotNull ParkourPlayer watching) {
         super(player.getPlayer());
         Verbose.verbose("New ParkourSpectator init " + this.player.getName());
@@ -39,53 +44,53 @@ public class ParkourSpectator extends ParkourUser {
             ParkourSpectator spectator = (ParkourSpectator) player;
             spectator.watching.removeSpectators(spectator);
         }
-        users.put(this.player.getName(), this);
+        registry.add(this); // unregistering the previous user removed this one as well
 
         this.watching = watching.getGenerator();
         this.player.setGameMode(GameMode.SPECTATOR);
         watching.getGenerator().addSpectator(this);
         this.player.teleport(watching.getLocation(), PlayerTeleportEvent.TeleportCause.PLUGIN);
-        sendTranslated("spectator");
+        sendTranslated(MessageCatalog.SPECTATOR);
+        watching.updateScoreboard(); // renders the scoreboard if nobody has seen it yet
+        updateScoreboard();
     }
 
     /**
      * Checks the distance between the person the spectator is watching and the spectator.
      * If the distance is more than 30 blocks, the player gets teleported back.
+     * Also sends the spectator bar, which lasts a few seconds, so it's only sent once every second.
      */
     public void checkDistance() {
-        if (watching.getPlayer().getLocation().distance(player.getLocation()) > 30) {
+        if (watching.getPlayer().getLocation().distanceSquared(player.getLocation()) > 30 * 30) {
             player.teleport(watching.getPlayer().getLocation(), PlayerTeleportEvent.TeleportCause.PLUGIN);
         }
-        this.player.spigot().sendMessage(ChatMessageType.ACTION_BAR, TextComponent.fromLegacyText(getTranslated("spectator-bar")));
+        long now = System.currentTimeMillis();
+        if (now - lastBar < BAR_INTERVAL) {
+            return;
+        }
+        lastBar = now;
+        Settings settings = Option.get();
+        if (bar == null || barSettings != settings) {
+            bar = TextComponent.fromLegacyText(getTranslated(MessageCatalog.SPECTATOR_BAR));
+            barSettings = settings;
+        }
+        this.player.spigot().sendMessage(ChatMessageType.ACTION_BAR, bar);
     }
 
+    /**
+     * Shows the scoreboard of the player that's being watched, as it was last rendered for them.
+     * Called by that player whenever their scoreboard changes.
+     */
     @Override
     public void updateScoreboard() {
-        if (Option.SCOREBOARD) {
-            board.updateTitle(Option.SCOREBOARD_TITLE);
-            List<String> list = new ArrayList<>();
-            List<String> lines = Option.SCOREBOARD_LINES;
-            if (lines == null) {
-                Verbose.error("Scoreboard lines are null! Check your config!");
-                return;
-            }
-            Integer rank = ParkourPlayer.getHighScoreValue(watching.getPlayer().uuid);
-            UUID one = ParkourPlayer.getAtPlace(1);
-            Integer top = 0;
-            Highscore highscore = null;
-            if (one != null) {
-                top = ParkourPlayer.getHighScoreValue(one);
-                highscore = scoreMap.get(one);
-            }
-            for (String s : lines) {
-                list.add(s.replaceAll("%score%", Integer.toString(watching.score))
-                        .replaceAll("%time%", watching.time)
-                        .replaceAll("%highscore%", rank != null ? rank.toString() : "0")
-                        .replaceAll("%topscore%", top != null ? top.toString() : "0")
-                        .replaceAll("%topplayer%", highscore != null && highscore.name != null ? highscore.name : "N/A"));
-            }
-            board.updateLines(list);
+        ParkourPlayer watched = watching.getPlayer();
+        String title = watched.getScoreboardTitle();
+        List<String> lines = watched.getScoreboardLines();
+        if (!Option.get().scoreboard || board == null || title == null || lines == null) {
+            return;
         }
+        board.updateTitle(title);
+        board.updateLines(lines);
     }
 
     public ParkourGenerator getWatching() {
@@ -1,19 +1,23 @@
 package dev.efnilite.witp.player;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import dev.efnilite.witp.WITP;
 import dev.efnilite.witp.api.gamemode.Gamemode;
 import dev.efnilite.witp.events.PlayerLeaveEvent;
-import dev.efnilite.witp.player.data.Highscore;
+import dev.efnilite.witp.player.data.Leaderboard;
+import dev.efnilite.witp.player.data.MemoryLeaderboard;
+import dev.efnilite.witp.player.data.NameCache;
+import dev.efnilite.witp.player.data.PeriodLeaderboard;
 import dev.efnilite.witp.player.data.PreviousData;
+import dev.efnilite.witp.player.data.SqlLeaderboard;
 import dev.efnilite.witp.util.Util;
 import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.MessageCatalog;
 import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.config.PlaceholderTemplate;
 import dev.efnilite.witp.util.fastboard.FastBoard;
 import dev.efnilite.witp.util.inventory.InventoryBuilder;
 import dev.efnilite.witp.util.sql.InvalidStatementException;
-import dev.efnilite.witp.util.sql.SelectStatement;
+import dev.efnilite.witp.util.task.Tasks;
 import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.ComponentBuilder;
@@ -24,8 +28,6 @@ import org.bukkit.event.player.PlayerTeleportEvent;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
@@ -42,11 +44,10 @@ public abstract class ParkourUser {
     public static int JOIN_COUNT;
 
     private static final HashMap<String, PreviousData> previousData = new HashMap<>();
-    protected static final HashMap<String, ParkourUser> users = new HashMap<>();
-    protected static final HashMap<Player, ParkourPlayer> players = new HashMap<>();
-    protected static HashMap<UUID, Highscore> scoreMap = new LinkedHashMap<>();
-    protected static HashMap<UUID, Integer> highScores = new LinkedHashMap<>();
-    protected static final Gson gson = new GsonBuilder().disableHtmlEscaping().excludeFieldsWithoutExposeAnnotation().create();
+    protected static final UserRegistry registry = new UserRegistry();
+    protected static Leaderboard leaderboard;
+    protected static final NameCache names = new NameCache();
+    protected static final Map<PeriodLeaderboard.Period, PeriodLeaderboard> periodLeaderboards = new EnumMap<>(PeriodLeaderboard.Period.class);
 
     public ParkourUser(@NotNull Player player) {
         this.player = player;
@@ -54,8 +55,9 @@ public abstract class ParkourUser {
             previousData.put(player.getName(), new PreviousData(player));
         }
         this.board = new FastBoard(player);
+        names.put(player.getUniqueId(), player.getName());
         // remove duplicates
-        users.put(player.getName(), this);
+        registry.add(this);
     }
 
     /**
@@ -68,7 +70,9 @@ public abstract class ParkourUser {
      *          When saving the player's file goes wrong
      */
     public static void unregister(@NotNull ParkourUser player, boolean sendBack, boolean kickIfBungee, boolean saveAsync) throws IOException, InvalidStatementException {
-        new PlayerLeaveEvent(player).call();
+        if (PlayerLeaveEvent.HOOK.isListened()) {
+            PlayerLeaveEvent.HOOK.call(new PlayerLeaveEvent(player));
+        }
         Player pl = player.getPlayer();
         if (!player.getBoard().isDeleted()) {
             player.getBoard().delete();
@@ -80,24 +84,25 @@ public abstract class ParkourUser {
                 WITP.getDivider().leave(pp);
             }
             pp.save(saveAsync);
-            players.remove(pl);
+            ParkourPlayer.getStore().release(pp.uuid);
+            if (Option.get().bungeecord && saveAsync && WITP.getInstance().isEnabled()) {
+                // the player may join another server right away, which reads their data
+                Tasks.asyncTask(() -> ParkourPlayer.getStore().flush());
+            }
+            registry.removePlayer(pl);
+            getLeaderboard().untrack(pp.uuid);
             for (ParkourSpectator spectator : pp.getGenerator().spectators.values()) {
-                try {
-                    ParkourPlayer.register(spectator.getPlayer());
-                } catch (IOException | SQLException ex) {
-                    ex.printStackTrace();
-                    Verbose.error("Error while trying to register player" + player.getPlayer().getName());
-                }
+                ParkourPlayer.register(spectator.getPlayer(), null);
             }
             pp.getGenerator().spectators.clear();
         } else if (player instanceof ParkourSpectator) {
             ParkourSpectator spectator = (ParkourSpectator) player;
             spectator.watching.removeSpectators(spectator);
         }
-        users.remove(pl.getName());
+        registry.remove(pl);
 
         if (sendBack) {
-            if (Option.BUNGEECORD && kickIfBungee) {
+            if (Option.get().bungeecord && kickIfBungee) {
                 Util.sendPlayer(pl, WITP.getConfiguration().getString("config", "bungeecord.return_server"));
             } else {
                 PreviousData data = previousData.get(pl.getName());
@@ -110,10 +115,10 @@ public abstract class ParkourUser {
     }
 
     public boolean checkPermission(String perm) {
-        if (Option.PERMISSIONS) {
+        if (Option.get().permissions) {
             boolean check = player.hasPermission(perm);
             if (!check) {
-                sendTranslated("cant-do");
+                sendTranslated(MessageCatalog.CANT_DO);
             }
             return check;
         }
@@ -143,12 +148,7 @@ public abstract class ParkourUser {
      * @return the associated {@link ParkourUser}
      */
     public static @Nullable ParkourUser getUser(@NotNull Player player) {
-        for (ParkourUser user : users.values()) {
-            if (user.player.getUniqueId() == player.getUniqueId()) {
-                return user;
-            }
-        }
-        return null;
+        return registry.getUser(player);
     }
 
     /**
@@ -157,60 +157,75 @@ public abstract class ParkourUser {
     public abstract void updateScoreboard();
 
     /**
-     * Gets the highscores of all player
-     *
-     * @throws  IOException
-     *          When creating the file reader goes wrong
+     * Initializes the high scores
      */
-    public static void fetchHighScores() throws IOException, SQLException {
-        if (Option.SQL) {
-            SelectStatement per = new SelectStatement(WITP.getDatabase(), Option.SQL_PREFIX + "players").addColumns("uuid", "name", "highscore", "hstime", "hsdiff");
-            HashMap<String, List<Object>> stats = per.fetch();
-            if (stats != null && stats.size() > 0) {
-                for (String string : stats.keySet()) {
-                    List<Object> values = stats.get(string);
-                    UUID uuid = UUID.fromString(string);
-                    String name = (String) values.get(0);
-                    int highScore = Integer.parseInt((String) values.get(1));
-                    String highScoreTime = (String) values.get(2);
-                    String highScoreDiff = (String) values.get(3);
-                    highScores.put(uuid, highScore);
-                    scoreMap.put(uuid, new Highscore(name, highScoreTime, highScoreDiff));
-                }
-            }
-        } else {
-            File folder = new File(WITP.getInstance().getDataFolder() + "/players/");
-            if (!(folder.exists())) {
-                folder.mkdirs();
-                return;
+    public static void initHighScores() {
+        if (leaderboard == null) {
+            leaderboard = Option.get().sql ? new SqlLeaderboard(WITP.getDatabase()) : new MemoryLeaderboard();
+            try {
+                leaderboard.init();
+            } catch (IOException | SQLException ex) {
+                ex.printStackTrace();
+                Verbose.error("Error while trying to fetch the high scores!");
             }
-            for (File file : folder.listFiles()) {
-                FileReader reader = new FileReader(file);
-                ParkourPlayer from = gson.fromJson(reader, ParkourPlayer.class);
-                String name = file.getName();
-                UUID uuid = UUID.fromString(name.substring(0, name.lastIndexOf('.')));
-                if (from.highScoreDifficulty == null) {
-                    from.highScoreDifficulty = "?";
+
+            for (PeriodLeaderboard.Period period : PeriodLeaderboard.Period.values()) {
+                PeriodLeaderboard board = new PeriodLeaderboard(period);
+                try {
+                    board.init();
+                } catch (IOException | SQLException ex) {
+                    ex.printStackTrace();
+                    Verbose.error("Error while trying to fetch the " + period.getName() + " high scores!");
                 }
-                highScores.put(uuid, from.highScore);
-                scoreMap.put(uuid, new Highscore(from.name, from.highScoreTime, from.highScoreDifficulty));
+                periodLeaderboards.put(period, board);
             }
+            Tasks.asyncRepeat(ParkourUser::saveLeaderboards, 60 * 20);
         }
     }
 
     /**
-     * Initializes the high scores
+     * Saves the leaderboards
      */
-    public static void initHighScores() {
-        if (highScores.isEmpty()) {
-            try {
-                fetchHighScores();
-            } catch (IOException | SQLException ex) {
-                ex.printStackTrace();
-                Verbose.error("Error while trying to fetch the high scores!");
-            }
-            highScores = Util.sortByValue(highScores);
+    public static void saveLeaderboards() {
+        if (leaderboard != null) {
+            leaderboard.save();
         }
+        for (PeriodLeaderboard board : periodLeaderboards.values()) {
+            board.save();
+        }
+    }
+
+    /**
+     * Gets the leaderboard
+     *
+     * @return the leaderboard
+     */
+    public static Leaderboard getLeaderboard() {
+        initHighScores();
+        return leaderboard;
+    }
+
+    /**
+     * Gets the leaderboard of a period
+     *
+     * @param   period
+     *          The period, or null for the all-time leaderboard
+     *
+     * @return the leaderboard
+     */
+    public static Leaderboard getLeaderboard(@Nullable PeriodLeaderboard.Period period) {
+        initHighScores();
+        return period == null ? leaderboard : periodLeaderboards.get(period);
+    }
+
+    /**
+     * Gets the daily, weekly and monthly leaderboards
+     *
+     * @return the leaderboards
+     */
+    public static Collection<PeriodLeaderboard> getPeriodLeaderboards() {
+        initHighScores();
+        return periodLeaderboards.values();
     }
 
     /**
@@ -251,90 +266,46 @@ public abstract class ParkourUser {
      * Shows the leaderboard (as a chat message)
      */
     public static void leaderboard(@Nullable ParkourUser user, Player player, int page) {
-        initHighScores();
+        leaderboard(user, player, null, page);
+    }
 
-        int lowest = page * 10;
-        int highest = (page - 1) * 10;
+    /**
+     * Shows the leaderboard of a period (as a chat message)
+     *
+     * @param   period
+     *          The period, or null for the all-time leaderboard
+     */
+    public static void leaderboard(@Nullable ParkourUser user, Player player, @Nullable PeriodLeaderboard.Period period, int page) {
         if (page < 1) {
             return;
         }
-        if (page > 1 && highest > highScores.size()) {
+        String locale = user != null ? user.locale : Option.get().defaultLang;
+        Leaderboard board = getLeaderboard(period);
+        Leaderboard.Snapshot snapshot = board.getSnapshot();
+        LeaderboardRenderer.Rendered cached = LeaderboardRenderer.getCached(locale, period, page, snapshot.version);
+        if (cached != null) {
+            cached.send(player, snapshot.get(player.getUniqueId()));
             return;
         }
-
-        HashMap<UUID, Integer> sorted = Util.sortByValue(highScores);
-        highScores = sorted;
-        List<UUID> uuids = new ArrayList<>(sorted.keySet());
-
-        sendLeaderboard(user, player, "divider");
-        for (int i = highest; i < lowest; i++) {
-            if (i == uuids.size()) {
-                break;
-            }
-            @Nullable UUID uuid = uuids.get(i);
-            if (uuid == null) {
-                continue;
-            }
-            @Nullable Highscore highscore = scoreMap.get(uuid);
-            if (highscore == null) {
-                continue;
+        board.getPage(page, player.getUniqueId(), result -> {
+            if (!player.isOnline() || (page > 1 && result.entries.isEmpty())) {
+                return;
             }
-            @Nullable String name = highscore.name;
-            if (name == null || name.equals("null")) {
-                name = Bukkit.getOfflinePlayer(uuid).getName();
-                if (name == null || name.equals("null")) {
-                    continue;
+            LeaderboardRenderer.render(locale, period, result, rendered -> {
+                if (player.isOnline()) {
+                    rendered.send(player, result.viewer);
                 }
-            }
-            @Nullable String time = highscore.time;
-            if (time == null || time.equals("null")) {
-                time = "N/A";
-            }
-            @Nullable String diff = highscore.diff;
-            if (diff == null || diff.equals("null")) {
-                diff = "?";
-            }
-            int rank = i + 1;
-            player.sendMessage(Util.color("&a#" + rank + ". &7" + name + " &f- " + highScores.get(uuid) +
-                    " &7(" + time + ", " + getLeaderboard(user, "difficulty") + ": " + diff + "/1.0)"));
-            // #1. Efnilite - 354 (3m 12s, difficulty: 0.6/1.0)
-        }
-
-        UUID uuid = player.getUniqueId();
-        Integer person = highScores.get(uuid);
-        sendLeaderboard(user, player, "your-rank", Integer.toString(ParkourUser.getRank(uuid)), person != null ? person.toString() : "0");
-        player.sendMessage("");
-
-        int prevPage = page - 1;
-        int nextPage = page + 1;
-        BaseComponent[] previous = new ComponentBuilder()
-                .append(getLeaderboard(user, "previous-page"))
-                .event(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/witp leaderboard " + prevPage))
-                .append(" | ").color(net.md_5.bungee.api.ChatColor.GRAY)
-                .event((ClickEvent) null)
-                .append(getLeaderboard(user, "next-page"))
-                .event(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/witp leaderboard " + nextPage))
-                .create();
-
-        player.spigot().sendMessage(previous);
-        sendLeaderboard(user, player, "divider");
-    }
-
-    // to avoid repeating the same code every time
-    private static String getLeaderboard(@Nullable ParkourUser user, String path) {
-        if (user == null) {
-            return Util.getDefaultLang(path);
-        }
-        return user.getTranslated(path);
+            });
+        });
     }
 
-    // to avoid repeating the same code every time
-    private static void sendLeaderboard(@Nullable ParkourUser user, Player player, String path, String... replaceable) {
-        if (user == null) {
-            Util.sendDefaultLang(player, path, replaceable);
-            return;
-        }
-        user.sendTranslated(path, replaceable);
+    /**
+     * Gets the names of players, which are used when the name in a high score is missing
+     *
+     * @return the names
+     */
+    public static NameCache getNames() {
+        return names;
     }
 
     /**
@@ -346,7 +317,7 @@ public abstract class ParkourUser {
      * @return the rank (starts at 1.)
      */
     protected static int getRank(UUID player) {
-        return new ArrayList<>(highScores.keySet()).indexOf(player) + 1;
+        return getLeaderboard().getRank(player);
     }
 
     /**
@@ -359,13 +330,44 @@ public abstract class ParkourUser {
      *          What can be replaced (for example: %s to yes)
      */
     public void sendTranslated(String path, String... replaceable) {
-        path = "messages." + this.locale + "." + path;
-        String string = WITP.getConfiguration().getString("lang", path);
-        if (string == null) {
-            Verbose.error("Unknown path: " + path + " - try deleting the config");
+        sendTranslated(path, MessageCatalog.key(path), replaceable);
+    }
+
+    /**
+     * Same as {@link #sendTranslated(String, String...)}, but with the number of the path, see {@link MessageCatalog}
+     *
+     * @param   key
+     *          The number of the path (for example: {@link MessageCatalog#JOINED})
+     *
+     * @param   replaceable
+     *          What can be replaced
+     */
+    public void sendTranslated(int key, String... replaceable) {
+        sendTranslated(null, key, replaceable);
+    }
+
+    private void sendTranslated(@Nullable String path, int key, String[] replaceable) {
+        PlaceholderTemplate template = Option.get().messages.get(locale, key);
+        if (template == null) {
+            Verbose.error("Unknown path: messages." + locale + "." + (path != null ? path : MessageCatalog.getPath(key))
+                    + " - try deleting the config");
             return;
         }
-        send(replace(string, replaceable));
+        player.sendMessage(template.format(colorValues(replaceable)));
+    }
+
+    // the values used to be coloured along with the message, the message itself is already coloured
+    private static String[] colorValues(String[] values) {
+        String[] colored = values;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].indexOf('&') >= 0) {
+                if (colored == values) {
+                    colored = values.clone();
+                }
+                colored[i] = Util.color(values[i]);
+            }
+        }
+        return colored;
     }
 
     public String replace(String string, String... replaceable) {
@@ -387,21 +389,61 @@ public abstract class ParkourUser {
      * @return the coloured and replaced string
      */
     public String getTranslated(String path, String... replaceable) {
-        path = "messages." + locale + "." + path;
-        String string = WITP.getConfiguration().getString("lang", path);
-        if (string == null) {
-            Verbose.error("Custom language '" + locale + "' is missing a path: '" + path + "'. Please add this path to the language in lang.yml!");
+        return getTranslated(path, MessageCatalog.key(path), replaceable);
+    }
+
+    /**
+     * Same as {@link #getTranslated(String, String...)}, but with the number of the path, see {@link MessageCatalog}
+     *
+     * @param   key
+     *          The number of the path (for example: {@link MessageCatalog#TRUE})
+     *
+     * @param   replaceable
+     *          Things that can be replaced
+     *
+     * @return the coloured and replaced string
+     */
+    public String getTranslated(int key, String... replaceable) {
+        return getTranslated(null, key, replaceable);
+    }
+
+    private String getTranslated(@Nullable String path, int key, String[] replaceable) {
+        PlaceholderTemplate template = Option.get().messages.get(locale, key);
+        if (template == null) {
+            if (path == null) {
+                path = MessageCatalog.getPath(key);
+            }
+            Verbose.error("Custom language '" + locale + "' is missing a path: 'messages." + locale + "." + path + "'. Please add this path to the language in lang.yml!");
             return "";
         }
-        return replace(string, replaceable);
+        return template.format(replaceable);
     }
 
+    /**
+     * Gets all users
+     *
+     * @return an unmodifiable list of all users, which doesn't change while it's iterated
+     */
     public static List<ParkourUser> getUsers() {
-        return new ArrayList<>(users.values());
+        return registry.getUsers();
     }
 
+    /**
+     * Gets all players
+     *
+     * @return an unmodifiable list of all players, which doesn't change while it's iterated
+     */
     public static List<ParkourPlayer> getActivePlayers() {
-        return new ArrayList<>(players.values());
+        return registry.getPlayers();
+    }
+
+    /**
+     * Gets the registry of all users
+     *
+     * @return the registry
+     */
+    public static UserRegistry getRegistry() {
+        return registry;
     }
 
     /**
@@ -0,0 +1,171 @@
+package dev.efnilite.witp.player;
+
+import dev.efnilite.witp.generator.subarea.SubareaPoint;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every {@link ParkourUser} by UUID, so finding out whether a player is a user (which almost every event does)
+ * is a single lookup.
+ * <p>
+ * Users can also be found by name, and the subarea point of every player is kept here.
+ * Iterating over all users goes over a copy, which is only made again when someone joins or leaves.
+ * </p>
+ */
+public class UserRegistry {
+
+    private final Map<UUID, ParkourUser> users = new ConcurrentHashMap<>();
+    private final Map<UUID, ParkourPlayer> players = new ConcurrentHashMap<>();
+    private final Map<String, ParkourUser> names = new ConcurrentHashMap<>(); // by lowercase name
+    private final Map<UUID, SubareaPoint> points = new ConcurrentHashMap<>();
+
+    // copied again on every change, which is rare compared to iterating
+    private volatile List<ParkourUser> userSnapshot = Collections.emptyList();
+    private volatile List<ParkourPlayer> playerSnapshot = Collections.emptyList();
+
+    /**
+     * Adds a user, replacing the previous user of the same player
+     *
+     * @param   user
+     *          The user
+     */
+    public synchronized void add(@NotNull ParkourUser user) {
+        Player player = user.getPlayer();
+        users.put(player.getUniqueId(), user);
+        names.put(player.getName().toLowerCase(), user);
+        userSnapshot = Collections.unmodifiableList(new ArrayList<>(users.values()));
+    }
+
+    /**
+     * Adds a user as a player
+     *
+     * @param   player
+     *          The player
+     */
+    public synchronized void addPlayer(@NotNull ParkourPlayer player) {
+        players.put(player.getPlayer().getUniqueId(), player);
+        playerSnapshot = Collections.unmodifiableList(new ArrayList<>(players.values()));
+    }
+
+    /**
+     * Removes the user of a player
+     *
+     * @param   player
+     *          The player
+     */
+    public synchronized void remove(@NotNull Player player) {
+        users.remove(player.getUniqueId());
+        names.remove(player.getName().toLowerCase());
+        userSnapshot = Collections.unmodifiableList(new ArrayList<>(users.values()));
+    }
+
+    /**
+     * Removes the player of a player, but not their user
+     *
+     * @param   player
+     *          The player
+     */
+    public synchronized void removePlayer(@NotNull Player player) {
+        players.remove(player.getUniqueId());
+        playerSnapshot = Collections.unmodifiableList(new ArrayList<>(players.values()));
+    }
+
+    /**
+     * Gets the user of a player
+     *
+     * @param   player
+     *          The player
+     *
+     * @return the user, or null if they're not playing or spectating
+     */
+    public @Nullable ParkourUser getUser(@NotNull Player player) {
+        return users.get(player.getUniqueId());
+    }
+
+    /**
+     * Gets the user of a player
+     *
+     * @param   uuid
+     *          The uuid of the player
+     *
+     * @return the user, or null if they're not playing or spectating
+     */
+    public @Nullable ParkourUser getUser(@NotNull UUID uuid) {
+        return users.get(uuid);
+    }
+
+    /**
+     * Gets the user of a player by their name
+     *
+     * @param   name
+     *          The name of the player (not case sensitive)
+     *
+     * @return the user, or null if they're not playing or spectating
+     */
+    public @Nullable ParkourUser getUser(@NotNull String name) {
+        return names.get(name.toLowerCase());
+    }
+
+    /**
+     * Gets the player of a player
+     *
+     * @param   uuid
+     *          The uuid of the player
+     *
+     * @return the player, or null if they're not playing
+     */
+    public @Nullable ParkourPlayer getPlayer(@NotNull UUID uuid) {
+        return players.get(uuid);
+    }
+
+    /**
+     * Gets all users. Doesn't change when users join or leave while it's being iterated.
+     *
+     * @return all users
+     */
+    public List<ParkourUser> getUsers() {
+        return userSnapshot;
+    }
+
+    /**
+     * Gets all players. Doesn't change when players join or leave while it's being iterated.
+     *
+     * @return all players
+     */
+    public List<ParkourPlayer> getPlayers() {
+        return playerSnapshot;
+    }
+
+    /**
+     * Sets the subarea point of a player
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @param   point
+     *          The point, or null if they no longer have one
+     */
+    public void setPoint(@NotNull UUID uuid, @Nullable SubareaPoint point) {
+        if (point == null) {
+            points.remove(uuid);
+        } else {
+            points.put(uuid, point);
+        }
+    }
+
+    /**
+     * Gets the subarea point of a player
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @return the point, or null if they don't have one
+     */
+    public @Nullable SubareaPoint getPoint(@NotNull UUID uuid) {
+        return points.get(uuid);
+    }
+}
@@ -0,0 +1,304 @@
+package dev.efnilite.witp.player.data;
+
+import com.google.gson.Gson;
+import dev.efnilite.witp.WITP;
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.sql.Database;
+import dev.efnilite.witp.util.task.Tasks;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes finished runs to the game-history table.
+ * <p>
+ * Runs are put in a bounded queue, which is drained on an async task in JDBC batches. If the database can't be
+ * reached, the runs are written to a spill file and the database is tried again later, waiting longer after
+ * every failure. Once the database works again, the spill file is written to it as well.
+ * </p>
+ * <p>
+ * Codes are 14 characters and time-ordered: the first 8 are the time in ms (base 36), followed by 4 characters
+ * of the number of the server and a 2 character counter. Every server gets its number from the database once,
+ * so servers sharing the database never make the same code.
+ * </p>
+ */
+public class GameLogger {
+
+    /**
+     * The max amount of runs waiting to be written
+     */
+    private static final int QUEUE_SIZE = 10_000;
+    /**
+     * The max amount of runs per batch
+     */
+    private static final int BATCH_SIZE = 500;
+    /**
+     * The interval in ticks in which the queue is drained
+     */
+    private static final int DRAIN_INTERVAL = 2 * 20;
+    /**
+     * The max time (in ms) to wait before trying the database again
+     */
+    private static final long MAX_BACKOFF = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * The start of the time in codes, 2020-01-01
+     */
+    private static final long EPOCH = 1577836800000L;
+    /**
+     * The amount of codes per ms, two characters in base 36
+     */
+    private static final int COUNTER_SIZE = 36 * 36;
+    /**
+     * The amount of server numbers, four characters in base 36
+     */
+    private static final int NODE_SIZE = 36 * 36 * 36 * 36;
+
+    private int failures;
+    private long retryAt;
+    private BukkitTask task;
+    private final File spill;
+    private final File replaying; // the spill file while it's being written to the database
+    private final Database database;
+    private final BlockingQueue<Run> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong lastCode = new AtomicLong();
+    private final String node;
+    private final Gson gson = new Gson();
+    private final @Nullable GameStats stats;
+
+    public GameLogger(@NotNull Database database, @Nullable GameStats stats) {
+        this.database = database;
+        this.stats = stats;
+        this.queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        this.spill = new File(WITP.getInstance().getDataFolder(), "game-history.spill");
+        this.replaying = new File(WITP.getInstance().getDataFolder(), "game-history.spill.replay");
+        this.node = pad(Long.toString(getNode() % NODE_SIZE, 36), 4);
+    }
+
+    /**
+     * Starts draining the queue
+     */
+    public void start() {
+        if (task == null) {
+            task = Tasks.asyncRepeat(this::drain, DRAIN_INTERVAL);
+        }
+    }
+
+    /**
+     * Adds a finished run to the queue. Doesn't block.
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @param   name
+     *          The name of the player
+     *
+     * @param   score
+     *          The score of the run
+     *
+     * @param   time
+     *          The time of the run
+     *
+     * @param   duration
+     *          The time of the run in ms
+     *
+     * @param   diff
+     *          The difficulty score of the run
+     */
+    public void log(@NotNull UUID uuid, String name, int score, String time, long duration, String diff) {
+        Run run = new Run(nextCode(), uuid.toString(), name, score, time, diff != null && diff.length() > 3 ? diff.substring(0, 3) : diff,
+                System.currentTimeMillis(), (int) Math.min(Integer.MAX_VALUE, duration));
+        if (!queue.offer(run) && dropped.getAndIncrement() % 1000 == 0) {
+            Verbose.error("The game log queue is full, runs are being dropped (" + dropped.get() + " so far)");
+        }
+    }
+
+    /**
+     * Stops draining and writes everything that is left, to the database or to the spill file
+     */
+    public void close() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        retryAt = 0; // try the database one last time
+        drain();
+    }
+
+    // writes all queued runs, or spills them if the database isn't available
+    private synchronized void drain() {
+        List<Run> batch = new ArrayList<>();
+        while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+            if (!write(batch)) {
+                spill(batch);
+            }
+            batch.clear();
+        }
+        if ((spill.exists() || replaying.exists()) && System.currentTimeMillis() >= retryAt) {
+            replay();
+        }
+    }
+
+    // returns false if the database isn't available
+    private boolean write(List<Run> batch) {
+        if (System.currentTimeMillis() < retryAt) {
+            return false;
+        }
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (Run run : batch) {
+            rows.add(new Object[] { run.code, run.uuid, run.name, run.score, run.time, run.diff, run.played, run.duration > 0 ? run.duration : null });
+        }
+        try {
+            // ignore, so replaying runs that have already been written doesn't fail
+            database.batch("INSERT IGNORE INTO `" + Option.get().sqlPrefix + "game-history` (`code`, `uuid`, `name`, `score`, `hstime`, `scoreDiff`, `played`, `duration`) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?);", rows);
+            failures = 0;
+            if (stats != null) {
+                for (Run run : batch) {
+                    stats.invalidate(UUID.fromString(run.uuid));
+                }
+            }
+            return true;
+        } catch (SQLException ex) {
+            failures++;
+            long backoff = Math.min(MAX_BACKOFF, TimeUnit.SECONDS.toMillis(5) << Math.min(failures, 16));
+            retryAt = System.currentTimeMillis() + backoff;
+            Verbose.error("Error while trying to write " + batch.size() + " game logs, trying again in " + backoff / 1000 + "s: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    private void spill(List<Run> batch) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(spill, true), StandardCharsets.UTF_8)) {
+            for (Run run : batch) {
+                writer.write(gson.toJson(run));
+                writer.write('\n');
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to save " + batch.size() + " game logs, they have been lost");
+        }
+    }
+
+    // writes the spilled runs to the database, and removes the file if that worked
+    private void replay() {
+        if (!replaying.exists() && !spill.renameTo(replaying)) { // new spills go to a new file in the meantime
+            return;
+        }
+        Verbose.info("Writing game logs which couldn't be written before..");
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(replaying), StandardCharsets.UTF_8))) {
+            List<Run> batch = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                batch.add(gson.fromJson(line, Run.class));
+                if (batch.size() >= BATCH_SIZE) {
+                    if (!write(batch)) {
+                        return; // keep the file, everything is tried again later
+                    }
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty() && !write(batch)) {
+                return;
+            }
+        } catch (IOException | RuntimeException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to read the spilled game logs");
+            return;
+        }
+        if (!replaying.delete()) {
+            Verbose.error("Couldn't delete " + replaying.getName());
+        }
+    }
+
+    // the number of this server, which the database gives out once and is kept in the data folder afterwards
+    private long getNode() {
+        File file = new File(WITP.getInstance().getDataFolder(), "game-history.node");
+        if (file.exists()) {
+            try {
+                return Long.parseLong(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim());
+            } catch (IOException | NumberFormatException ex) {
+                ex.printStackTrace();
+                Verbose.error("Error while trying to read " + file.getName() + ", getting a new server number");
+            }
+        }
+        long node;
+        try {
+            node = database.execute(connection -> {
+                connection.prepare("INSERT INTO `" + Option.get().sqlPrefix + "nodes` (`created`) VALUES (?);", System.currentTimeMillis()).executeUpdate();
+                try (ResultSet set = connection.prepare("SELECT LAST_INSERT_ID();").executeQuery()) { // of this connection
+                    set.next();
+                    return set.getLong(1);
+                }
+            });
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to get a server number for the game logs, using a random one");
+            return ThreadLocalRandom.current().nextInt(NODE_SIZE);
+        }
+        try {
+            Files.write(file.toPath(), Long.toString(node).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to save " + file.getName() + ", a new server number will be used after restarting");
+        }
+        return node;
+    }
+
+    // the time in ms since the epoch, followed by the number of this server and a counter
+    private String nextCode() {
+        long now = (System.currentTimeMillis() - EPOCH) * COUNTER_SIZE;
+        long code = lastCode.updateAndGet(last -> Math.max(last + 1, now)); // overflowing the counter borrows from the next ms
+        return pad(Long.toString(code / COUNTER_SIZE, 36), 8) + node + pad(Long.toString(code % COUNTER_SIZE, 36), 2);
+    }
+
+    private static String pad(String string, int length) {
+        StringBuilder builder = new StringBuilder(string);
+        while (builder.length() < length) {
+            builder.insert(0, '0');
+        }
+        return builder.toString();
+    }
+
+    // a finished run
+    private static class Run {
+
+        private final String code;
+        private final String uuid;
+        private final String name;
+        private final int score;
+        private final String time;
+        private final String diff;
+        private final long played; // 0 in runs spilled by older versions
+        private final int duration;
+
+        private Run(String code, String uuid, String name, int score, String time, String diff, long played, int duration) {
+            this.code = code;
+            this.uuid = uuid;
+            this.name = name;
+            this.score = score;
+            this.time = time;
+            this.diff = diff;
+            this.played = played;
+            this.duration = duration;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package dev.efnilite.witp.player.data;
+
+import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.sql.ConnectionPool;
+import dev.efnilite.witp.util.sql.Database;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the stats of players from the game history: their recent runs, averages and how they're doing lately
+ * compared to before.
+ * <p>
+ * Stats are cached per player for a while, and are forgotten as soon as a new run of the player has been written
+ * by the {@link GameLogger}. The totals only read the index on (uuid, played, score, duration). The recent runs use
+ * that index to find the latest runs, and then read only those rows for their time and difficulty.
+ * </p>
+ */
+public class GameStats {
+
+    /**
+     * The time (in ms) stats are kept
+     */
+    private static final long EXPIRY = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * The amount of recent runs
+     */
+    private static final int RECENT_RUNS = 5;
+    /**
+     * The length of the period (in ms) of which the average is compared to the period before it
+     */
+    private static final long TREND_PERIOD = TimeUnit.DAYS.toMillis(7);
+
+    private final Database database;
+    private final Map<UUID, Cached> cache = new ConcurrentHashMap<>();
+
+    public GameStats(@NotNull Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Gets the stats of a player. Doesn't block.
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @return the future with the stats
+     */
+    public CompletableFuture<Stats> get(@NotNull UUID uuid) {
+        long now = System.currentTimeMillis();
+        Cached cached = cache.get(uuid);
+        if (cached != null && cached.expires > now && !cached.future.isCompletedExceptionally()) {
+            return cached.future;
+        }
+        CompletableFuture<Stats> future = database.submit(connection -> read(connection, uuid, now));
+        cache.put(uuid, new Cached(future, now + EXPIRY));
+        return future;
+    }
+
+    /**
+     * Forgets the cached stats of a player, e.g. after they've finished a run
+     *
+     * @param   uuid
+     *          The player
+     */
+    public void invalidate(@NotNull UUID uuid) {
+        cache.remove(uuid);
+    }
+
+    private Stats read(ConnectionPool.Lease connection, UUID uuid, long now) throws SQLException {
+        String table = "`" + Option.get().sqlPrefix + "game-history`";
+        int runs;
+        int best;
+        double average;
+        double duration;
+        double recentAverage;
+        double previousAverage;
+        try (ResultSet set = connection.prepare("SELECT COUNT(*), MAX(`score`), AVG(`score`), AVG(`duration`), "
+                + "AVG(CASE WHEN `played` >= ? THEN `score` END), AVG(CASE WHEN `played` >= ? AND `played` < ? THEN `score` END) "
+                + "FROM " + table + " WHERE `uuid` = ?;", now - TREND_PERIOD, now - 2 * TREND_PERIOD, now - TREND_PERIOD, uuid).executeQuery()) {
+            set.next();
+            runs = set.getInt(1);
+            best = set.getInt(2);
+            average = set.getDouble(3);
+            duration = set.getDouble(4);
+            recentAverage = set.getDouble(5);
+            previousAverage = set.getDouble(6); // 0 if there were no runs
+        }
+
+        List<Run> recent = new ArrayList<>();
+        try (ResultSet set = connection.prepare("SELECT `score`, `hstime`, `scoreDiff`, `played` FROM " + table
+                + " WHERE `uuid` = ? ORDER BY `played` DESC LIMIT ?;", uuid, RECENT_RUNS).executeQuery()) {
+            while (set.next()) {
+                recent.add(new Run(set.getInt(1), set.getString(2), set.getString(3), set.getLong(4)));
+            }
+        }
+        return new Stats(uuid, runs, best, average, (long) duration, recentAverage, previousAverage, Collections.unmodifiableList(recent));
+    }
+
+    /**
+     * The stats of a player
+     */
+    public static class Stats {
+
+        public final UUID uuid;
+        /**
+         * The amount of logged runs
+         */
+        public final int runs;
+        public final int best;
+        public final double average;
+        /**
+         * The average duration in ms, or 0 if no durations have been logged
+         */
+        public final long averageDuration;
+        /**
+         * The average score in the last 7 days, or 0 if there were no runs
+         */
+        public final double recentAverage;
+        /**
+         * The average score in the 7 days before that, or 0 if there were no runs
+         */
+        public final double previousAverage;
+        /**
+         * The most recent runs, newest first
+         */
+        public final List<Run> recent;
+
+        public Stats(UUID uuid, int runs, int best, double average, long averageDuration, double recentAverage,
+                     double previousAverage, List<Run> recent) {
+            this.uuid = uuid;
+            this.runs = runs;
+            this.best = best;
+            this.average = average;
+            this.averageDuration = averageDuration;
+            this.recentAverage = recentAverage;
+            this.previousAverage = previousAverage;
+            this.recent = recent;
+        }
+
+        /**
+         * Returns how much the recent average has changed compared to the period before
+         *
+         * @return the change as a fraction (e.g. 0.1 for 10% better), or null if either period had no runs
+         */
+        public @Nullable Double getTrend() {
+            if (recentAverage == 0 || previousAverage == 0) {
+                return null;
+            }
+            return (recentAverage - previousAverage) / previousAverage;
+        }
+    }
+
+    /**
+     * A logged run
+     */
+    public static class Run {
+
+        public final int score;
+        public final String time;
+        public final String difficulty;
+        /**
+         * When the run was played in ms, or 0 if the run was logged before this was stored
+         */
+        public final long played;
+
+        public Run(int score, String time, String difficulty, long played) {
+            this.score = score;
+            this.time = time;
+            this.difficulty = difficulty;
+            this.played = played;
+        }
+    }
+
+    private static class Cached {
+
+        private final CompletableFuture<Stats> future;
+        private final long expires;
+
+        private Cached(CompletableFuture<Stats> future, long expires) {
+            this.future = future;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package dev.efnilite.witp.player.data;
+
+import dev.efnilite.witp.util.Verbose;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary file with the high scores of all players, so they don't have to be read from
+ * every player file on startup.
+ * <p>
+ * The file starts with a header, followed by fixed-width records. A new record is appended every time
+ * a high score changes, so the last record of a player is the current one. Every record ends with a checksum.
+ * </p>
+ */
+public class HighscoreIndex {
+
+    private static final int MAGIC = 0x57495450; // WITP
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private static final int TIME_SIZE = 13;
+    private static final int DIFF_SIZE = 3;
+    private static final int NAME_SIZE = 16;
+    private static final int DATA_SIZE = 16 + 4 + TIME_SIZE + DIFF_SIZE + NAME_SIZE;
+    private static final int RECORD_SIZE = DATA_SIZE + 4;
+
+    private final File file;
+    private FileChannel channel;
+
+    public HighscoreIndex(@NotNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads all records. The last record of every player is kept.
+     *
+     * @return the entries (without rank) by player, or null if the file is missing or corrupt
+     *
+     * @throws  IOException
+     *          When reading the file goes wrong
+     */
+    public @Nullable Map<UUID, Leaderboard.Entry> read() throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        Map<UUID, Leaderboard.Entry> entries = new HashMap<>();
+        long valid;
+        int records = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // read in one go instead of mapping, since mapped files can't be truncated or replaced on Windows
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // keep reading until the entire file is in the buffer
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                Verbose.error("High score index has an unknown format");
+                return null;
+            }
+            byte[] data = new byte[DATA_SIZE];
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                buffer.get(data);
+                crc.reset();
+                crc.update(data, 0, DATA_SIZE);
+                if ((int) crc.getValue() != buffer.getInt()) {
+                    Verbose.error("High score index is corrupt at record " + records);
+                    return null;
+                }
+                Leaderboard.Entry entry = decode(ByteBuffer.wrap(data));
+                entries.put(entry.uuid, entry);
+                records++;
+            }
+            valid = buffer.position();
+        }
+
+        if (valid != file.length()) { // a write was interrupted, remove the partial record
+            Verbose.info("Removing incomplete record from the high score index");
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+        if (records > entries.size() * 2 && records > 1000) {
+            Verbose.info("Compacting high score index..");
+            write(entries.values());
+        }
+        return entries;
+    }
+
+    /**
+     * Replaces the entire file with these entries
+     *
+     * @param   entries
+     *          The entries
+     *
+     * @throws  IOException
+     *          When writing the file goes wrong
+     */
+    public synchronized void write(@NotNull Collection<Leaderboard.Entry> entries) throws IOException {
+        close();
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header);
+
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 256);
+            for (Leaderboard.Entry entry : entries) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    buffer.flip();
+                    channel.write(buffer);
+                    buffer.clear();
+                }
+                encode(buffer, entry);
+            }
+            buffer.flip();
+            channel.write(buffer);
+            channel.force(false);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Appends a record to the end of the file
+     *
+     * @param   entry
+     *          The new high score of a player
+     *
+     * @throws  IOException
+     *          When writing to the file goes wrong
+     */
+    public synchronized void append(@NotNull Leaderboard.Entry entry) throws IOException {
+        if (channel == null) {
+            if (!file.exists()) {
+                write(Collections.emptyList());
+            }
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        encode(buffer, entry);
+        buffer.flip();
+        channel.write(buffer);
+    }
+
+    /**
+     * Forces the appended records to be written to the disk
+     *
+     * @throws  IOException
+     *          When writing goes wrong
+     */
+    public synchronized void flush() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Closes the file, if it's open for appending
+     *
+     * @throws  IOException
+     *          When closing goes wrong
+     */
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private static void encode(ByteBuffer buffer, Leaderboard.Entry entry) {
+        int start = buffer.position();
+        buffer.putLong(entry.uuid.getMostSignificantBits());
+        buffer.putLong(entry.uuid.getLeastSignificantBits());
+        buffer.putInt(entry.score);
+        putString(buffer, entry.highscore.time, TIME_SIZE);
+        putString(buffer, entry.highscore.diff, DIFF_SIZE);
+        putString(buffer, entry.highscore.name, NAME_SIZE);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, DATA_SIZE);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private static Leaderboard.Entry decode(ByteBuffer buffer) {
+        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+        int score = buffer.getInt();
+        String time = getString(buffer, TIME_SIZE);
+        String diff = getString(buffer, DIFF_SIZE);
+        String name = getString(buffer, NAME_SIZE);
+        return new Leaderboard.Entry(uuid, score, 0, new Highscore(name, time, diff));
+    }
+
+    // writes a string padded with zeroes, cut off if it's too long
+    private static void putString(ByteBuffer buffer, @Nullable String string, int size) {
+        byte[] bytes = string != null ? string.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = Math.min(bytes.length, size);
+        buffer.put(bytes, 0, length);
+        for (int i = length; i < size; i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static @Nullable String getString(ByteBuffer buffer, int size) {
+        byte[] bytes = new byte[size];
+        buffer.get(bytes);
+        int length = 0;
+        while (length < size && bytes[length] != 0) {
+            length++;
+        }
+        return length == 0 ? null : new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,363 @@
+package dev.efnilite.witp.player.data;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps track of the high scores of all players and the order they're in.
+ * <p>
+ * The known scores are published as immutable {@link Snapshot}s, so they can be read from any thread
+ * without locking. Every change creates a new snapshot with a higher version.
+ * </p>
+ *
+ * @see MemoryLeaderboard
+ * @see SqlLeaderboard
+ */
+public abstract class Leaderboard {
+
+    /**
+     * The amount of entries on a single leaderboard page
+     */
+    public static final int PAGE_SIZE = 10;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    /**
+     * Loads the initial data of this leaderboard
+     *
+     * @throws  IOException
+     *          When reading the player files goes wrong
+     *
+     * @throws  SQLException
+     *          When fetching from the database goes wrong
+     */
+    public abstract void init() throws IOException, SQLException;
+
+    /**
+     * Gets the high score of a player, if it is known
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @return the high score, or null if it isn't known
+     */
+    public @Nullable Integer getScore(@NotNull UUID uuid) {
+        Entry entry = getSnapshot().get(uuid);
+        return entry != null ? entry.score : null;
+    }
+
+    /**
+     * Gets the extra data (name, time, difficulty) of a player's high score, if it is known
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @return the high score data, or null if it isn't known
+     */
+    public @Nullable Highscore getHighscore(@NotNull UUID uuid) {
+        Entry entry = getSnapshot().get(uuid);
+        return entry != null ? entry.highscore : null;
+    }
+
+    /**
+     * Gets the rank of a player
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @return the rank (starts at 1), or 0 if it isn't known
+     */
+    public int getRank(@NotNull UUID uuid) {
+        Entry entry = getSnapshot().get(uuid);
+        return entry != null ? entry.rank : 0;
+    }
+
+    /**
+     * Gets the player at a certain place.
+     * Note: places are indicated in normal fashion (a.k.a. #1 is the first)
+     *
+     * @param   place
+     *          The place
+     *
+     * @return the player at that place, or null if nobody is (known to be) there
+     */
+    public @Nullable UUID getAtPlace(int place) {
+        Entry entry = getSnapshot().getAtPlace(place);
+        return entry != null ? entry.uuid : null;
+    }
+
+    /**
+     * Gets the latest snapshot of this leaderboard. Safe to call from any thread.
+     *
+     * @return the current snapshot
+     */
+    public @NotNull Snapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Publishes a new snapshot. The change may be applied more than once if another thread
+     * publishes at the same time, so it should not have side effects.
+     *
+     * @param   change
+     *          Creates the new snapshot from the current one
+     *
+     * @return the published snapshot
+     */
+    protected Snapshot publish(@NotNull UnaryOperator<Snapshot> change) {
+        Snapshot previous;
+        Snapshot next;
+        do {
+            previous = snapshot.get();
+            next = change.apply(previous);
+        } while (!snapshot.compareAndSet(previous, next));
+        return next;
+    }
+
+    /**
+     * Fetches a page of the leaderboard. The consumer is always called on the main thread,
+     * but may be called later if the page first needs to be fetched.
+     *
+     * @param   page
+     *          The page, starting at 1
+     *
+     * @param   viewer
+     *          The player looking at the page, whose rank will be included
+     *
+     * @param   consumer
+     *          What to do with the page
+     */
+    public abstract void getPage(int page, @Nullable UUID viewer, @NotNull Consumer<Page> consumer);
+
+    /**
+     * Updates the high score of a player
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @param   score
+     *          The new score
+     *
+     * @param   highscore
+     *          The data of the new high score
+     */
+    public abstract void update(@NotNull UUID uuid, int score, @NotNull Highscore highscore);
+
+    /**
+     * Marks a player as online, so their rank is kept at hand
+     *
+     * @param   uuid
+     *          The player
+     */
+    public void track(@NotNull UUID uuid) {
+
+    }
+
+    /**
+     * Marks a player as offline
+     *
+     * @param   uuid
+     *          The player
+     */
+    public void untrack(@NotNull UUID uuid) {
+
+    }
+
+    /**
+     * Writes changes which haven't been stored yet
+     */
+    public void save() {
+
+    }
+
+    /**
+     * Called when a score has been written to the storage, so cached data can be refreshed
+     */
+    public void invalidate() {
+
+    }
+
+    /**
+     * Ranks a sorted list of entries
+     *
+     * @param   entries
+     *          The entries, in order
+     *
+     * @param   firstRank
+     *          The rank of the first entry
+     *
+     * @return an unmodifiable copy with the ranks set
+     */
+    protected static List<Entry> rank(List<Entry> entries, int firstRank) {
+        List<Entry> ranked = new ArrayList<>(entries.size());
+        int rank = firstRank;
+        for (Entry entry : entries) {
+            ranked.add(entry.rank == rank ? entry : entry.withRank(rank));
+            rank++;
+        }
+        return Collections.unmodifiableList(ranked);
+    }
+
+    /**
+     * The order of the leaderboard: highest score first, ties broken by uuid
+     */
+    protected static int compare(Entry one, Entry two) {
+        if (one.score != two.score) {
+            return Integer.compare(two.score, one.score);
+        }
+        return one.uuid.toString().compareTo(two.uuid.toString());
+    }
+
+    /**
+     * A single row on the leaderboard
+     */
+    public static class Entry {
+
+        public final UUID uuid;
+        public final int score;
+        public final int rank;
+        public final Highscore highscore;
+
+        public Entry(UUID uuid, int score, int rank, Highscore highscore) {
+            this.uuid = uuid;
+            this.score = score;
+            this.rank = rank;
+            this.highscore = highscore;
+        }
+
+        /**
+         * Creates a copy of this entry with another rank
+         *
+         * @param   rank
+         *          The new rank
+         *
+         * @return the copy
+         */
+        public Entry withRank(int rank) {
+            return new Entry(uuid, score, rank, highscore);
+        }
+    }
+
+    /**
+     * A page of the leaderboard, with the rank of the player who requested it
+     */
+    public static class Page {
+
+        public final int number;
+        /**
+         * The version of the snapshot the page is from
+         */
+        public final long version;
+        public final List<Entry> entries;
+        public final @Nullable Entry viewer;
+
+        public Page(int number, long version, List<Entry> entries, @Nullable Entry viewer) {
+            this.number = number;
+            this.version = version;
+            this.entries = entries;
+            this.viewer = viewer;
+        }
+    }
+
+    /**
+     * An immutable view of the leaderboard at a point in time
+     */
+    public static class Snapshot {
+
+        public static final Snapshot EMPTY = new Snapshot(0, Collections.emptyList(), Collections.emptyList());
+
+        /**
+         * Increases with every change, used to see if anything changed since an earlier snapshot
+         */
+        public final long version;
+        /**
+         * The ranked entries at the top of the leaderboard, in order
+         */
+        public final List<Entry> entries;
+        private final Map<UUID, Entry> index;
+
+        /**
+         * Creates a new snapshot
+         *
+         * @param   version
+         *          The version
+         *
+         * @param   entries
+         *          The ranked entries, in order
+         *
+         * @param   others
+         *          Known entries of players who aren't in entries
+         */
+        public Snapshot(long version, List<Entry> entries, Collection<Entry> others) {
+            this.version = version;
+            this.entries = entries;
+            Map<UUID, Entry> index = new HashMap<>();
+            for (Entry entry : others) {
+                index.put(entry.uuid, entry);
+            }
+            for (Entry entry : entries) {
+                index.put(entry.uuid, entry);
+            }
+            this.index = Collections.unmodifiableMap(index);
+        }
+
+        /**
+         * Gets the entry of a player
+         *
+         * @param   uuid
+         *          The player
+         *
+         * @return the entry, or null if it isn't known
+         */
+        public @Nullable Entry get(@NotNull UUID uuid) {
+            return index.get(uuid);
+        }
+
+        /**
+         * Gets the entry at a place, starting at 1
+         *
+         * @param   place
+         *          The place
+         *
+         * @return the entry, or null if it isn't known
+         */
+        public @Nullable Entry getAtPlace(int place) {
+            if (place > 0 && entries.size() >= place) {
+                return entries.get(place - 1);
+            }
+            return null;
+        }
+
+        /**
+         * Gets a page of entries, starting at 1
+         *
+         * @param   page
+         *          The page
+         *
+         * @return the entries on the page, which may be empty
+         */
+        public List<Entry> getPage(int page) {
+            int from = (page - 1) * PAGE_SIZE;
+            if (page < 1 || from >= entries.size()) {
+                return Collections.emptyList();
+            }
+            return entries.subList(from, Math.min(page * PAGE_SIZE, entries.size()));
+        }
+
+        /**
+         * Gets all known entries
+         *
+         * @return every known entry, in no particular order
+         */
+        public Collection<Entry> getKnown() {
+            return index.values();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package dev.efnilite.witp.player.data;
+
+import dev.efnilite.witp.WITP;
+import dev.efnilite.witp.player.ParkourPlayer;
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.Option;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Leaderboard which keeps every high score in memory. Used when the player data is stored in files.
+ * <p>
+ * High scores are read from a {@link HighscoreIndex}, which is rebuilt from the player files (or the player log)
+ * if it's missing or corrupt.
+ * </p>
+ */
+public class MemoryLeaderboard extends Leaderboard {
+
+    private final HighscoreIndex index = new HighscoreIndex(new File(WITP.getInstance().getDataFolder(), "highscores.idx"));
+
+    @Override
+    public void init() throws IOException {
+        Map<UUID, Entry> read = index.read();
+        List<Entry> entries;
+        if (read != null) {
+            entries = new ArrayList<>(read.values());
+        } else {
+            entries = rebuild();
+            index.write(entries);
+        }
+        entries.sort(Leaderboard::compare);
+        List<Entry> ranked = rank(entries, 1);
+        publish(previous -> new Snapshot(previous.version + 1, ranked, Collections.emptyList()));
+    }
+
+    // reads the high scores from all player files
+    private List<Entry> rebuild() throws IOException {
+        if (Option.get().storage == Option.Storage.LOG) {
+            List<PlayerRecord> records = ParkourPlayer.getStore().readAll();
+            Verbose.info("Building high score index from " + records.size() + " players..");
+            List<Entry> entries = new ArrayList<>();
+            for (PlayerRecord record : records) {
+                entries.add(new Entry(record.uuid, record.highScore, 0, new Highscore(record.name, record.highScoreTime, record.highScoreDifficulty)));
+            }
+            return entries;
+        }
+        File folder = new File(WITP.getInstance().getDataFolder() + "/players/");
+        if (!(folder.exists())) {
+            folder.mkdirs();
+            return new ArrayList<>();
+        }
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Verbose.info("Building high score index from " + files.length + " player files..");
+        return Arrays.stream(files)
+                .parallel()
+                .map(this::readPlayer)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private @Nullable Entry readPlayer(File file) {
+        String name = file.getName();
+        PlayerRecord from;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            from = PlayerCodec.readJson(UUID.fromString(name.substring(0, name.lastIndexOf('.'))), reader);
+        } catch (IOException | RuntimeException ex) {
+            Verbose.error("Error while trying to read player file " + name);
+            return null;
+        }
+        if (from == null) {
+            return null;
+        }
+        return new Entry(from.uuid, from.highScore, 0, new Highscore(from.name, from.highScoreTime, from.highScoreDifficulty));
+    }
+
+    @Override
+    public void getPage(int page, @Nullable UUID viewer, @NotNull Consumer<Page> consumer) {
+        Snapshot snapshot = getSnapshot();
+        consumer.accept(new Page(page, snapshot.version, snapshot.getPage(page), viewer != null ? snapshot.get(viewer) : null));
+    }
+
+    @Override
+    public void update(@NotNull UUID uuid, int score, @NotNull Highscore highscore) {
+        Entry entry = new Entry(uuid, score, 0, highscore);
+        publish(previous -> {
+            List<Entry> entries = new ArrayList<>(previous.entries);
+            Entry old = previous.get(uuid);
+            if (old != null) {
+                entries.remove(old.rank - 1);
+            }
+            int index = Collections.binarySearch(entries, entry, Leaderboard::compare);
+            entries.add(index < 0 ? -index - 1 : index, entry);
+            return new Snapshot(previous.version + 1, rank(entries, 1), Collections.emptyList());
+        });
+        try {
+            index.append(entry);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to write to the high score index");
+        }
+    }
+
+    @Override
+    public void save() {
+        try {
+            index.flush();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to save the high score index");
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package dev.efnilite.witp.player.data;
+
+import dev.efnilite.witp.WITP;
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.sql.Database;
+import dev.efnilite.witp.util.task.Tasks;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Remembers the names of players, so leaderboards never have to look them up while they're being shown.
+ * <p>
+ * Names are added when players join or are saved, and are saved to names.dat. Unknown names are looked up
+ * in the background (in the players table, then in the server's user cache), so the next time they're shown
+ * they're known.
+ * </p>
+ */
+public class NameCache {
+
+    /**
+     * The interval in ticks in which changed names are saved
+     */
+    private static final int SAVE_INTERVAL = 5 * 60 * 20;
+    /**
+     * The max amount of names looked up in one query
+     */
+    private static final int LOOKUP_SIZE = 100;
+    private static final int VERSION = 1;
+
+    private BukkitTask task;
+    private final File file;
+    private final Map<UUID, String> names = new ConcurrentHashMap<>();
+    private final Set<UUID> unknown = ConcurrentHashMap.newKeySet(); // looked up, but without a result
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+    private final Queue<UUID> lookups = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean looking = new AtomicBoolean();
+    private final AtomicBoolean changed = new AtomicBoolean();
+
+    public NameCache() {
+        this.file = new File(WITP.getInstance().getDataFolder(), "names.dat");
+    }
+
+    /**
+     * Reads the saved names and starts saving changes on an interval
+     */
+    public void start() {
+        try {
+            read();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to read names.dat, names will be looked up again");
+        }
+        if (task == null) {
+            task = Tasks.asyncRepeat(this::save, SAVE_INTERVAL);
+        }
+    }
+
+    /**
+     * Sets the name of a player
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @param   name
+     *          Their name
+     */
+    public void put(@NotNull UUID uuid, @Nullable String name) {
+        if (name == null || name.equals("null")) {
+            return;
+        }
+        unknown.remove(uuid);
+        if (!name.equals(names.put(uuid, name))) {
+            changed.set(true);
+        }
+    }
+
+    /**
+     * Gets the name of a player. Never blocks: if the name isn't known, it's looked up in the background.
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @return the name, or null if it isn't known (yet)
+     */
+    public @Nullable String get(@NotNull UUID uuid) {
+        String name = names.get(uuid);
+        if (name == null && !unknown.contains(uuid) && queued.add(uuid)) {
+            lookups.add(uuid);
+            if (looking.compareAndSet(false, true)) {
+                Tasks.asyncTask(this::lookup);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Stops the interval and saves the names
+     */
+    public void close() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        save();
+    }
+
+    // looks up the queued names until there are none left
+    private void lookup() {
+        while (true) {
+            List<UUID> batch = new ArrayList<>();
+            UUID uuid;
+            while (batch.size() < LOOKUP_SIZE && (uuid = lookups.poll()) != null) {
+                batch.add(uuid);
+            }
+            if (batch.isEmpty()) {
+                looking.set(false);
+                if (lookups.isEmpty() || !looking.compareAndSet(false, true)) { // something may have been queued in between
+                    return;
+                }
+                continue;
+            }
+
+            Map<UUID, String> found = new HashMap<>();
+            Database database = WITP.getDatabase();
+            if (Option.get().sql && database != null) {
+                try {
+                    StringBuilder in = new StringBuilder();
+                    for (int i = 0; i < batch.size(); i++) {
+                        in.append(i == 0 ? "?" : ", ?");
+                    }
+                    database.stream("SELECT `uuid`, `name` FROM `" + Option.get().sqlPrefix + "players` WHERE `uuid` IN (" + in + ");", 0,
+                            set -> new String[] { set.getString(1), set.getString(2) },
+                            row -> found.put(UUID.fromString(row[0]), row[1]), batch.toArray());
+                } catch (SQLException ex) {
+                    Verbose.error("Error while trying to look up the names of " + batch.size() + " players: " + ex.getMessage());
+                }
+            }
+            for (UUID player : batch) {
+                String name = found.get(player);
+                if (name == null || name.equals("null")) {
+                    name = Bukkit.getOfflinePlayer(player).getName(); // may read the user cache, which is why this is async
+                }
+                if (name != null && !name.equals("null")) {
+                    put(player, name);
+                } else {
+                    unknown.add(player);
+                }
+                queued.remove(player);
+            }
+        }
+    }
+
+    private void read() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unknown version " + version);
+            }
+            int amount = in.readInt();
+            for (int i = 0; i < amount; i++) {
+                names.putIfAbsent(new UUID(in.readLong(), in.readLong()), in.readUTF());
+            }
+        }
+    }
+
+    // writes all names to a new file, which then replaces the old one
+    private synchronized void save() {
+        if (!changed.getAndSet(false)) {
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        Map<UUID, String> copy = new HashMap<>(names);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(VERSION);
+            out.writeInt(copy.size());
+            for (Map.Entry<UUID, String> entry : copy.entrySet()) {
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                out.writeUTF(entry.getValue());
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to save names.dat");
+            changed.set(true);
+            return;
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to save names.dat");
+            changed.set(true);
+        }
+    }
+}
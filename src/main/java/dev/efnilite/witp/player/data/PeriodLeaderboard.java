@@ -0,0 +1,360 @@
+package dev.efnilite.witp.player.data;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dev.efnilite.witp.WITP;
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.sql.Database;
+import dev.efnilite.witp.util.sql.SelectStatement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Leaderboard of the best run of every player in the current day, week or month.
+ * <p>
+ * It is fed with every finished run and only stores the best run per player for the current window,
+ * so it never needs to look at the game history. When a new window starts, the leaderboard is emptied.
+ * Windows start at midnight in the configured time zone (UTC by default), so servers sharing a database agree on them.
+ * </p>
+ */
+public class PeriodLeaderboard extends Leaderboard {
+
+    // other servers may share the table, so a row is only replaced by a better run in the same window or by a newer window.
+    // the window is set last, since the other columns compare against the stored one
+    private static final String NEWER = "(VALUES(`window`) > `window` OR (VALUES(`window`) = `window` AND VALUES(`score`) > `score`))";
+    private static final String UPSERT = "INSERT INTO `%table%` (`period`, `window`, `uuid`, `name`, `score`, `hstime`, `hsdiff`) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "`name` = IF(" + NEWER + ", VALUES(`name`), `name`), "
+            + "`hstime` = IF(" + NEWER + ", VALUES(`hstime`), `hstime`), "
+            + "`hsdiff` = IF(" + NEWER + ", VALUES(`hsdiff`), `hsdiff`), "
+            + "`score` = IF(" + NEWER + ", VALUES(`score`), `score`), "
+            + "`window` = IF(" + NEWER + ", VALUES(`window`), `window`);";
+
+    private volatile String window;
+    private volatile long windowEnd; // when the current window ends, in ms
+    private final Period period;
+    private final File file;
+    private final Set<UUID> dirty;
+    private final AtomicBoolean reset;
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
+    public PeriodLeaderboard(@NotNull Period period) {
+        this.period = period;
+        LocalDate today = LocalDate.now(Option.get().leaderboardZone);
+        this.window = period.getWindow(today);
+        this.windowEnd = period.getEnd(today).atStartOfDay(Option.get().leaderboardZone).toInstant().toEpochMilli();
+        this.file = new File(WITP.getInstance().getDataFolder() + "/periods/" + period.getName() + ".json");
+        this.dirty = ConcurrentHashMap.newKeySet();
+        this.reset = new AtomicBoolean(true); // removes data of older windows
+    }
+
+    @Override
+    public void init() throws IOException, SQLException {
+        List<Entry> entries = Option.get().sql ? readDatabase() : readFile();
+        entries.sort(Leaderboard::compare);
+        List<Entry> ranked = rank(entries, 1);
+        publish(previous -> new Snapshot(previous.version + 1, ranked, Collections.emptyList()));
+    }
+
+    /**
+     * Gets the latest snapshot, after emptying the leaderboard if a new window has started.
+     * Every read goes through here, so nothing is read from an old window.
+     *
+     * @return the current snapshot
+     */
+    @Override
+    public @NotNull Snapshot getSnapshot() {
+        roll();
+        return super.getSnapshot();
+    }
+
+    @Override
+    public void getPage(int page, @Nullable UUID viewer, @NotNull Consumer<Page> consumer) {
+        Snapshot snapshot = getSnapshot();
+        consumer.accept(new Page(page, snapshot.version, snapshot.getPage(page), viewer != null ? snapshot.get(viewer) : null));
+    }
+
+    /**
+     * Submits a finished run. Only updates the leaderboard if it's the player's best run in this window.
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @param   score
+     *          The score of the run
+     *
+     * @param   highscore
+     *          The data of the run
+     */
+    @Override
+    public void update(@NotNull UUID uuid, int score, @NotNull Highscore highscore) {
+        roll();
+        Entry entry = new Entry(uuid, score, 0, highscore);
+        Snapshot published = publish(previous -> {
+            Entry old = previous.get(uuid);
+            if (old != null && old.score >= score) {
+                return previous;
+            }
+            List<Entry> entries = new ArrayList<>(previous.entries);
+            if (old != null) {
+                entries.remove(old.rank - 1);
+            }
+            int index = Collections.binarySearch(entries, entry, Leaderboard::compare);
+            entries.add(index < 0 ? -index - 1 : index, entry);
+            return new Snapshot(previous.version + 1, rank(entries, 1), Collections.emptyList());
+        });
+        Entry current = published.get(uuid);
+        if (current != null && current.score == score) {
+            dirty.add(uuid);
+        }
+    }
+
+    /**
+     * Writes all changed entries to the database or file. Also removes data of older windows.
+     */
+    @Override
+    public void save() {
+        roll();
+        String window = this.window;
+        boolean reset = this.reset.getAndSet(false);
+        List<UUID> changed = new ArrayList<>(dirty);
+        dirty.removeAll(changed);
+        if (changed.isEmpty() && !reset) {
+            return;
+        }
+
+        Snapshot snapshot = getSnapshot();
+        if (Option.get().sql) {
+            Database database = WITP.getDatabase();
+            if (reset) {
+                database.query("DELETE FROM `" + getTable() + "` WHERE `period` = ? AND `window` < ?;", period.getName(), window);
+            }
+            List<Object[]> rows = new ArrayList<>();
+            for (UUID uuid : changed) {
+                Entry entry = snapshot.get(uuid);
+                if (entry != null) {
+                    rows.add(new Object[] { period.getName(), window, uuid, entry.highscore.name, entry.score, entry.highscore.time, entry.highscore.diff });
+                }
+            }
+            if (!rows.isEmpty()) {
+                try {
+                    database.batch(UPSERT.replace("%table%", getTable()), rows);
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                    Verbose.error("Error while trying to save the " + period.getName() + " leaderboard");
+                    dirty.addAll(changed); // try again next time
+                }
+            }
+        } else {
+            Stored stored = new Stored();
+            stored.window = window;
+            stored.records = new ArrayList<>();
+            for (Entry entry : snapshot.entries) {
+                stored.records.add(new Stored.Record(entry));
+            }
+            try {
+                File folder = file.getParentFile();
+                if (!folder.exists()) {
+                    folder.mkdirs();
+                }
+                File temp = new File(folder, file.getName() + ".tmp");
+                try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+                    gson.toJson(stored, writer);
+                }
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                Verbose.error("Error while trying to save the " + period.getName() + " leaderboard");
+            }
+        }
+    }
+
+    /**
+     * Gets the period of this leaderboard
+     *
+     * @return the period
+     */
+    public Period getPeriod() {
+        return period;
+    }
+
+    // empties the leaderboard if a new window has started, which is only checked properly once the current one has ended
+    private void roll() {
+        if (System.currentTimeMillis() >= windowEnd) {
+            rollWindow();
+        }
+    }
+
+    private synchronized void rollWindow() {
+        ZoneId zone = Option.get().leaderboardZone;
+        LocalDate today = LocalDate.now(zone);
+        String current = period.getWindow(today);
+        windowEnd = period.getEnd(today).atStartOfDay(zone).toInstant().toEpochMilli();
+        if (current.equals(window)) { // e.g. another thread rolled first
+            return;
+        }
+        Verbose.verbose("Starting new " + period.getName() + " leaderboard (" + current + ")");
+        window = current;
+        dirty.clear();
+        reset.set(true);
+        publish(previous -> new Snapshot(previous.version + 1, Collections.emptyList(), Collections.emptyList()));
+    }
+
+    private List<Entry> readDatabase() throws SQLException {
+        List<Entry> entries = new ArrayList<>();
+        new SelectStatement(WITP.getDatabase(), getTable())
+                .addColumns("uuid", "name", "score", "hstime", "hsdiff")
+                .addCondition("`period` = ? AND `window` = ?", period.getName(), window)
+                .stream(set -> new Entry(UUID.fromString(set.getString(1)), set.getInt(3), 0,
+                        new Highscore(set.getString(2), set.getString(4), set.getString(5))), entries::add);
+        return entries;
+    }
+
+    private List<Entry> readFile() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!file.exists()) {
+            return entries;
+        }
+        Stored stored;
+        try (FileReader reader = new FileReader(file)) {
+            stored = gson.fromJson(reader, Stored.class);
+        }
+        if (stored == null || stored.records == null || !window.equals(stored.window)) {
+            return entries;
+        }
+        for (Stored.Record record : stored.records) {
+            entries.add(new Entry(UUID.fromString(record.uuid), record.score, 0, new Highscore(record.name, record.time, record.diff)));
+        }
+        return entries;
+    }
+
+    private static String getTable() {
+        return Option.get().sqlPrefix + "periods";
+    }
+
+    /**
+     * The periods a leaderboard can be kept for
+     */
+    public enum Period {
+
+        DAILY("daily"),
+        WEEKLY("weekly"),
+        MONTHLY("monthly");
+
+        private final String name;
+
+        Period(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Gets the name of the window a date falls in, e.g. 2021-06-14, 2021-W24 or 2021-06.
+         * Later windows of a period have names which sort after the earlier ones.
+         *
+         * @param   date
+         *          The date
+         *
+         * @return the name of the window
+         */
+        public String getWindow(LocalDate date) {
+            switch (this) {
+                case DAILY:
+                    return date.toString();
+                case WEEKLY:
+                    return String.format("%d-W%02d", date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+                default:
+                    return String.format("%d-%02d", date.getYear(), date.getMonthValue());
+            }
+        }
+
+        /**
+         * Gets the first day of the next window
+         *
+         * @param   date
+         *          A date in the current window
+         *
+         * @return the day on which the next window starts
+         */
+        public LocalDate getEnd(LocalDate date) {
+            switch (this) {
+                case DAILY:
+                    return date.plusDays(1);
+                case WEEKLY: // ISO weeks start on monday
+                    return date.with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+                default:
+                    return date.withDayOfMonth(1).plusMonths(1);
+            }
+        }
+
+        /**
+         * Gets the name used in commands, placeholders and storage
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets a period by its name
+         *
+         * @param   name
+         *          The name, like 'daily'
+         *
+         * @return the period, or null if there is none with this name
+         */
+        public static @Nullable Period getPeriod(String name) {
+            for (Period period : values()) {
+                if (period.name.equalsIgnoreCase(name)) {
+                    return period;
+                }
+            }
+            return null;
+        }
+    }
+
+    // the format of the file, if SQL isn't used
+    private static class Stored {
+
+        private String window;
+        private List<Record> records;
+
+        private static class Record {
+
+            private String uuid;
+            private String name;
+            private int score;
+            private String time;
+            private String diff;
+
+            private Record(Entry entry) {
+                this.uuid = entry.uuid.toString();
+                this.name = entry.highscore.name;
+                this.score = entry.score;
+                this.time = entry.highscore.time;
+                this.diff = entry.highscore.diff;
+            }
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package dev.efnilite.witp.player.data;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import dev.efnilite.witp.util.config.Option;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes {@link PlayerRecord}s, without reflection.
+ * <p>
+ * The binary form starts with the version of its format, followed by the fields. Older versions are read with
+ * the fields they had, after which the {@link #MIGRATIONS} from that version up are applied in order.
+ * JSON (the player files) counts as version 0, so the fix-ups for outdated files are the first migration.
+ * </p>
+ * <p>
+ * Changing the format means adding a version: keep the reader of the old version, add a reader for the new one
+ * and add a migration which fills the new fields.
+ * </p>
+ */
+public class PlayerCodec {
+
+    /**
+     * The current version of the binary format
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * The migrations from every version to the next, by the version they migrate from
+     */
+    private static final List<Consumer<Fields>> MIGRATIONS = Arrays.asList(
+            // 0 -> 1: fields may be missing in outdated player files
+            fields -> {
+                if (fields.highScoreTime == null) {
+                    fields.highScoreTime = "0.0s";
+                }
+                if (fields.highScoreDifficulty == null) {
+                    fields.highScoreDifficulty = "?";
+                }
+                if (fields.lang == null) {
+                    fields.lang = Option.get().defaultLang;
+                }
+                if (fields.blockLead < 1) {
+                    fields.blockLead = 4;
+                }
+                if (fields.difficulty == 0) {
+                    fields.difficulty = 0.5;
+                }
+            },
+            // 1 -> 2: one-time rewards, which nobody could have claimed before
+            fields -> { }
+    );
+
+    private static final int PARTICLES = 1;
+    private static final int DIFFICULTY = 1 << 1;
+    private static final int STRUCTURE = 1 << 2;
+    private static final int SPECIAL = 1 << 3;
+    private static final int DEATH_MSG = 1 << 4;
+    private static final int SCOREBOARD = 1 << 5;
+
+    /**
+     * Writes a record in the binary form. The uuid isn't included, since it's always the key of the data.
+     *
+     * @param   record
+     *          The record
+     *
+     * @return the data
+     */
+    public static byte[] encode(@NotNull PlayerRecord record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeInt(record.highScore);
+            writeString(out, record.highScoreTime);
+            writeString(out, record.highScoreDifficulty);
+            writeString(out, record.name);
+            writeString(out, record.lang);
+            writeString(out, record.time);
+            writeString(out, record.style);
+            out.writeInt(record.blockLead);
+            out.writeDouble(record.difficulty);
+            out.writeByte(flag(record.useParticles, PARTICLES) | flag(record.useDifficulty, DIFFICULTY)
+                    | flag(record.useStructure, STRUCTURE) | flag(record.useSpecial, SPECIAL)
+                    | flag(record.showDeathMsg, DEATH_MSG) | flag(record.showScoreboard, SCOREBOARD));
+            out.writeInt(record.claimedRewards.size());
+            for (int score : record.claimedRewards) {
+                out.writeInt(score);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex); // can't happen with a byte array
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a record from the binary form of any version, or from JSON
+     *
+     * @param   uuid
+     *          The player the data belongs to
+     *
+     * @param   data
+     *          The data
+     *
+     * @return the record
+     *
+     * @throws  IOException
+     *          If the data is invalid or from a newer version
+     */
+    public static PlayerRecord decode(@NotNull UUID uuid, byte[] data) throws IOException {
+        if (data.length > 0 && data[0] == '{') {
+            try (Reader reader = new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8)) {
+                PlayerRecord record = readJson(uuid, reader);
+                if (record == null) {
+                    throw new IOException("Empty player data of " + uuid);
+                }
+                return record;
+            }
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int version = in.readUnsignedByte();
+        Fields fields = new Fields();
+        switch (version) {
+            case 1:
+            case 2: // 2 has the claimed rewards after the fields of 1
+                fields.highScore = in.readInt();
+                fields.highScoreTime = readString(in);
+                fields.highScoreDifficulty = readString(in);
+                fields.name = readString(in);
+                fields.lang = readString(in);
+                fields.time = readString(in);
+                fields.style = readString(in);
+                fields.blockLead = in.readInt();
+                fields.difficulty = in.readDouble();
+                int flags = in.readUnsignedByte();
+                fields.useParticles = (flags & PARTICLES) != 0;
+                fields.useDifficulty = (flags & DIFFICULTY) != 0;
+                fields.useStructure = (flags & STRUCTURE) != 0;
+                fields.useSpecial = (flags & SPECIAL) != 0;
+                fields.showDeathMsg = (flags & DEATH_MSG) != 0;
+                fields.showScoreboard = (flags & SCOREBOARD) != 0;
+                if (version >= 2) {
+                    int claimed = in.readInt();
+                    for (int i = 0; i < claimed; i++) {
+                        fields.claimedRewards.add(in.readInt());
+                    }
+                }
+                break;
+            default:
+                throw new IOException("Unknown player data version " + version + " of " + uuid + ", was it written by a newer version?");
+        }
+        return migrate(uuid, fields, version);
+    }
+
+    /**
+     * Writes a record as JSON, in the format of the player files
+     *
+     * @param   record
+     *          The record
+     *
+     * @param   writer
+     *          Where to write to. Isn't closed.
+     *
+     * @throws  IOException
+     *          If writing fails
+     */
+    public static void writeJson(@NotNull PlayerRecord record, @NotNull Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.setHtmlSafe(false);
+        json.beginObject();
+        json.name("highScore").value(record.highScore);
+        writeString(json, "highScoreTime", record.highScoreTime);
+        json.name("blockLead").value(record.blockLead);
+        json.name("useDifficulty").value(record.useDifficulty);
+        writeString(json, "highScoreDifficulty", record.highScoreDifficulty);
+        json.name("useParticles").value(record.useParticles);
+        json.name("useSpecial").value(record.useSpecial);
+        json.name("showDeathMsg").value(record.showDeathMsg);
+        json.name("showScoreboard").value(record.showScoreboard);
+        json.name("useStructure").value(record.useStructure);
+        writeString(json, "time", record.time);
+        writeString(json, "style", record.style);
+        writeString(json, "lang", record.lang);
+        writeString(json, "name", record.name);
+        json.name("difficulty").value(record.difficulty);
+        json.name("claimedRewards").beginArray();
+        for (int score : record.claimedRewards) {
+            json.value(score);
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Reads a record from JSON, in the format of the player files. Unknown fields are ignored.
+     *
+     * @param   uuid
+     *          The player the data belongs to
+     *
+     * @param   reader
+     *          Where to read from. Isn't closed.
+     *
+     * @return the record, or null if the JSON is empty
+     *
+     * @throws  IOException
+     *          If the JSON is invalid
+     */
+    public static @Nullable PlayerRecord readJson(@NotNull UUID uuid, @NotNull Reader reader) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        json.setLenient(true);
+        if (json.peek() == JsonToken.END_DOCUMENT || json.peek() == JsonToken.NULL) {
+            return null;
+        }
+        Fields fields = new Fields();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "highScore":
+                    fields.highScore = json.nextInt();
+                    break;
+                case "highScoreTime":
+                    fields.highScoreTime = json.nextString();
+                    break;
+                case "highScoreDifficulty":
+                    fields.highScoreDifficulty = json.nextString();
+                    break;
+                case "name":
+                    fields.name = json.nextString();
+                    break;
+                case "lang":
+                    fields.lang = json.nextString();
+                    break;
+                case "time":
+                    fields.time = json.nextString();
+                    break;
+                case "style":
+                    fields.style = json.nextString();
+                    break;
+                case "blockLead":
+                    fields.blockLead = json.nextInt();
+                    break;
+                case "difficulty":
+                    fields.difficulty = json.nextDouble();
+                    break;
+                case "useParticles":
+                    fields.useParticles = json.nextBoolean();
+                    break;
+                case "useDifficulty":
+                    fields.useDifficulty = json.nextBoolean();
+                    break;
+                case "useStructure":
+                    fields.useStructure = json.nextBoolean();
+                    break;
+                case "useSpecial":
+                    fields.useSpecial = json.nextBoolean();
+                    break;
+                case "showDeathMsg":
+                    fields.showDeathMsg = json.nextBoolean();
+                    break;
+                case "showScoreboard":
+                    fields.showScoreboard = json.nextBoolean();
+                    break;
+                case "claimedRewards":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        fields.claimedRewards.add(json.nextInt());
+                    }
+                    json.endArray();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        return migrate(uuid, fields, 0);
+    }
+
+    private static PlayerRecord migrate(UUID uuid, Fields fields, int version) {
+        for (int i = version; i < VERSION; i++) {
+            MIGRATIONS.get(i).accept(fields);
+        }
+        return new PlayerRecord(uuid, fields.name, fields.highScore, fields.highScoreTime, fields.highScoreDifficulty,
+                fields.lang, fields.time, fields.style, fields.blockLead, fields.useParticles, fields.useDifficulty,
+                fields.useStructure, fields.useSpecial, fields.showDeathMsg, fields.showScoreboard, fields.difficulty,
+                fields.claimedRewards);
+    }
+
+    // unset options are on by default
+    private static int flag(@Nullable Boolean value, int flag) {
+        return Boolean.FALSE.equals(value) ? 0 : flag;
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static @Nullable String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeString(JsonWriter json, String name, @Nullable String string) throws IOException {
+        if (string != null) {
+            json.name(name).value(string);
+        }
+    }
+
+    // the fields of a record while it's being read and migrated
+    private static class Fields {
+
+        private int highScore;
+        private String highScoreTime;
+        private String highScoreDifficulty;
+        private String name;
+        private String lang;
+        private String time;
+        private String style;
+        private int blockLead;
+        private double difficulty;
+        private boolean useParticles = true;
+        private boolean useDifficulty;
+        private boolean useStructure = true;
+        private boolean useSpecial = true;
+        private boolean showDeathMsg = true;
+        private boolean showScoreboard = true;
+        private final Set<Integer> claimedRewards = new HashSet<>();
+    }
+}
@@ -0,0 +1,332 @@
+package dev.efnilite.witp.player.data;
+
+import dev.efnilite.witp.WITP;
+import dev.efnilite.witp.player.ParkourUser;
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.storage.RecordLog;
+import dev.efnilite.witp.util.task.Tasks;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Migrates the player files to the database, or the entries of players.log if the log storage is used.
+ * <p>
+ * The file names (or the uuids in the log) are listed and sorted first. After that, the files are parsed in chunks by a few parser threads,
+ * while the previous chunk is written in one batched upsert per table. Only two chunks are in memory at a time,
+ * so the amount of players doesn't matter.
+ * </p>
+ * <p>
+ * After every chunk, the name of the last written file is saved to a checkpoint file. If the migration is stopped
+ * (e.g. by a restart), it continues from there the next time it's started.
+ * </p>
+ */
+public class PlayerMigration {
+
+    /**
+     * The amount of files per chunk
+     */
+    private static final int CHUNK_SIZE = 500;
+    /**
+     * The interval (in ms) in which progress is reported
+     */
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+    /**
+     * The amount of times writing a chunk is tried before the migration is stopped
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static PlayerMigration running;
+
+    private volatile boolean cancelled;
+    private volatile String progress = "Listing player files..";
+    private final File folder;
+    private final @Nullable RecordLog log; // only if the log storage is used, which is read instead of the files
+    private final String kind; // what is migrated, for the messages
+    private final File checkpoint;
+    private final PlayerStore store;
+    private final Consumer<String> reporter;
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private PlayerMigration(PlayerStore store, Consumer<String> reporter) {
+        this.store = store;
+        this.reporter = reporter;
+        File data = WITP.getInstance().getDataFolder();
+        this.folder = new File(data, "players");
+        if (Option.get().storage == Option.Storage.LOG) {
+            this.log = new RecordLog(new File(data, "players.log"), new File(data, "players.idx"));
+            this.kind = "players.log entries";
+            this.checkpoint = new File(data, "migration-log.checkpoint");
+        } else {
+            this.log = null;
+            this.kind = "player files";
+            this.checkpoint = new File(data, "migration.checkpoint");
+        }
+    }
+
+    /**
+     * Starts migrating the player files on another thread, if no migration is running yet.
+     *
+     * @param   store
+     *          The store the records are written with
+     *
+     * @param   reporter
+     *          Receives the progress. Called on the main thread.
+     *
+     * @return the new migration, or null if one is already running
+     */
+    public static synchronized @Nullable PlayerMigration start(@NotNull PlayerStore store, @NotNull Consumer<String> reporter) {
+        if (running != null) {
+            return null;
+        }
+        running = new PlayerMigration(store, reporter);
+        Tasks.asyncTask(running::run);
+        return running;
+    }
+
+    /**
+     * Returns the running migration
+     *
+     * @return the migration, or null if none is running
+     */
+    public static synchronized @Nullable PlayerMigration getRunning() {
+        return running;
+    }
+
+    private static synchronized void finished() {
+        running = null;
+    }
+
+    /**
+     * Stops the migration after the current chunk. It continues from there the next time it's started.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns the last progress message
+     *
+     * @return the progress
+     */
+    public String getProgress() {
+        return progress;
+    }
+
+    private void run() {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "WITP-Migration");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            migrate(parsers);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            report("Error while trying to migrate, check your console. Start it again to continue.");
+        } finally {
+            parsers.shutdownNow();
+            if (log != null) {
+                try {
+                    log.close();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                    Verbose.error("Error while trying to close players.log after migrating");
+                }
+            }
+            finished();
+        }
+    }
+
+    private void migrate(ExecutorService parsers) throws IOException {
+        long start = System.currentTimeMillis();
+        if (log != null) {
+            if (!new File(WITP.getInstance().getDataFolder(), "players.log").exists()) {
+                report("The storage is set to log, but there is no players.log to migrate. Player files aren't migrated "
+                        + "in this mode, since they may be older than the log.");
+                return;
+            }
+            log.open();
+        } else if (!folder.exists()) {
+            report("There are no player files to migrate");
+            return;
+        }
+        String last = readCheckpoint();
+        List<String> names = list(last);
+        if (names.isEmpty()) {
+            deleteCheckpoint();
+            report("There are no " + kind + " left to migrate");
+            return;
+        }
+        report((last != null ? "Continuing migration of " : "Migrating ") + names.size() + " " + kind + "..");
+
+        int total = names.size();
+        int done = 0;
+        int written = 0;
+        int skipped = 0;
+        long reported = System.currentTimeMillis();
+        List<Future<PlayerRecord>> next = parse(parsers, names, 0);
+        for (int from = 0; from < total; from += CHUNK_SIZE) {
+            List<Future<PlayerRecord>> chunk = next;
+            int to = Math.min(total, from + CHUNK_SIZE);
+            next = to < total ? parse(parsers, names, to) : Collections.emptyList(); // parse the next chunk while writing
+
+            List<PlayerRecord> records = new ArrayList<>(chunk.size());
+            for (Future<PlayerRecord> future : chunk) {
+                PlayerRecord record = await(future);
+                if (record == null) {
+                    continue;
+                } else if (store.isKnown(record.uuid)) { // already loaded from the database, which is newer
+                    skipped++;
+                    continue;
+                }
+                records.add(record);
+            }
+            if (!write(records)) {
+                report("Error while trying to write player data, check your console. Migrated " + done + "/" + total
+                        + " " + kind + ", start it again to continue.");
+                return;
+            }
+            written += records.size();
+            done = to;
+            writeCheckpoint(names.get(to - 1));
+
+            long now = System.currentTimeMillis();
+            progress = "Migrated " + done + "/" + total + " " + kind + " (" + (done * 100 / total) + "%)";
+            if (now - reported >= PROGRESS_INTERVAL) {
+                reported = now;
+                report(progress);
+            }
+            if (cancelled) {
+                Verbose.info("Migration stopped at " + done + "/" + total + " " + kind + ", it will continue when started again");
+                return;
+            }
+        }
+        deleteCheckpoint();
+        if (written > 0) {
+            ParkourUser.getLeaderboard().invalidate();
+        }
+        report("Migrated " + written + " players in " + (System.currentTimeMillis() - start) + "ms! (" + skipped
+                + " online players skipped, " + failed.get() + " unreadable " + kind + ")");
+    }
+
+    // lists the names of the files (or the uuids in the log) that haven't been migrated yet, in order
+    private List<String> list(@Nullable String last) throws IOException {
+        List<String> names = new ArrayList<>();
+        if (log != null) {
+            for (UUID uuid : log.keys()) {
+                String name = uuid.toString();
+                if (last == null || name.compareTo(last) > 0) {
+                    names.add(name);
+                }
+            }
+            Collections.sort(names);
+            return names;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder.toPath(), "*.json")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (last == null || name.compareTo(last) > 0) {
+                    names.add(name);
+                }
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private List<Future<PlayerRecord>> parse(ExecutorService parsers, List<String> names, int from) {
+        List<Future<PlayerRecord>> futures = new ArrayList<>(CHUNK_SIZE);
+        for (String name : names.subList(from, Math.min(names.size(), from + CHUNK_SIZE))) {
+            futures.add(parsers.submit(() -> read(name)));
+        }
+        return futures;
+    }
+
+    private @Nullable PlayerRecord read(String name) {
+        if (log != null) {
+            try {
+                byte[] value = log.get(UUID.fromString(name));
+                return value != null ? PlayerCodec.decode(UUID.fromString(name), value) : null;
+            } catch (IOException ex) {
+                failed.incrementAndGet();
+                Verbose.error("Error while trying to read player " + name + " from players.log: " + ex.getMessage());
+                return null;
+            }
+        }
+        try {
+            UUID uuid = UUID.fromString(name.substring(0, name.lastIndexOf('.')));
+            return store.readFile(new File(folder, name), uuid);
+        } catch (IOException | RuntimeException ex) { // includes invalid names and json
+            failed.incrementAndGet();
+            Verbose.error("Error while trying to read player file " + name + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private @Nullable PlayerRecord await(Future<PlayerRecord> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Migration was interrupted");
+        } catch (ExecutionException ex) {
+            return null; // read() handles its own errors
+        }
+    }
+
+    private boolean write(List<PlayerRecord> records) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                store.writeOffline(records);
+                return true;
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+                Verbose.error("Error while trying to write " + records.size() + " migrated players (attempt " + attempt + "/" + MAX_ATTEMPTS + ")");
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(attempt * 2L));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private @Nullable String readCheckpoint() throws IOException {
+        if (!checkpoint.exists()) {
+            return null;
+        }
+        String last = new String(Files.readAllBytes(checkpoint.toPath()), StandardCharsets.UTF_8).trim();
+        return last.isEmpty() ? null : last;
+    }
+
+    private void writeCheckpoint(String last) throws IOException {
+        File temp = new File(checkpoint.getPath() + ".tmp");
+        Files.write(temp.toPath(), last.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void deleteCheckpoint() throws IOException {
+        Files.deleteIfExists(checkpoint.toPath());
+    }
+
+    private void report(String message) {
+        progress = message;
+        Verbose.info(message);
+        if (WITP.getInstance().isEnabled()) {
+            Tasks.syncTask(() -> reporter.accept(message));
+        }
+    }
+}
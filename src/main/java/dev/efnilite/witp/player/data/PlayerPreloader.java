@@ -0,0 +1,86 @@
+package dev.efnilite.witp.player.data;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts reading the data of players before they need it (e.g. while they're logging in), so registering
+ * them doesn't have to wait for the file or database.
+ * <p>
+ * Preloaded data is kept for a short while. If the player hasn't registered by then, it's thrown away,
+ * since it may be outdated.
+ * </p>
+ */
+public class PlayerPreloader {
+
+    /**
+     * The time (in ms) preloaded data is kept
+     */
+    private static final long EXPIRY = TimeUnit.SECONDS.toMillis(30);
+
+    private final PlayerStore store;
+    private final Map<UUID, Preload> preloads;
+
+    public PlayerPreloader(@NotNull PlayerStore store) {
+        this.store = store;
+        this.preloads = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Starts reading the data of a player, if it isn't being read already. Doesn't block.
+     *
+     * @param   uuid
+     *          The player
+     */
+    public void preload(@NotNull UUID uuid) {
+        long now = System.currentTimeMillis();
+        preloads.values().removeIf(preload -> preload.expires < now);
+        preloads.computeIfAbsent(uuid, key -> new Preload(store.load(key), now + EXPIRY));
+    }
+
+    /**
+     * Takes the preloaded data of a player
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @return the future with the data, or null if it hasn't been preloaded or has expired
+     */
+    public @Nullable CompletableFuture<PlayerRecord> take(@NotNull UUID uuid) {
+        Preload preload = preloads.remove(uuid);
+        if (preload == null || preload.expires < System.currentTimeMillis()) {
+            return null;
+        }
+        return preload.future;
+    }
+
+    /**
+     * Takes the preloaded data of a player, or starts reading it if it hasn't been preloaded
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @return the future with the data, which is null if the player has no stored data
+     */
+    public CompletableFuture<PlayerRecord> get(@NotNull UUID uuid) {
+        CompletableFuture<PlayerRecord> future = take(uuid);
+        return future != null ? future : store.load(uuid);
+    }
+
+    private static class Preload {
+
+        private final CompletableFuture<PlayerRecord> future;
+        private final long expires;
+
+        private Preload(CompletableFuture<PlayerRecord> future, long expires) {
+            this.future = future;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package dev.efnilite.witp.player.data;
+
+import dev.efnilite.witp.player.ParkourPlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * An immutable copy of the saved data of a player, taken on the main thread so it can be written
+ * on another thread while the player keeps changing.
+ * <p>
+ * Records are stored using {@link PlayerCodec}.
+ * </p>
+ */
+public class PlayerRecord {
+
+    public final UUID uuid;
+    public final int highScore;
+    public final String highScoreTime;
+    public final int blockLead;
+    public final boolean useDifficulty;
+    public final String highScoreDifficulty;
+    public final Boolean useParticles;
+    public final Boolean useSpecial;
+    public final Boolean showDeathMsg;
+    public final Boolean showScoreboard;
+    public final Boolean useStructure;
+    public final String time;
+    public final String style;
+    public final String lang;
+    public final String name;
+    public final double difficulty;
+    public final Set<Integer> claimedRewards;
+
+    private PlayerRecord(ParkourPlayer pp) {
+        this.uuid = pp.uuid;
+        this.highScore = pp.highScore;
+        this.highScoreTime = pp.highScoreTime;
+        this.blockLead = pp.blockLead;
+        this.useDifficulty = pp.useDifficulty;
+        this.highScoreDifficulty = pp.highScoreDifficulty;
+        this.useParticles = pp.useParticles;
+        this.useSpecial = pp.useSpecial;
+        this.showDeathMsg = pp.showDeathMsg;
+        this.showScoreboard = pp.showScoreboard;
+        this.useStructure = pp.useStructure;
+        this.time = pp.time;
+        this.style = pp.style;
+        this.lang = pp.locale;
+        this.name = pp.name;
+        this.difficulty = pp.difficulty;
+        this.claimedRewards = Collections.unmodifiableSet(new TreeSet<>(pp.claimedRewards));
+    }
+
+    PlayerRecord(UUID uuid, String name, int highScore, String highScoreTime, String highScoreDifficulty, String lang,
+                 String time, String style, int blockLead, boolean useParticles, boolean useDifficulty, boolean useStructure,
+                 boolean useSpecial, boolean showDeathMsg, boolean showScoreboard, double difficulty, Set<Integer> claimedRewards) {
+        this.uuid = uuid;
+        this.name = name;
+        this.highScore = highScore;
+        this.highScoreTime = highScoreTime;
+        this.highScoreDifficulty = highScoreDifficulty;
+        this.lang = lang;
+        this.time = time;
+        this.style = style;
+        this.blockLead = blockLead;
+        this.useParticles = useParticles;
+        this.useDifficulty = useDifficulty;
+        this.useStructure = useStructure;
+        this.useSpecial = useSpecial;
+        this.showDeathMsg = showDeathMsg;
+        this.showScoreboard = showScoreboard;
+        this.difficulty = difficulty;
+        this.claimedRewards = Collections.unmodifiableSet(new TreeSet<>(claimedRewards));
+    }
+
+    /**
+     * Copies the saved data of a player. Should be called on the main thread.
+     *
+     * @param   pp
+     *          The player
+     *
+     * @return the copy
+     */
+    public static PlayerRecord of(@NotNull ParkourPlayer pp) {
+        return new PlayerRecord(pp);
+    }
+
+    /**
+     * Sets the data of a player to this record
+     *
+     * @param   pp
+     *          The player
+     */
+    public void apply(@NotNull ParkourPlayer pp) {
+        pp.difficulty = difficulty;
+        pp.claimedRewards = new HashSet<>(claimedRewards);
+        pp.setDefaults(highScore, time, style, highScoreTime, lang, blockLead, useParticles, useDifficulty, useStructure,
+                useSpecial, showDeathMsg, showScoreboard, highScoreDifficulty);
+    }
+
+    /**
+     * Checks whether the values in the players table are different
+     *
+     * @param   previous
+     *          The previously stored record, or null if there is none
+     *
+     * @return true if the high score, name or language has changed
+     */
+    public boolean isProfileChanged(@Nullable PlayerRecord previous) {
+        return previous == null || highScore != previous.highScore || !Objects.equals(highScoreTime, previous.highScoreTime)
+                || !Objects.equals(highScoreDifficulty, previous.highScoreDifficulty) || !Objects.equals(name, previous.name)
+                || !Objects.equals(lang, previous.lang);
+    }
+
+    /**
+     * Checks whether the values in the options table are different
+     *
+     * @param   previous
+     *          The previously stored record, or null if there is none
+     *
+     * @return true if any option has changed
+     */
+    public boolean isOptionsChanged(@Nullable PlayerRecord previous) {
+        return previous == null || blockLead != previous.blockLead || useDifficulty != previous.useDifficulty
+                || !Objects.equals(useParticles, previous.useParticles)
+                || !Objects.equals(useSpecial, previous.useSpecial) || !Objects.equals(showDeathMsg, previous.showDeathMsg)
+                || !Objects.equals(showScoreboard, previous.showScoreboard) || !Objects.equals(useStructure, previous.useStructure)
+                || !Objects.equals(time, previous.time) || !Objects.equals(style, previous.style);
+    }
+
+    /**
+     * Checks whether one-time rewards have been claimed
+     *
+     * @param   previous
+     *          The previously stored record, or null if there is none
+     *
+     * @return true if the claimed rewards are different
+     */
+    public boolean isRewardsChanged(@Nullable PlayerRecord previous) {
+        return previous == null || !claimedRewards.equals(previous.claimedRewards);
+    }
+
+    /**
+     * Checks whether anything has changed
+     *
+     * @param   previous
+     *          The previously stored record, or null if there is none
+     *
+     * @return true if anything has changed
+     */
+    public boolean isChanged(@Nullable PlayerRecord previous) {
+        return isProfileChanged(previous) || isOptionsChanged(previous) || isRewardsChanged(previous)
+                || Double.compare(difficulty, previous.difficulty) != 0; // only in the files and the log, not in a table
+    }
+}
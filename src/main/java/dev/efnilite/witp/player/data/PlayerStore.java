@@ -0,0 +1,511 @@
+package dev.efnilite.witp.player.data;
+
+import dev.efnilite.witp.WITP;
+import dev.efnilite.witp.player.ParkourUser;
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.config.Settings;
+import dev.efnilite.witp.util.sql.ConnectionPool;
+import dev.efnilite.witp.util.sql.UpdertStatement;
+import dev.efnilite.witp.util.storage.RecordLog;
+import dev.efnilite.witp.util.task.Tasks;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind store of player data.
+ * <p>
+ * Saving a player only stages a {@link PlayerRecord} if it differs from the last one. Staged records are written
+ * on an interval and on shutdown, so a player who changes their settings ten times between two flushes is only
+ * written once. With SQL, only the tables with changed values are written.
+ * </p>
+ * <p>
+ * Flushes never overlap, and a record that failed to write is only retried if no newer record has been staged,
+ * so older data never overwrites newer data.
+ * </p>
+ */
+public class PlayerStore {
+
+    /**
+     * The interval in ticks in which staged records are written
+     */
+    private static final int FLUSH_INTERVAL = 10 * 20;
+
+    private BukkitTask task;
+    private RecordLog log; // only if the log storage is used
+    private final Object flushLock = new Object();
+    private final Map<UUID, PlayerRecord> pending = new ConcurrentHashMap<>(); // staged, not yet written
+    private final Map<UUID, PlayerRecord> writing = new ConcurrentHashMap<>(); // being written by the current flush
+    private final Map<UUID, PlayerRecord> stored = new ConcurrentHashMap<>(); // last written, for finding changes
+    private final Set<UUID> released = ConcurrentHashMap.newKeySet(); // players who have left
+
+    /**
+     * Opens the storage and starts writing staged records on an interval
+     */
+    public void start() {
+        Settings settings = Option.get();
+        if (!settings.sql && settings.storage == Option.Storage.LOG && log == null) {
+            openLog();
+        }
+        if (task == null) {
+            task = Tasks.asyncRepeat(this::flush, FLUSH_INTERVAL);
+        }
+    }
+
+    /**
+     * Sets the record that is currently in storage, e.g. after reading a player's data
+     *
+     * @param   record
+     *          The stored record
+     */
+    public void loaded(@NotNull PlayerRecord record) {
+        released.remove(record.uuid);
+        stored.put(record.uuid, record);
+    }
+
+    /**
+     * Stages a record to be written in the next flush, if it differs from the latest one
+     *
+     * @param   record
+     *          The record
+     *
+     * @return true if the record has changes and was staged
+     */
+    public boolean stage(@NotNull PlayerRecord record) {
+        released.remove(record.uuid);
+        if (!record.isChanged(getLatest(record.uuid))) {
+            return false;
+        }
+        pending.put(record.uuid, record); // replaces an older staged record
+        return true;
+    }
+
+    /**
+     * Reads the stored data of a player, without blocking the calling thread.
+     * Data which hasn't been written yet is not included, see {@link #getUnwritten(UUID)}.
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @return a future with the record, which is null if the player has no stored data
+     */
+    public CompletableFuture<PlayerRecord> load(@NotNull UUID uuid) {
+        if (Option.get().sql) {
+            return WITP.getDatabase().submit(connection -> readDatabase(connection, uuid));
+        }
+        CompletableFuture<PlayerRecord> future = new CompletableFuture<>();
+        Runnable read = () -> {
+            try {
+                future.complete(log != null ? readLog(uuid) : readFile(uuid));
+            } catch (Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+        };
+        if (WITP.getInstance().isEnabled()) {
+            Tasks.asyncTask(read);
+        } else {
+            read.run();
+        }
+        return future;
+    }
+
+    /**
+     * Gets the newest record of a player which hasn't been written yet.
+     * Used when a player joins again before their data has been written.
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @return the record, or null if all data of the player has been written
+     */
+    public @Nullable PlayerRecord getUnwritten(@NotNull UUID uuid) {
+        PlayerRecord record = pending.get(uuid);
+        return record != null ? record : writing.get(uuid);
+    }
+
+    /**
+     * Marks a player as left, so their last record is forgotten after it has been written
+     *
+     * @param   uuid
+     *          The player
+     */
+    public void release(@NotNull UUID uuid) {
+        released.add(uuid);
+    }
+
+    /**
+     * Writes all staged records. Waits for a running flush to finish first.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                forgetReleased();
+                return;
+            }
+            Map<UUID, PlayerRecord> batch = new LinkedHashMap<>();
+            for (UUID uuid : new ArrayList<>(pending.keySet())) {
+                PlayerRecord record = pending.get(uuid);
+                if (record != null) {
+                    writing.put(uuid, record); // before removing it, so getUnwritten() never misses it
+                    pending.remove(uuid, record); // unless a newer record has been staged in the meantime
+                    batch.put(uuid, record);
+                }
+            }
+
+            Collection<PlayerRecord> failed = Option.get().sql ? writeDatabase(batch.values())
+                    : log != null ? writeLog(batch.values()) : writeFiles(batch.values());
+            for (PlayerRecord record : failed) {
+                pending.putIfAbsent(record.uuid, record); // a newer record may have been staged in the meantime
+            }
+            for (PlayerRecord record : batch.values()) {
+                if (!failed.contains(record)) {
+                    stored.put(record.uuid, record);
+                }
+                writing.remove(record.uuid);
+            }
+            forgetReleased();
+        }
+    }
+
+    /**
+     * Stops the interval and writes all staged records
+     */
+    public void close() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        flush();
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                Verbose.error("Error while trying to close the player data log");
+            }
+        }
+    }
+
+    /**
+     * Reads the stored data of every player. Only used for the log, since the other storages have their own ways
+     * of getting all high scores.
+     *
+     * @return the records
+     *
+     * @throws  IOException
+     *          If reading fails
+     */
+    public List<PlayerRecord> readAll() throws IOException {
+        List<PlayerRecord> records = new ArrayList<>();
+        if (log != null) {
+            IOException[] error = new IOException[1];
+            log.forEach((uuid, value) -> {
+                try {
+                    records.add(PlayerCodec.decode(uuid, value));
+                } catch (IOException ex) {
+                    error[0] = ex;
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+        }
+        return records;
+    }
+
+    // writes the changed tables of every record in one batch per table
+    private Collection<PlayerRecord> writeDatabase(Collection<PlayerRecord> records) {
+        UpdertStatement profiles = new UpdertStatement(WITP.getDatabase(), Option.get().sqlPrefix + "players").setKey("uuid");
+        UpdertStatement options = new UpdertStatement(WITP.getDatabase(), Option.get().sqlPrefix + "options").setKey("uuid");
+        UpdertStatement rewards = new UpdertStatement(WITP.getDatabase(), Option.get().sqlPrefix + "rewards").setKey("uuid", "score");
+        boolean writeProfiles = false;
+        boolean writeOptions = false;
+        boolean writeRewards = false;
+        boolean scoreChanged = false;
+        try {
+            for (PlayerRecord record : records) {
+                PlayerRecord previous = stored.get(record.uuid);
+                if (record.isProfileChanged(previous)) {
+                    addProfile(profiles, record);
+                    writeProfiles = true;
+                    scoreChanged |= previous == null || previous.highScore != record.highScore;
+                }
+                if (record.isOptionsChanged(previous)) {
+                    addOptions(options, record);
+                    writeOptions = true;
+                }
+                if (record.isRewardsChanged(previous)) {
+                    writeRewards |= addRewards(rewards, record, previous);
+                }
+            }
+            Verbose.verbose("Writing the data of " + records.size() + " player(s) to SQL server");
+            if (writeProfiles) {
+                profiles.execute();
+            }
+            if (writeOptions) {
+                options.execute();
+            }
+            if (writeRewards) {
+                rewards.execute();
+            }
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to save the data of " + records.size() + " player(s)..");
+            return records; // the profiles may have been written, but writing them again doesn't hurt
+        }
+        if (scoreChanged) {
+            ParkourUser.getLeaderboard().invalidate();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Writes players who aren't online to the database in one batch per table, without staging them.
+     * Used for migrating.
+     *
+     * @param   records
+     *          The records
+     *
+     * @throws  SQLException
+     *          If writing fails
+     */
+    void writeOffline(@NotNull Collection<PlayerRecord> records) throws SQLException {
+        if (records.isEmpty()) {
+            return;
+        }
+        UpdertStatement profiles = new UpdertStatement(WITP.getDatabase(), Option.get().sqlPrefix + "players").setKey("uuid");
+        UpdertStatement options = new UpdertStatement(WITP.getDatabase(), Option.get().sqlPrefix + "options").setKey("uuid");
+        UpdertStatement rewards = new UpdertStatement(WITP.getDatabase(), Option.get().sqlPrefix + "rewards").setKey("uuid", "score");
+        boolean writeRewards = false;
+        for (PlayerRecord record : records) {
+            addProfile(profiles, record);
+            addOptions(options, record);
+            writeRewards |= addRewards(rewards, record, null);
+        }
+        profiles.execute();
+        options.execute();
+        if (writeRewards) {
+            rewards.execute();
+        }
+    }
+
+    /**
+     * Checks whether a player's data is being kept by this store, in which case it's newer than any file
+     *
+     * @param   uuid
+     *          The player
+     *
+     * @return true if the player has been loaded or staged
+     */
+    boolean isKnown(@NotNull UUID uuid) {
+        return stored.containsKey(uuid) || pending.containsKey(uuid) || writing.containsKey(uuid);
+    }
+
+    private static void addProfile(UpdertStatement profiles, PlayerRecord record) {
+        String diff = record.highScoreDifficulty;
+        profiles.setDefault("uuid", record.uuid.toString()).setDefault("name", record.name)
+                .setDefault("highscore", record.highScore).setDefault("hstime", record.highScoreTime)
+                .setDefault("lang", record.lang).setDefault("hsdiff", diff != null && diff.length() > 3 ? diff.substring(0, 3) : diff)
+                .addRow();
+    }
+
+    private static void addOptions(UpdertStatement options, PlayerRecord record) {
+        options.setDefault("uuid", record.uuid.toString()).setDefault("time", record.time)
+                .setDefault("style", record.style).setDefault("blockLead", record.blockLead)
+                .setDefault("useParticles", record.useParticles).setDefault("useDifficulty", record.useDifficulty)
+                .setDefault("useStructure", record.useStructure).setDefault("useSpecial", record.useSpecial)
+                .setDefault("showFallMsg", record.showDeathMsg).setDefault("showScoreboard", record.showScoreboard)
+                .addRow();
+    }
+
+    // claims are never taken back, so only the new ones are inserted
+    private static boolean addRewards(UpdertStatement rewards, PlayerRecord record, @Nullable PlayerRecord previous) {
+        boolean added = false;
+        for (int score : record.claimedRewards) {
+            if (previous == null || !previous.claimedRewards.contains(score)) {
+                rewards.setDefault("uuid", record.uuid.toString()).setDefault("score", score).addRow();
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    // appends every record to the log, and forces them to the disk together
+    private Collection<PlayerRecord> writeLog(Collection<PlayerRecord> records) {
+        try {
+            for (PlayerRecord record : records) {
+                log.put(record.uuid, PlayerCodec.encode(record));
+            }
+            log.sync();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to save the data of " + records.size() + " player(s)..");
+            return records;
+        }
+        try {
+            log.compact();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to compact the player data log");
+        }
+        return Collections.emptyList();
+    }
+
+    private void openLog() {
+        File folder = WITP.getInstance().getDataFolder();
+        log = new RecordLog(new File(folder, "players.log"), new File(folder, "players.idx"));
+        try {
+            log.open();
+            if (log.size() == 0) {
+                importFiles();
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to open the player data log, using player files instead");
+            log = null;
+        }
+    }
+
+    // copies the player files to the log, the files themselves are kept as a backup
+    private void importFiles() throws IOException {
+        File[] files = new File(WITP.getInstance().getDataFolder() + "/players").listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Verbose.info("Importing " + files.length + " player files into players.log..");
+        int imported = 0;
+        for (File file : files) {
+            String name = file.getName();
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(name.substring(0, name.lastIndexOf('.')));
+            } catch (IllegalArgumentException ex) {
+                continue;
+            }
+            PlayerRecord record;
+            try {
+                record = readFile(uuid);
+            } catch (IOException | RuntimeException ex) {
+                Verbose.error("Error while trying to read player file " + name);
+                continue;
+            }
+            if (record != null) {
+                log.put(uuid, PlayerCodec.encode(record));
+                imported++;
+            }
+        }
+        log.sync();
+        Verbose.info("Imported " + imported + " players, the player files can be removed");
+    }
+
+    private @Nullable PlayerRecord readLog(UUID uuid) throws IOException {
+        byte[] value = log.get(uuid);
+        return value != null ? PlayerCodec.decode(uuid, value) : null;
+    }
+
+    // writes every record to its own file, replacing the file in one move so it's never half written
+    private Collection<PlayerRecord> writeFiles(Collection<PlayerRecord> records) {
+        File folder = new File(WITP.getInstance().getDataFolder() + "/players");
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        List<PlayerRecord> failed = new ArrayList<>();
+        for (PlayerRecord record : records) {
+            File file = new File(folder, record.uuid + ".json");
+            File temp = new File(folder, record.uuid + ".json.tmp");
+            try {
+                try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+                    PlayerCodec.writeJson(record, writer);
+                }
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                Verbose.error("Error while trying to save the player's data..");
+                failed.add(record);
+            }
+        }
+        return failed;
+    }
+
+    // both tables in one round trip, the options may be missing if they've never been changed. The claimed rewards are read first.
+    private @Nullable PlayerRecord readDatabase(ConnectionPool.Lease connection, UUID uuid) throws SQLException {
+        Settings settings = Option.get();
+        String sql = "SELECT p.`name`, p.`highscore`, p.`hstime`, p.`hsdiff`, p.`lang`, o.`uuid`, o.`time`, o.`style`, o.`blockLead`, "
+                + "o.`useParticles`, o.`useDifficulty`, o.`useStructure`, o.`useSpecial`, o.`showFallMsg`, o.`showScoreboard` "
+                + "FROM `" + settings.sqlPrefix + "players` p LEFT JOIN `" + settings.sqlPrefix + "options` o ON o.`uuid` = p.`uuid` "
+                + "WHERE p.`uuid` = ?;";
+        Set<Integer> claimed = new HashSet<>();
+        try (ResultSet set = connection.prepare("SELECT `score` FROM `" + settings.sqlPrefix + "rewards` WHERE `uuid` = ?;", uuid).executeQuery()) {
+            while (set.next()) {
+                claimed.add(set.getInt(1));
+            }
+        }
+        try (ResultSet set = connection.prepare(sql, uuid).executeQuery()) {
+            if (!set.next()) {
+                return null;
+            }
+            String lang = set.getString(5);
+            String diff = set.getString(4);
+            if (set.getString(6) == null) {
+                return new PlayerRecord(uuid, set.getString(1), set.getInt(2), set.getString(3), diff != null ? diff : "?",
+                        lang != null ? lang : settings.defaultLang, "Day", settings.defaultStyle, 4,
+                        true, true, true, true, true, true, 0, claimed);
+            }
+            return new PlayerRecord(uuid, set.getString(1), set.getInt(2), set.getString(3), diff != null ? diff : "?",
+                    lang != null ? lang : settings.defaultLang, set.getString(7), set.getString(8), set.getInt(9),
+                    set.getBoolean(10), set.getBoolean(11), set.getBoolean(12), set.getBoolean(13), set.getBoolean(14),
+                    set.getBoolean(15), 0, claimed);
+        }
+    }
+
+    private @Nullable PlayerRecord readFile(UUID uuid) throws IOException {
+        File file = new File(WITP.getInstance().getDataFolder() + "/players/" + uuid + ".json");
+        return file.exists() ? readFile(file, uuid) : null;
+    }
+
+    /**
+     * Reads a player file. Thread-safe.
+     *
+     * @param   file
+     *          The file
+     *
+     * @param   uuid
+     *          The player the file belongs to
+     *
+     * @return the record, or null if the file is empty
+     *
+     * @throws  IOException
+     *          If reading fails
+     */
+    @Nullable PlayerRecord readFile(@NotNull File file, @NotNull UUID uuid) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return PlayerCodec.readJson(uuid, reader);
+        }
+    }
+
+    // forgets the last records of players who have left, once everything of theirs has been written
+    private void forgetReleased() {
+        for (UUID uuid : released) {
+            if (!pending.containsKey(uuid) && !writing.containsKey(uuid)) {
+                released.remove(uuid);
+                stored.remove(uuid);
+            }
+        }
+    }
+
+    private @Nullable PlayerRecord getLatest(UUID uuid) {
+        PlayerRecord record = getUnwritten(uuid);
+        return record != null ? record : stored.get(uuid);
+    }
+}
@@ -39,7 +39,7 @@ public class PreviousData {
     }
 
     public void apply() {
-        if (Option.GO_BACK) {
+        if (Option.get().goBack) {
             Location to = Util.parseLocation(WITP.getConfiguration().getString("config", "bungeecord.go-back"));
             player.teleport(to);
         } else {
@@ -49,7 +49,7 @@ public class PreviousData {
         player.setFoodLevel(hunger);
         player.setGameMode(gamemode);
         player.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED).setBaseValue(speed);
-        if (Option.INVENTORY_HANDLING) {
+        if (Option.get().inventoryHandling) {
             player.getInventory().clear();
             for (int slot : inventory.keySet()) {
                 player.getInventory().setItem(slot, inventory.get(slot));
@@ -61,7 +61,7 @@ public class PreviousData {
      * Saves the inventory to cache, so if the player leaves the player gets their items back
      */
     protected void saveInventory() {
-        if (Option.INVENTORY_HANDLING) {
+        if (Option.get().inventoryHandling) {
             int index = 0;
             Inventory inventory = this.player.getInventory();
             for (ItemStack item : inventory.getContents()) {
@@ -0,0 +1,276 @@
+package dev.efnilite.witp.player.data;
+
+import dev.efnilite.witp.WITP;
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.sql.Database;
+import dev.efnilite.witp.util.task.Tasks;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Leaderboard which is served by the players table, instead of keeping every player in memory.
+ * <p>
+ * Pages are fetched using keyset pagination on the (highscore, uuid) index. Only the first few pages and
+ * the players who are currently online are kept in memory.
+ * </p>
+ */
+public class SqlLeaderboard extends Leaderboard {
+
+    /**
+     * The amount of pages that are always kept in memory
+     */
+    private static final int HOT_PAGES = 5;
+    /**
+     * The interval in ticks in which the ranks of online players are re-fetched
+     */
+    private static final int RANK_REFRESH = 60 * 20;
+
+    private volatile boolean stale;
+    private final String table;
+    private final Database database;
+    private final AtomicBoolean refreshing;
+    private final Set<UUID> tracked;
+    private final Set<UUID> changed; // players whose score changed since the last refresh
+    private final Map<Integer, Entry> cursors; // the last entry of every fetched page
+
+    public SqlLeaderboard(@NotNull Database database) {
+        this.database = database;
+        this.table = Option.get().sqlPrefix + "players";
+        this.tracked = ConcurrentHashMap.newKeySet();
+        this.changed = ConcurrentHashMap.newKeySet();
+        this.cursors = new ConcurrentHashMap<>();
+        this.refreshing = new AtomicBoolean(false);
+    }
+
+    @Override
+    public void init() throws SQLException {
+        refresh();
+        Tasks.asyncRepeat(this::refreshTracked, RANK_REFRESH);
+    }
+
+    @Override
+    public void getPage(int page, @Nullable UUID viewer, @NotNull Consumer<Page> consumer) {
+        Snapshot snapshot = getSnapshot();
+        List<Entry> hot = getHotPage(snapshot, page);
+        Entry viewerEntry = viewer != null ? snapshot.get(viewer) : null;
+        if (hot != null && (viewer == null || viewerEntry != null)) {
+            consumer.accept(new Page(page, snapshot.version, hot, viewerEntry));
+            return;
+        }
+
+        Tasks.asyncTask(() -> {
+            try {
+                List<Entry> entries = hot != null ? hot : fetchPage(snapshot, page);
+                Entry fetchedViewer = viewerEntry;
+                if (viewer != null && fetchedViewer == null) {
+                    fetchedViewer = fetchEntry(viewer);
+                }
+                Page result = new Page(page, snapshot.version, entries, fetchedViewer);
+                Tasks.syncTask(() -> consumer.accept(result));
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+                Verbose.error("Error while trying to fetch page " + page + " of the leaderboard");
+            }
+        });
+    }
+
+    @Override
+    public void update(@NotNull UUID uuid, int score, @NotNull Highscore highscore) {
+        changed.add(uuid);
+        Entry entry = new Entry(uuid, score, 0, highscore);
+        publish(previous -> {
+            Entry old = previous.get(uuid);
+            int oldScore = old != null ? old.score : 0;
+
+            List<Entry> sorted = new ArrayList<>(previous.entries);
+            sorted.removeIf(other -> other.uuid.equals(uuid));
+            sorted.add(entry);
+            sorted.sort(Leaderboard::compare);
+            List<Entry> ranked = rank(sorted.subList(0, Math.min(sorted.size(), HOT_PAGES * PAGE_SIZE)), 1);
+
+            List<Entry> others = new ArrayList<>();
+            for (Entry other : previous.getKnown()) {
+                if (other.uuid.equals(uuid) || !tracked.contains(other.uuid)) {
+                    continue;
+                }
+                // players who have been passed move down a place
+                boolean passed = other.score >= oldScore && other.score < score;
+                others.add(passed ? other.withRank(other.rank + 1) : other);
+            }
+            if (tracked.contains(uuid)) {
+                others.add(entry.withRank(old != null ? old.rank : 0));
+            }
+            return new Snapshot(previous.version + 1, ranked, others);
+        });
+        cursors.clear();
+    }
+
+    @Override
+    public void track(@NotNull UUID uuid) {
+        tracked.add(uuid);
+        Tasks.asyncTask(() -> {
+            try {
+                Entry entry = fetchEntry(uuid);
+                if (entry != null) {
+                    putTracked(Collections.singletonList(entry));
+                }
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+                Verbose.error("Error while trying to fetch the rank of " + uuid);
+            }
+        });
+    }
+
+    @Override
+    public void untrack(@NotNull UUID uuid) {
+        tracked.remove(uuid);
+        publish(previous -> new Snapshot(previous.version + 1, previous.entries, getTracked(previous, Collections.emptyList())));
+    }
+
+    @Override
+    public void invalidate() {
+        stale = true;
+        if (!WITP.getInstance().isEnabled() || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        Tasks.asyncTask(() -> {
+            try {
+                while (stale) {
+                    stale = false;
+                    refresh();
+                }
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+                Verbose.error("Error while trying to refresh the leaderboard");
+            } finally {
+                refreshing.set(false);
+            }
+            if (stale) {
+                invalidate();
+            }
+        });
+    }
+
+    // re-fetches the pages that are kept in memory and the players whose score has changed
+    private void refresh() throws SQLException {
+        List<Entry> top = fetch("", 0, HOT_PAGES * PAGE_SIZE, 1);
+        List<Entry> fetched = new ArrayList<>();
+        for (UUID uuid : changed) {
+            changed.remove(uuid);
+            if (tracked.contains(uuid)) {
+                Entry entry = fetchEntry(uuid);
+                if (entry != null) {
+                    fetched.add(entry);
+                }
+            }
+        }
+        publish(previous -> new Snapshot(previous.version + 1, top, getTracked(previous, fetched)));
+        cursors.clear();
+    }
+
+    // re-fetches the ranks of all online players, in case other servers have changed the table
+    private void refreshTracked() {
+        try {
+            List<Entry> fetched = new ArrayList<>();
+            for (UUID uuid : tracked) {
+                Entry entry = fetchEntry(uuid);
+                if (entry != null) {
+                    fetched.add(entry);
+                }
+            }
+            putTracked(fetched);
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to refresh the ranks of online players");
+        }
+    }
+
+    private void putTracked(List<Entry> fetched) {
+        publish(previous -> new Snapshot(previous.version + 1, previous.entries, getTracked(previous, fetched)));
+    }
+
+    // the entries of online players outside of the top pages, with the newly fetched ones replacing the old ones
+    private List<Entry> getTracked(Snapshot previous, List<Entry> fetched) {
+        Map<UUID, Entry> entries = new HashMap<>();
+        for (Entry entry : previous.getKnown()) {
+            entries.put(entry.uuid, entry);
+        }
+        for (Entry entry : fetched) {
+            entries.put(entry.uuid, entry);
+        }
+        entries.keySet().retainAll(tracked);
+        return new ArrayList<>(entries.values());
+    }
+
+    // gets a page from memory, or null if it needs to be fetched
+    private @Nullable List<Entry> getHotPage(Snapshot snapshot, int page) {
+        boolean complete = snapshot.entries.size() < HOT_PAGES * PAGE_SIZE; // the entire table is in memory
+        if (page > HOT_PAGES && !complete) {
+            return null;
+        }
+        return snapshot.getPage(page);
+    }
+
+    private List<Entry> fetchPage(Snapshot snapshot, int page) throws SQLException {
+        // find the closest page before this one of which the last entry is known
+        int known = 0;
+        Entry cursor = null;
+        for (int i = page - 1; i > 0; i--) {
+            cursor = cursors.get(i);
+            if (cursor != null) {
+                known = i;
+                break;
+            }
+        }
+        List<Entry> top = snapshot.entries;
+        if (cursor == null && page > HOT_PAGES && !top.isEmpty()) {
+            known = HOT_PAGES;
+            cursor = top.get(top.size() - 1);
+        }
+
+        int skip = (page - 1 - known) * PAGE_SIZE;
+        List<Entry> entries = cursor != null
+                ? fetch(" WHERE `highscore` < ? OR (`highscore` = ? AND `uuid` > ?)", skip, PAGE_SIZE, known * PAGE_SIZE + skip + 1, cursor.score, cursor.score, cursor.uuid)
+                : fetch("", skip, PAGE_SIZE, known * PAGE_SIZE + skip + 1);
+        if (!entries.isEmpty()) {
+            cursors.put(page, entries.get(entries.size() - 1));
+        }
+        return entries;
+    }
+
+    private List<Entry> fetch(String condition, int offset, int limit, int firstRank, Object... params) throws SQLException {
+        Object[] all = Arrays.copyOf(params, params.length + 2);
+        all[params.length] = offset;
+        all[params.length + 1] = limit;
+        List<Entry> entries = database.list("SELECT `uuid`, `name`, `highscore`, `hstime`, `hsdiff` FROM `" + table + "`" + condition
+                + " ORDER BY `highscore` DESC, `uuid` ASC LIMIT ?, ?;", set -> new Entry(UUID.fromString(set.getString(1)),
+                set.getInt(3), 0, new Highscore(set.getString(2), set.getString(4), set.getString(5))), all);
+        for (int i = 0; i < entries.size(); i++) {
+            entries.set(i, entries.get(i).withRank(firstRank + i));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private @Nullable Entry fetchEntry(UUID uuid) throws SQLException {
+        Entry entry = database.resultQuery("SELECT `name`, `highscore`, `hstime`, `hsdiff` FROM `" + table + "` WHERE `uuid` = ?;", set -> {
+            if (!set.next()) {
+                return null;
+            }
+            return new Entry(uuid, set.getInt(2), 0, new Highscore(set.getString(1), set.getString(3), set.getString(4)));
+        }, uuid);
+        if (entry == null) {
+            return null;
+        }
+
+        int higher = database.resultQuery("SELECT COUNT(*) FROM `" + table + "` WHERE `highscore` > ? OR (`highscore` = ? AND `uuid` < ?);",
+                set -> set.next() ? set.getInt(1) : 0, entry.score, entry.score, uuid);
+        return entry.withRank(higher + 1);
+    }
+}
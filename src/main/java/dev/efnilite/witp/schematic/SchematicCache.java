@@ -20,15 +20,16 @@ public class SchematicCache {
     public static void read() {
         Tasks.time("schematicsLoad");
         Verbose.info("Initializing schematics...");
-        cache.clear();
+        Map<String, Schematic> read = new HashMap<>();
         File folder = new File(WITP.getInstance().getDataFolder() + "/schematics/");
         List<File> files = Arrays.asList(folder.listFiles((dir, name) -> name.contains("parkour-") || name.contains("spawn-island")));
         for (File file : files) {
             String fileName = file.getName();
             Schematic schematic = new Schematic().file(fileName);
             schematic.read();
-            cache.put(fileName, schematic);
+            read.put(fileName, schematic);
         }
+        cache = read;
         Verbose.info("Loaded all schematics in " + Tasks.end("schematicsLoad") + "ms!");
     }
 
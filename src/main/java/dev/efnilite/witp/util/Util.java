@@ -5,7 +5,10 @@ import com.google.common.io.ByteStreams;
 import dev.efnilite.witp.WITP;
 import dev.efnilite.witp.schematic.Vector3D;
 import dev.efnilite.witp.util.config.Configuration;
+import dev.efnilite.witp.util.config.MessageCatalog;
 import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.config.PlaceholderTemplate;
+import dev.efnilite.witp.util.config.Settings;
 import dev.efnilite.witp.util.task.Tasks;
 import dev.efnilite.witp.util.wrapper.EventWrapper;
 import net.md_5.bungee.api.ChatColor;
@@ -14,6 +17,7 @@ import org.bukkit.*;
 import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
@@ -349,6 +353,26 @@ public class Util {
         return String.format("%,d", value);
     }
 
+    /**
+     * Formats the time since a moment in the largest unit (e.g. 3 hours)
+     *
+     * @param   time
+     *          The moment in ms
+     *
+     * @return the time since then
+     */
+    public static String formatAgo(long time) {
+        long seconds = Math.max(0, (System.currentTimeMillis() - time) / 1000);
+        if (seconds < 60) {
+            return seconds + (seconds == 1 ? " second" : " seconds");
+        } else if (seconds < 3600) {
+            return seconds / 60 + (seconds < 120 ? " minute" : " minutes");
+        } else if (seconds < 86400) {
+            return seconds / 3600 + (seconds < 7200 ? " hour" : " hours");
+        }
+        return seconds / 86400 + (seconds < 172800 ? " day" : " days");
+    }
+
     /**
      * Checks if the cuboid box contains any Material other then the given one
      *
@@ -567,30 +591,46 @@ public class Util {
      * (if the player isn't a {@link dev.efnilite.witp.player.ParkourUser}, knowing their preferred language is impossible)
      *
      * @param   player
-     *          The player
+     *          The player, or any other sender
      *
      * @param   path
      *          The path
      */
-    public static void sendDefaultLang(Player player, String path, String... replaceable) {
-        String message = WITP.getConfiguration().getString("lang", "messages." + Option.DEFAULT_LANG + "." + path);
+    public static void sendDefaultLang(CommandSender player, String path, String... replaceable) {
+        sendDefaultLang(player, path, MessageCatalog.key(path), replaceable);
+    }
+
+    /**
+     * Same as {@link #sendDefaultLang(CommandSender, String, String...)}, but with the number of the path
+     *
+     * @param   player
+     *          The player, or any other sender
+     *
+     * @param   key
+     *          The number of the path (for example: {@link MessageCatalog#CANT_DO})
+     */
+    public static void sendDefaultLang(CommandSender player, int key, String... replaceable) {
+        sendDefaultLang(player, MessageCatalog.getPath(key), key, replaceable);
+    }
+
+    private static void sendDefaultLang(CommandSender player, String path, int key, String[] replaceable) {
+        Settings settings = Option.get();
+        PlaceholderTemplate message = settings.messages.get(settings.defaultLang, key);
         if (message == null) {
-            Verbose.error("Path " + path + " has no message in language " + Option.DEFAULT_LANG + "!");
+            Verbose.error("Path " + path + " has no message in language " + settings.defaultLang + "!");
             return;
         }
-        for (String s : replaceable) {
-            message = message.replaceFirst("%[a-z]", s);
-        }
-        player.sendMessage(message);
+        player.sendMessage(message.format(replaceable));
     }
 
     public static String getDefaultLang(String path) {
-        String message = WITP.getConfiguration().getString("lang", "messages." + Option.DEFAULT_LANG + "." + path);
+        Settings settings = Option.get();
+        PlaceholderTemplate message = settings.messages.get(settings.defaultLang, path);
         if (message == null) {
-            Verbose.error("Path " + path + " has no message in language " + Option.DEFAULT_LANG + "!");
+            Verbose.error("Path " + path + " has no message in language " + settings.defaultLang + "!");
             return "";
         }
-        return message;
+        return message.format();
     }
 
     /**
@@ -2,6 +2,7 @@ package dev.efnilite.witp.util;
 
 import dev.efnilite.witp.WITP;
 import dev.efnilite.witp.util.config.Option;
+import dev.efnilite.witp.util.config.Settings;
 
 import java.util.logging.Logger;
 
@@ -29,7 +30,8 @@ public class Verbose {
     }
 
     public static void verbose(String msg) {
-        if (Option.VERBOSE) {
+        Settings settings = Option.get();
+        if (settings != null && settings.verbose) { // may be called before the config has been loaded
             logger.info("(Verbose) " + msg);
         }
     }
@@ -5,10 +5,12 @@ import dev.efnilite.witp.util.Util;
 import dev.efnilite.witp.util.Verbose;
 import dev.efnilite.witp.util.inventory.ItemBuilder;
 import dev.efnilite.witp.util.task.Tasks;
+import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.Nullable;
 
@@ -23,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * An utilities class for the Configuration
@@ -30,14 +33,13 @@ import java.util.List;
 public class Configuration {
 
     private final Plugin plugin;
-    private final HashMap<String, FileConfiguration> files;
+    private final Map<String, FileConfiguration> files; // the files read on startup, until the first settings are loaded
 
     /**
      * Create a new instance
      */
     public Configuration(Plugin plugin) {
         this.plugin = plugin;
-        files = new HashMap<>();
 
         String[] defaultFiles = new String[]{"config.yml", "generation.yml", "lang.yml", "items.yml", "schematics.yml"};
 
@@ -58,19 +60,37 @@ public class Configuration {
                 ex.printStackTrace();
                 Verbose.error("Error while trying to update config");
             }
-            FileConfiguration configuration = this.getFile(folder + "/" + file);
-            files.put(file.replaceAll("(.+/|.yml)", ""), configuration);
         }
+        files = read();
         schematics();
         Verbose.verbose("Loaded all config files");
     }
 
-    public void reload() {
-        files.put("lang", YamlConfiguration.loadConfiguration(new File(plugin.getDataFolder() + "/lang.yml")));
-        files.put("config", YamlConfiguration.loadConfiguration(new File(plugin.getDataFolder() + "/config.yml")));
-        files.put("generation", YamlConfiguration.loadConfiguration(new File(plugin.getDataFolder() + "/generation.yml")));
-        files.put("items", YamlConfiguration.loadConfiguration(new File(plugin.getDataFolder() + "/items.yml")));
-        files.put("structures", YamlConfiguration.loadConfiguration(new File(plugin.getDataFolder() + "/schematics.yml")));
+    /**
+     * Reads the files, without changing the files in use. Can be called on another thread.
+     * The files are only used once they're part of new {@link Settings}, so they change together with the settings.
+     *
+     * @return the files by name (without .yml)
+     */
+    public Map<String, FileConfiguration> read() {
+        Map<String, FileConfiguration> read = new HashMap<>();
+        read.put("lang", YamlConfiguration.loadConfiguration(new File(plugin.getDataFolder() + "/lang.yml")));
+        read.put("config", YamlConfiguration.loadConfiguration(new File(plugin.getDataFolder() + "/config.yml")));
+        read.put("generation", YamlConfiguration.loadConfiguration(new File(plugin.getDataFolder() + "/generation.yml")));
+        read.put("items", YamlConfiguration.loadConfiguration(new File(plugin.getDataFolder() + "/items.yml")));
+        FileConfiguration schematics = YamlConfiguration.loadConfiguration(new File(plugin.getDataFolder() + "/schematics.yml"));
+        read.put("schematics", schematics);
+        read.put("structures", schematics);
+        return read;
+    }
+
+    /**
+     * Gets the files read on startup, which the first settings are made of
+     *
+     * @return the files by name (without .yml)
+     */
+    Map<String, FileConfiguration> getInitialFiles() {
+        return files;
     }
 
     /**
@@ -110,17 +130,21 @@ public class Configuration {
     }
 
     /**
-     * Get a file
+     * Get a file, as it is in the current settings
+     *
+     * @param   file
+     *          The name of the file, without .yml
+     *
+     * @return the file, which is empty if there's no file with this name
      */
     public FileConfiguration getFile(String file) {
-        FileConfiguration config;
-        if (files.get(file) == null) {
-            config = YamlConfiguration.loadConfiguration(new File(file));
-            files.put(file, config);
-        } else {
-            config = files.get(file);
-        }
-        return config;
+        FileConfiguration config = getFiles().get(file);
+        return config != null ? config : new YamlConfiguration();
+    }
+
+    private Map<String, FileConfiguration> getFiles() {
+        Settings settings = Option.get();
+        return settings != null ? settings.files : files;
     }
 
     /**
@@ -161,6 +185,7 @@ public class Configuration {
 
     /**
      * Gets an item from the items.yml file and automatically creates it.
+     * The item is built once per language and copied afterwards.
      *
      * @param   path
      *          The path of the item (excluding the parameters and 'items.')
@@ -171,30 +196,53 @@ public class Configuration {
      * @return the item based on the data from items.yml
      */
     public ItemStack getFromItemData(String locale, String path, @Nullable String... replace) {
-        ItemData data = getItemData(path, locale, replace);
-        return new ItemBuilder(data.material, data.name).setLore(data.lore).build();
+        String value = replace != null && replace.length > 0 ? replace[0] : null;
+        Settings settings = Option.get();
+        if (settings == null) { // not cached before the settings are loaded
+            return new ItemTemplate(getItemData(files.get("items"), path, locale)).create(value);
+        }
+        ItemTemplate template = settings.items.computeIfAbsent(locale + "." + path,
+                key -> new ItemTemplate(getItemData(settings.files.get("items"), path, locale)));
+        return template.create(value);
+    }
+
+    /**
+     * Gets the translated label of a boolean, used for options in menus.
+     * The labels are made once per language.
+     *
+     * @param   locale
+     *          The language
+     *
+     * @param   value
+     *          The value
+     *
+     * @return the label, in green if true or red if false
+     */
+    public String getBooleanLabel(String locale, boolean value) {
+        Settings settings = Option.get();
+        String[] labels = settings.booleans.computeIfAbsent(locale, key -> new String[] {
+                ChatColor.RED + translate(settings, key, MessageCatalog.FALSE),
+                ChatColor.GREEN + translate(settings, key, MessageCatalog.TRUE) });
+        return labels[value ? 1 : 0];
     }
 
-    private ItemData getItemData(String path, String locale, @Nullable String... replace) {
+    private String translate(Settings settings, String locale, int key) {
+        PlaceholderTemplate template = settings.messages.get(locale, key);
+        if (template == null) {
+            Verbose.error("Custom language '" + locale + "' is missing a path: 'messages." + locale + "." + MessageCatalog.getPath(key) + "'. Please add this path to the language in lang.yml!");
+            return "";
+        }
+        return template.format();
+    }
+
+    private ItemData getItemData(FileConfiguration config, String path, String locale) {
         String namePath = "locale." + locale + "." + path;
         String matPath = "items." + path;
-        FileConfiguration config = getFile("items");
         String name = config.getString(namePath + ".name");
-        if (name != null && replace != null && replace.length > 0) {
-            name = name.replaceFirst("%[a-z]", replace[0]);
-        }
         String l = config.getString(namePath + ".lore");
         List<String> lore = null;
         if (l != null) {
             lore = Arrays.asList(l.split("\\|\\|"));
-            if (lore.size() != 0 && replace != null && replace.length > 0) {
-                List<String> copy = new ArrayList<>();
-                int index = 0;
-                for (String s : lore) {
-                    copy.add(s.replaceFirst("%[a-z]", replace[index]));
-                }
-                lore = copy;
-            }
         }
 
         Material material = null;
@@ -205,6 +253,59 @@ public class Configuration {
         return new ItemData(name, lore, material);
     }
 
+    /**
+     * An item of items.yml in one language. The name and lore are coloured and split at their placeholders,
+     * so only the first placeholder of each has to be filled in when the item is copied.
+     * Kept in the {@link Settings} of the items.yml it was made from.
+     */
+    static class ItemTemplate {
+
+        private final ItemStack base;
+        private final @Nullable PlaceholderTemplate name;
+        private final @Nullable PlaceholderTemplate[] lore;
+        private final boolean placeholders;
+
+        private ItemTemplate(ItemData data) {
+            this.base = new ItemBuilder(data.material, data.name).setLore(data.lore).build();
+            this.name = data.name != null ? PlaceholderTemplate.positional(ChatColor.translateAlternateColorCodes('&', data.name)) : null;
+            boolean placeholders = name != null && name.hasPlaceholders();
+            if (data.lore != null) {
+                lore = new PlaceholderTemplate[data.lore.size()];
+                for (int i = 0; i < lore.length; i++) {
+                    lore[i] = PlaceholderTemplate.positional(Util.color(data.lore.get(i)));
+                    placeholders |= lore[i].hasPlaceholders();
+                }
+            } else {
+                lore = null;
+            }
+            this.placeholders = placeholders;
+        }
+
+        private ItemStack create(@Nullable String value) {
+            ItemStack item = base.clone();
+            if (value == null || !placeholders) {
+                return item;
+            }
+            ItemMeta meta = item.getItemMeta();
+            if (meta == null) {
+                return item;
+            }
+            if (name != null) {
+                meta.setDisplayName(name.format(ChatColor.translateAlternateColorCodes('&', value)));
+            }
+            if (lore != null && lore.length > 0) {
+                String colored = Util.color(value);
+                List<String> lines = new ArrayList<>(lore.length);
+                for (PlaceholderTemplate line : lore) {
+                    lines.add(line.format(colored));
+                }
+                meta.setLore(lines);
+            }
+            item.setItemMeta(meta);
+            return item;
+        }
+    }
+
     /**
      * Class to make gathering data (items.yml) easier
      */
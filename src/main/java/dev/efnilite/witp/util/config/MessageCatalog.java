@@ -0,0 +1,151 @@
+package dev.efnilite.witp.util.config;
+
+import dev.efnilite.witp.util.Util;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The messages of lang.yml, compiled when the file is (re)loaded (see {@link Settings#messages}).
+ * <p>
+ * Every message is coloured once and split at its placeholders (%a to %z), so sending a message only joins the parts
+ * with the values. Every path in lang.yml gets a number, which stays the same after reloading. The messages that
+ * are sent often have their number as a constant, so they're looked up without hashing their path.
+ * </p>
+ */
+public class MessageCatalog {
+
+    private static final Map<String, Integer> keys = new ConcurrentHashMap<>();
+    private static final List<String> paths = new CopyOnWriteArrayList<>(); // by key
+
+    public static final int CANT_DO = intern("cant-do");
+    public static final int JOIN = intern("join");
+    public static final int LEAVE = intern("leave");
+    public static final int JOINED = intern("joined");
+    public static final int LEFT = intern("left");
+    public static final int DIVIDER = intern("divider");
+    public static final int SCORE = intern("score");
+    public static final int TIME = intern("time");
+    public static final int HIGHSCORE = intern("highscore");
+    public static final int SPECTATOR = intern("spectator");
+    public static final int SPECTATOR_BAR = intern("spectator-bar");
+    public static final int YOUR_RANK = intern("your-rank");
+    public static final int DIFFICULTY = intern("difficulty");
+    public static final int PREVIOUS_PAGE = intern("previous-page");
+    public static final int NEXT_PAGE = intern("next-page");
+    public static final int TRUE = intern("true");
+    public static final int FALSE = intern("false");
+
+    private final Map<String, PlaceholderTemplate[]> languages; // templates by key, per language
+
+    private MessageCatalog(Map<String, PlaceholderTemplate[]> languages) {
+        this.languages = languages;
+    }
+
+    /**
+     * Compiles the messages of every language
+     *
+     * @param   lang
+     *          The lang.yml file
+     *
+     * @return the catalog
+     */
+    public static MessageCatalog compile(@NotNull FileConfiguration lang) {
+        Map<String, PlaceholderTemplate[]> languages = new HashMap<>();
+        ConfigurationSection messages = lang.getConfigurationSection("messages");
+        if (messages != null) {
+            for (String language : messages.getKeys(false)) {
+                ConfigurationSection section = messages.getConfigurationSection(language);
+                if (section == null) { // e.g. 'default'
+                    continue;
+                }
+                Map<Integer, PlaceholderTemplate> templates = new HashMap<>();
+                for (String path : section.getKeys(true)) {
+                    if (!section.isConfigurationSection(path)) {
+                        String message = section.getString(path);
+                        if (message != null) {
+                            templates.put(intern(path), PlaceholderTemplate.positional(Util.color(message)));
+                        }
+                    }
+                }
+                PlaceholderTemplate[] array = new PlaceholderTemplate[paths.size()];
+                templates.forEach((key, template) -> array[key] = template);
+                languages.put(language, array);
+            }
+        }
+        return new MessageCatalog(languages);
+    }
+
+    /**
+     * Gets the number of a path, which can be used instead of the path
+     *
+     * @param   path
+     *          The path in the language (e.g. 'message.beat')
+     *
+     * @return the number, or -1 if no language has this path
+     */
+    public static int key(@NotNull String path) {
+        Integer key = keys.get(path);
+        return key != null ? key : -1;
+    }
+
+    /**
+     * Gets the path of a number
+     *
+     * @param   key
+     *          The number
+     *
+     * @return the path, or null if there's no path with this number
+     */
+    public static @Nullable String getPath(int key) {
+        return key >= 0 && key < paths.size() ? paths.get(key) : null;
+    }
+
+    // gives a path a number, only done for the paths in lang.yml and the constants
+    private static synchronized int intern(String path) {
+        Integer key = keys.get(path);
+        if (key != null) {
+            return key;
+        }
+        int next = paths.size();
+        paths.add(path);
+        keys.put(path, next);
+        return next;
+    }
+
+    /**
+     * Gets a message
+     *
+     * @param   language
+     *          The language
+     *
+     * @param   key
+     *          The number of the path
+     *
+     * @return the message, or null if the language doesn't have it
+     */
+    public @Nullable PlaceholderTemplate get(String language, int key) {
+        PlaceholderTemplate[] templates = languages.get(language);
+        return templates != null && key >= 0 && key < templates.length ? templates[key] : null;
+    }
+
+    /**
+     * Gets a message
+     *
+     * @param   language
+     *          The language
+     *
+     * @param   path
+     *          The path in the language
+     *
+     * @return the message, or null if the language doesn't have it
+     */
+    public @Nullable PlaceholderTemplate get(String language, @NotNull String path) {
+        return get(language, key(path));
+    }
+}
@@ -0,0 +1,124 @@
+package dev.efnilite.witp.util.config;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A string split at its placeholders, so filling them in doesn't need any regex.
+ * <p>
+ * Placeholders are either named (e.g. %score%), in which case every value belongs to a name, or positional (%a to %z),
+ * in which case the values are filled in in order. Placeholders without a value are kept.
+ * </p>
+ */
+public class PlaceholderTemplate {
+
+    private final String[] parts; // the text around the placeholders, one more than the placeholders
+    private final String[] placeholders; // the placeholders as written, kept when there is no value
+    private final int[] slots; // the index of the value of every placeholder
+
+    private PlaceholderTemplate(List<String> parts, List<String> placeholders, List<Integer> slots) {
+        this.parts = parts.toArray(new String[0]);
+        this.placeholders = placeholders.toArray(new String[0]);
+        this.slots = new int[slots.size()];
+        for (int i = 0; i < this.slots.length; i++) {
+            this.slots[i] = slots.get(i);
+        }
+    }
+
+    /**
+     * Creates a new instance with positional placeholders (%a to %z), which are filled in in order
+     *
+     * @param   string
+     *          The string
+     *
+     * @return the template
+     */
+    public static PlaceholderTemplate positional(@NotNull String string) {
+        List<String> parts = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < string.length() - 1; i++) {
+            char next = string.charAt(i + 1);
+            if (string.charAt(i) == '%' && next >= 'a' && next <= 'z') {
+                parts.add(string.substring(start, i));
+                placeholders.add(string.substring(i, i + 2));
+                slots.add(slots.size());
+                start = i + 2;
+                i++;
+            }
+        }
+        parts.add(string.substring(start));
+        return new PlaceholderTemplate(parts, placeholders, slots);
+    }
+
+    /**
+     * Creates a new instance with named placeholders
+     *
+     * @param   string
+     *          The string
+     *
+     * @param   names
+     *          The placeholders, in the order of the values given to {@link #format(String...)}
+     *
+     * @return the template
+     */
+    public static PlaceholderTemplate named(@NotNull String string, @NotNull String... names) {
+        List<String> parts = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int start = 0;
+        int index = 0;
+        while (index < string.length()) {
+            int found = -1;
+            for (int i = 0; i < names.length; i++) {
+                if (string.startsWith(names[i], index)) {
+                    found = i;
+                    break;
+                }
+            }
+            if (found == -1) {
+                index++;
+                continue;
+            }
+            parts.add(string.substring(start, index));
+            placeholders.add(names[found]);
+            slots.add(found);
+            index += names[found].length();
+            start = index;
+        }
+        parts.add(string.substring(start));
+        return new PlaceholderTemplate(parts, placeholders, slots);
+    }
+
+    /**
+     * Returns whether the string has placeholders
+     *
+     * @return true if there is at least one placeholder
+     */
+    public boolean hasPlaceholders() {
+        return slots.length > 0;
+    }
+
+    /**
+     * Fills in the placeholders. Placeholders without a value are kept.
+     *
+     * @param   values
+     *          The values, in the order of the names given to {@link #named(String, String...)}, or in order for positional placeholders
+     *
+     * @return the string
+     */
+    public String format(String... values) {
+        if (slots.length == 0) {
+            return parts[0];
+        }
+        StringBuilder builder = new StringBuilder(parts[0]);
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slots[i];
+            builder.append(slot < values.length ? values[slot] : placeholders[i]).append(parts[i + 1]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,334 @@
+package dev.efnilite.witp.util.config;
+
+import dev.efnilite.witp.generator.reward.RewardAction;
+import dev.efnilite.witp.util.Util;
+import dev.efnilite.witp.util.Verbose;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The settings of config.yml, generation.yml and lang.yml at one point in time, together with the files themselves
+ * and the items of items.yml.
+ * <p>
+ * A snapshot never changes after it's been built. Reloading builds a new one, which replaces the current one
+ * all at once (see {@link Option#get()}), so anything that reads several settings should get the snapshot once
+ * and read them all from it.
+ * </p>
+ */
+public class Settings {
+
+    /**
+     * The placeholders of the scoreboard, in the order of their values
+     */
+    public static final String[] SCOREBOARD_PLACEHOLDERS = { "%score%", "%time%", "%highscore%", "%topscore%", "%topplayer%" };
+
+    // Generation
+    public final int normal;
+    public final int special;
+    public final int structures;
+
+    public final int specialIce;
+    public final int specialSlab;
+    public final int specialPane;
+    public final int specialFence;
+
+    public final int normalOneBlock;
+    public final int normalTwoBlock;
+    public final int normalThreeBlock;
+    public final int normalFourBlock;
+
+    public final int normalUp;
+    public final int normalLevel;
+    public final int normalDown;
+    public final int normalDown2;
+
+    public final int maxY;
+    public final int minY;
+
+    /**
+     * The type of each jump, picked at random: 0 = normal, 1 = structure, 2 = special
+     */
+    public final int[] jumpTypes;
+    /**
+     * The change in height of each jump, picked at random
+     */
+    public final int[] heights;
+    /**
+     * The type of each special jump, picked at random: 0 = ice, 1 = slab, 2 = pane, 3 = fence
+     */
+    public final int[] specialTypes;
+
+    // Config stuff
+    public final boolean rewards;
+    public final int rewardsInterval;
+    /**
+     * The rewards by the score at which they're given
+     */
+    public final Map<Integer, List<RewardAction>> rewardsScores;
+    /**
+     * The rewards by the score at which they're given, only once for every player
+     */
+    public final Map<Integer, List<RewardAction>> oneTimeRewardsScores;
+    public final Map<Integer, List<RewardAction>> onLeaveRewardsScores;
+    /**
+     * The rewards given at every interval and score, which are the commands, Vault reward and message
+     */
+    public final List<RewardAction> intervalRewards;
+
+    public final Option.ParticleShape particleShape;
+    public final Sound soundType;
+    public final int soundPitch;
+    public final Particle particleType;
+
+    public final boolean scoreboard;
+    public final boolean inventoryHandling;
+    public final String scoreboardTitle;
+    public final List<String> scoreboardLines;
+    public final PlaceholderTemplate scoreboardTitleTemplate;
+    public final List<PlaceholderTemplate> scoreboardLineTemplates;
+    public final boolean permissions;
+    public final boolean focusMode;
+    public final List<String> focusModeWhitelist;
+    public final boolean goBack;
+    public final boolean bungeecord;
+    public final boolean joinLeave;
+
+    public final List<Integer> possibleLeads;
+    /**
+     * The time zone of the daily, weekly and monthly leaderboards
+     */
+    public final ZoneId leaderboardZone;
+    public final boolean verbose;
+    public final List<String> languages;
+    public final boolean gameLogs;
+
+    public final boolean updater;
+
+    public final Option.Storage storage;
+
+    // MySQL
+    public final boolean sql;
+    public final int sqlPort;
+    public final String sqlUrl;
+    public final String sqlDb;
+    public final String sqlUsername;
+    public final String sqlPassword;
+    public final String sqlPrefix;
+    public final int sqlPoolSize;
+
+    // Advanced settings
+    public final double borderSize;
+    public final int generatorCheck;
+    public final double heightGap;
+    public final double multiplier;
+
+    public final int maxedOneBlock;
+    public final int maxedTwoBlock;
+    public final int maxedThreeBlock;
+    public final int maxedFourBlock;
+
+    public final String defaultLang;
+    public final String defaultStyle;
+
+    public final boolean joining;
+
+    /**
+     * The compiled messages of lang.yml
+     */
+    public final MessageCatalog messages;
+    /**
+     * The files these settings were read from, by name without .yml
+     */
+    public final Map<String, FileConfiguration> files;
+    /**
+     * The items of items.yml by language and path, made the first time they're used
+     */
+    final Map<String, Configuration.ItemTemplate> items = new ConcurrentHashMap<>();
+    /**
+     * The coloured labels of false and true by language, made the first time they're used
+     */
+    final Map<String, String[]> booleans = new ConcurrentHashMap<>();
+
+    /**
+     * Builds a snapshot. Doesn't have to be called on the main thread.
+     *
+     * @param   files
+     *          The files by name without .yml, see {@link Configuration#read()}
+     *
+     * @param   previous
+     *          The current snapshot, of which the settings that need a restart are kept, or null when starting
+     */
+    public Settings(@NotNull Map<String, FileConfiguration> files, @Nullable Settings previous) {
+        this.files = Collections.unmodifiableMap(new HashMap<>(files));
+        FileConfiguration gen = files.get("generation");
+        FileConfiguration config = files.get("config");
+        FileConfiguration lang = files.get("lang");
+
+        messages = MessageCatalog.compile(lang);
+
+        gameLogs = config.getBoolean("sql.game-logs");
+        List<String> languages = new ArrayList<>(lang.getConfigurationSection("messages").getKeys(false));
+        languages.remove("default");
+        this.languages = Collections.unmodifiableList(languages);
+        defaultLang = lang.getString("messages.default");
+        defaultStyle = config.getString("styles.default");
+
+        updater = config.getBoolean("update-checker");
+
+        joining = config.getBoolean("joining");
+
+        verbose = config.getBoolean("verbose");
+
+        sqlPort = config.getInt("sql.port");
+        sqlDb = config.getString("sql.database");
+        sqlUrl = config.getString("sql.url");
+        sqlUsername = config.getString("sql.username");
+        sqlPassword = config.getString("sql.password");
+        sqlPrefix = config.getString("sql.prefix");
+        sqlPoolSize = config.getInt("sql.pool-size");
+
+        normal = gen.getInt("generation.normal-jump.chance");
+        structures = gen.getInt("generation.structures.chance");
+        special = gen.getInt("generation.normal-jump.special.chance");
+
+        specialIce = gen.getInt("generation.normal-jump.special.ice");
+        specialSlab = gen.getInt("generation.normal-jump.special.slab");
+        specialPane = gen.getInt("generation.normal-jump.special.pane");
+        specialFence = gen.getInt("generation.normal-jump.special.fence");
+
+        normalOneBlock = gen.getInt("generation.normal-jump.1-block");
+        normalTwoBlock = gen.getInt("generation.normal-jump.2-block");
+        normalThreeBlock = gen.getInt("generation.normal-jump.3-block");
+        normalFourBlock = gen.getInt("generation.normal-jump.4-block");
+
+        normalUp = gen.getInt("generation.normal-jump.up");
+        normalLevel = gen.getInt("generation.normal-jump.level");
+        normalDown = gen.getInt("generation.normal-jump.down");
+        normalDown2 = gen.getInt("generation.normal-jump.down2");
+
+        maxY = gen.getInt("generation.settings.max-y");
+        minY = gen.getInt("generation.settings.min-y");
+
+        jumpTypes = sampler(new int[] { 0, 1, 2 }, normal, structures, special);
+        heights = sampler(new int[] { 1, 0, -1, -2 }, normalUp, normalLevel, normalDown, normalDown2);
+        specialTypes = sampler(new int[] { 0, 1, 2, 3 }, specialIce, specialSlab, specialPane, specialFence);
+
+        // Config stuff
+        rewardsScores = parseScores(config.getStringList("rewards.scores"));
+        oneTimeRewardsScores = parseScores(config.getStringList("rewards.one-time-scores"));
+        onLeaveRewardsScores = parseScores(config.getStringList("rewards.on-leave-scores"));
+
+        joinLeave = lang.getBoolean("messages.join-leave-enabled");
+        bungeecord = config.getBoolean("bungeecord.enabled");
+        rewards = config.getBoolean("rewards.enabled");
+        rewardsInterval = config.getInt("rewards.interval");
+        List<RewardAction> interval = new ArrayList<>(RewardAction.compile(config.getStringList("rewards.command")));
+        double money = config.getDouble("rewards.vault-reward");
+        if (money != 0) {
+            interval.add(new RewardAction.Money(money));
+        }
+        String message = config.getString("rewards.message");
+        if (message != null && !message.equalsIgnoreCase("null") && !message.equals("''") && !message.equals("")) {
+            interval.add(new RewardAction.Message(Util.color(message)));
+        }
+        intervalRewards = Collections.unmodifiableList(interval);
+
+        List<Integer> leads = new ArrayList<>(config.getIntegerList("lead.amount"));
+        for (int lead : new ArrayList<>(leads)) {
+            if (lead < 1) {
+                Verbose.error("Invalid lead in config: found " + lead + ", should be >1");
+                leads.remove((Object) lead);
+            }
+        }
+        possibleLeads = Collections.unmodifiableList(leads);
+
+        String zone = config.getString("leaderboard-time-zone", "UTC");
+        ZoneId leaderboardZone;
+        try {
+            leaderboardZone = ZoneId.of(zone);
+        } catch (DateTimeException ex) {
+            Verbose.error("Invalid leaderboard time zone in config: " + zone + ", using UTC");
+            leaderboardZone = ZoneOffset.UTC;
+        }
+        this.leaderboardZone = leaderboardZone;
+
+        scoreboard = lang.getBoolean("scoreboard.enabled");
+        scoreboardTitle = Util.color(lang.getString("scoreboard.title"));
+        scoreboardLines = Collections.unmodifiableList(Util.color(lang.getStringList("scoreboard.lines")));
+        scoreboardTitleTemplate = PlaceholderTemplate.named(scoreboardTitle, SCOREBOARD_PLACEHOLDERS);
+        List<PlaceholderTemplate> templates = new ArrayList<>(scoreboardLines.size());
+        for (String line : scoreboardLines) {
+            templates.add(PlaceholderTemplate.named(line, SCOREBOARD_PLACEHOLDERS));
+        }
+        scoreboardLineTemplates = Collections.unmodifiableList(templates);
+        inventoryHandling = config.getBoolean("options.inventory-handling");
+        permissions = config.getBoolean("permissions.enabled");
+        focusMode = config.getBoolean("focus-mode.enabled");
+        focusModeWhitelist = Collections.unmodifiableList(config.getStringList("focus-mode.whitelist"));
+
+        goBack = config.getBoolean("bungeecord.go-back-enabled");
+
+        soundType = Sound.valueOf(config.getString("particles.sound-type").toUpperCase());
+        soundPitch = config.getInt("particles.sound-pitch");
+        particleType = Particle.valueOf(config.getString("particles.particle-type").toUpperCase());
+        particleShape = Option.ParticleShape.valueOf(config.getString("particles.particle-shape").toUpperCase());
+
+        // Advanced settings
+        if (previous == null) {
+            borderSize = gen.getDouble("advanced.border-size");
+            sql = config.getBoolean("sql.enabled");
+            storage = Option.Storage.getStorage(config.getString("storage"));
+        } else { // these need a restart
+            borderSize = previous.borderSize;
+            sql = previous.sql;
+            storage = previous.storage;
+        }
+        generatorCheck = gen.getInt("advanced.generator-check");
+        heightGap = gen.getDouble("advanced.height-gap");
+        multiplier = gen.getInt("advanced.maxed-multiplier");
+
+        maxedOneBlock = gen.getInt("advanced.maxed-values.1-block");
+        maxedTwoBlock = gen.getInt("advanced.maxed-values.2-block");
+        maxedThreeBlock = gen.getInt("advanced.maxed-values.3-block");
+        maxedFourBlock = gen.getInt("advanced.maxed-values.4-block");
+    }
+
+    // score;;reward;;reward -> score: rewards, which are empty if the score only triggers the interval rewards
+    private static Map<Integer, List<RewardAction>> parseScores(List<String> list) {
+        Map<Integer, List<RewardAction>> scores = new HashMap<>();
+        for (String key : list) {
+            String[] values = key.split(";;");
+            try {
+                scores.put(Integer.parseInt(values[0].trim()), RewardAction.compile(Arrays.asList(values).subList(1, values.length)));
+            } catch (NumberFormatException ex) {
+                Verbose.error("Invalid reward score in config: " + key);
+            }
+        }
+        return Collections.unmodifiableMap(scores);
+    }
+
+    // every value is added as many times as its chance, so a random index picks a value by chance
+    private static int[] sampler(int[] values, int... chances) {
+        int total = 0;
+        for (int chance : chances) {
+            total += Math.max(chance, 0);
+        }
+        int[] sampler = new int[total];
+        int index = 0;
+        for (int i = 0; i < values.length; i++) {
+            for (int j = 0; j < chances[i]; j++) {
+                sampler[index++] = values[i];
+            }
+        }
+        return sampler;
+    }
+}
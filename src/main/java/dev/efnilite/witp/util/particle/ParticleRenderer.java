@@ -0,0 +1,83 @@
+package dev.efnilite.witp.util.particle;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Draws {@link ParticleShape}s for one player, with a max amount of particle packets per tick.
+ * <p>
+ * Every point of a shape is one packet, since a packet only has one position. If a shape has more points than
+ * there are left this tick, points are skipped evenly, so the shape is still recognisable.
+ * </p>
+ */
+public class ParticleRenderer {
+
+    /**
+     * The default max amount of packets per tick
+     */
+    public static final int DEFAULT_BUDGET = 100;
+
+    private final Player player;
+    private final int budget;
+    private long tick;
+    private int used;
+
+    public ParticleRenderer(@NotNull Player player) {
+        this(player, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Creates a new instance
+     *
+     * @param   player
+     *          The player who sees the particles
+     *
+     * @param   budget
+     *          The max amount of packets per tick
+     */
+    public ParticleRenderer(@NotNull Player player, int budget) {
+        this.player = player;
+        this.budget = budget;
+    }
+
+    /**
+     * Draws a shape
+     *
+     * @param   at
+     *          Where the origin of the shape is
+     *
+     * @param   shape
+     *          The shape
+     *
+     * @param   data
+     *          The particle data, which is used for every point
+     *
+     * @return the amount of points that were drawn
+     */
+    public <T> int draw(@NotNull Location at, @NotNull ParticleShape shape, @NotNull ParticleData<T> data) {
+        long now = System.currentTimeMillis() / 50;
+        if (now != tick) {
+            tick = now;
+            used = 0;
+        }
+        int left = budget - used;
+        int size = shape.size();
+        if (left <= 0 || size == 0) {
+            return 0;
+        }
+        double step = size > left ? (double) size / left : 1; // skip points evenly if there aren't enough left
+        double x = at.getX();
+        double y = at.getY();
+        double z = at.getZ();
+        int drawn = 0;
+        for (double i = 0; i < size && drawn < left; i += step) {
+            int index = (int) i;
+            player.spawnParticle(data.getType(), x + shape.getX(index), y + shape.getY(index), z + shape.getZ(index),
+                    data.getSize(), data.getOffsetX(), data.getOffsetY(), data.getOffsetZ(), data.getSpeed(), data.getData());
+            drawn++;
+        }
+        used += drawn;
+        return drawn;
+    }
+}
@@ -0,0 +1,149 @@
+package dev.efnilite.witp.util.particle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The points of a particle shape, relative to where it's drawn.
+ * <p>
+ * Shapes are computed once per size and never change, so they can be drawn by any number of players at once.
+ * Points which would be drawn more than once (e.g. the corners of a box) are only kept once.
+ * </p>
+ *
+ * @see ParticleRenderer
+ */
+public class ParticleShape {
+
+    private static final Map<String, ParticleShape> shapes = new ConcurrentHashMap<>();
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+
+    private ParticleShape(List<double[]> points) {
+        this.x = new double[points.size()];
+        this.y = new double[points.size()];
+        this.z = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            double[] point = points.get(i);
+            x[i] = point[0];
+            y[i] = point[1];
+            z[i] = point[2];
+        }
+    }
+
+    /**
+     * Gets a single point
+     *
+     * @return the shape
+     */
+    public static ParticleShape point() {
+        return shapes.computeIfAbsent("point", key -> {
+            List<double[]> points = new ArrayList<>();
+            points.add(new double[] { 0, 0, 0 });
+            return new ParticleShape(points);
+        });
+    }
+
+    /**
+     * Gets a flat circle around the origin
+     *
+     * @param   radius
+     *          The radius of the circle
+     *
+     * @param   amount
+     *          The amount of points
+     *
+     * @return the shape
+     */
+    public static ParticleShape circle(double radius, int amount) {
+        return shapes.computeIfAbsent("circle:" + radius + ":" + amount, key -> {
+            List<double[]> points = new ArrayList<>(amount);
+            double increment = (2 * Math.PI) / amount; // calc degree per amount, 2 x pi x r = circumference
+            for (int i = 0; i < amount; i++) {
+                double angle = i * increment;
+                points.add(new double[] { radius * Math.cos(angle), 0, radius * Math.sin(angle) });
+            }
+            return new ParticleShape(points);
+        });
+    }
+
+    /**
+     * Gets the edges of a cube, with the origin as its lowest corner
+     *
+     * @param   size
+     *          The length of the edges
+     *
+     * @param   distanceBetween
+     *          The distance between the points on an edge
+     *
+     * @return the shape
+     */
+    public static ParticleShape cube(double size, double distanceBetween) {
+        return shapes.computeIfAbsent("cube:" + size + ":" + distanceBetween, key -> {
+            double[][] corners = new double[8][];
+            for (int i = 0; i < 8; i++) {
+                corners[i] = new double[] { (i & 1) * size, ((i >> 1) & 1) * size, ((i >> 2) & 1) * size };
+            }
+            Set<List<Double>> points = new LinkedHashSet<>(); // removes the corners every edge shares
+            for (int a = 0; a < 8; a++) {
+                for (int b = a + 1; b < 8; b++) {
+                    int differ = a ^ b;
+                    if (differ == 1 || differ == 2 || differ == 4) { // only one axis is different, so it's an edge
+                        line(corners[a], corners[b], size, distanceBetween, points);
+                    }
+                }
+            }
+            List<double[]> list = new ArrayList<>(points.size());
+            for (List<Double> point : points) {
+                list.add(new double[] { point.get(0), point.get(1), point.get(2) });
+            }
+            return new ParticleShape(list);
+        });
+    }
+
+    // both ends and every distanceBetween in between
+    private static void line(double[] from, double[] to, double length, double distanceBetween, Set<List<Double>> points) {
+        int steps = (int) Math.ceil(length / distanceBetween);
+        for (int i = 0; i < steps; i++) {
+            double progress = (i * distanceBetween) / length;
+            points.add(point(from[0] + (to[0] - from[0]) * progress, from[1] + (to[1] - from[1]) * progress,
+                    from[2] + (to[2] - from[2]) * progress));
+        }
+        points.add(point(to[0], to[1], to[2]));
+    }
+
+    // rounded so points on different edges are the same
+    private static List<Double> point(double x, double y, double z) {
+        List<Double> point = new ArrayList<>(3);
+        point.add(Math.round(x * 1000) / 1000.0);
+        point.add(Math.round(y * 1000) / 1000.0);
+        point.add(Math.round(z * 1000) / 1000.0);
+        return point;
+    }
+
+    /**
+     * Gets the amount of points
+     *
+     * @return the amount
+     */
+    public int size() {
+        return x.length;
+    }
+
+    double getX(int index) {
+        return x[index];
+    }
+
+    double getY(int index) {
+        return y[index];
+    }
+
+    double getZ(int index) {
+        return z[index];
+    }
+}
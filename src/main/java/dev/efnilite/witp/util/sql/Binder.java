@@ -0,0 +1,102 @@
+package dev.efnilite.witp.util.sql;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * Binds a value to a parameter ('?') of a prepared statement.
+ */
+@FunctionalInterface
+public interface Binder {
+
+    /**
+     * Binds the value
+     *
+     * @param   statement
+     *          The statement
+     *
+     * @param   index
+     *          The index of the parameter, starting at 1
+     *
+     * @throws  SQLException
+     *          If binding goes wrong
+     */
+    void bind(PreparedStatement statement, int index) throws SQLException;
+
+    static Binder string(@Nullable String value) {
+        return (statement, index) -> {
+            if (value == null) {
+                statement.setNull(index, Types.VARCHAR);
+            } else {
+                statement.setString(index, value);
+            }
+        };
+    }
+
+    static Binder integer(int value) {
+        return (statement, index) -> statement.setInt(index, value);
+    }
+
+    static Binder bigInteger(long value) {
+        return (statement, index) -> statement.setLong(index, value);
+    }
+
+    static Binder decimal(double value) {
+        return (statement, index) -> statement.setDouble(index, value);
+    }
+
+    static Binder bool(boolean value) {
+        return (statement, index) -> statement.setBoolean(index, value);
+    }
+
+    static Binder uuid(UUID value) {
+        return string(value.toString());
+    }
+
+    /**
+     * Gets the binder for a value based on its type
+     *
+     * @param   value
+     *          The value, which may already be a binder
+     *
+     * @return the binder
+     */
+    static Binder of(@Nullable Object value) {
+        if (value instanceof Binder) {
+            return (Binder) value;
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return integer(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            return bigInteger((Long) value);
+        } else if (value instanceof Number) {
+            return decimal(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            return bool((Boolean) value);
+        } else if (value == null) {
+            return (statement, index) -> statement.setNull(index, Types.NULL);
+        }
+        return string(value.toString());
+    }
+
+    /**
+     * Binds all values to a statement, in order
+     *
+     * @param   statement
+     *          The statement
+     *
+     * @param   values
+     *          The values
+     *
+     * @throws  SQLException
+     *          If binding goes wrong
+     */
+    static void bindAll(PreparedStatement statement, Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            of(values[i]).bind(statement, i + 1);
+        }
+    }
+}
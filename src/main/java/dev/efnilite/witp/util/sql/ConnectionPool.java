@@ -0,0 +1,273 @@
+package dev.efnilite.witp.util.sql;
+
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.config.Option;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small pool of database connections.
+ * <p>
+ * Connections are validated before they are handed out if they have been idle for a while, and replaced
+ * once they reach their max lifetime. Leases which are held for too long are reported with the place they
+ * were taken from (if verbose is enabled).
+ * </p>
+ */
+public class ConnectionPool {
+
+    /**
+     * Connections older than this (in ms) are closed and replaced
+     */
+    private static final long MAX_LIFETIME = TimeUnit.MINUTES.toMillis(30);
+    /**
+     * Connections idle for longer than this (in ms) are validated before they're used
+     */
+    private static final long VALIDATE_AFTER = TimeUnit.SECONDS.toMillis(30);
+    /**
+     * Leases held for longer than this (in ms) are reported as leaks
+     */
+    private static final long LEAK_THRESHOLD = TimeUnit.SECONDS.toMillis(60);
+
+    private volatile boolean closed;
+    private final int size;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final AtomicInteger total;
+    private final Set<Lease> leased;
+    private final LinkedBlockingDeque<PooledConnection> idle;
+
+    public ConnectionPool(String url, String username, String password, int size) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.size = Math.max(1, size);
+        this.total = new AtomicInteger(0);
+        this.leased = ConcurrentHashMap.newKeySet();
+        this.idle = new LinkedBlockingDeque<>();
+    }
+
+    /**
+     * Takes a connection from the pool, opening a new one if there is room
+     *
+     * @param   timeout
+     *          The max time to wait for a connection, in ms
+     *
+     * @return a lease, which has to be closed to return the connection
+     *
+     * @throws  SQLException
+     *          If no connection could be made or none became available in time
+     */
+    public @NotNull Lease borrow(long timeout) throws SQLException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (!closed) {
+            PooledConnection pooled = idle.pollFirst();
+            if (pooled == null) {
+                pooled = open();
+            }
+            if (pooled == null) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new SQLException("Timed out after " + timeout + "ms while waiting for a database connection");
+                }
+                try {
+                    pooled = idle.pollFirst(remaining, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database connection", ex);
+                }
+                if (pooled == null) {
+                    continue;
+                }
+            }
+            if (!isUsable(pooled)) {
+                discard(pooled);
+                continue;
+            }
+            Lease lease = new Lease(pooled);
+            leased.add(lease);
+            return lease;
+        }
+        throw new SQLException("Connection pool is closed");
+    }
+
+    /**
+     * Reports every lease which has been held for longer than the leak threshold
+     */
+    public void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (Lease lease : leased) {
+            if (!lease.reported && now - lease.since > LEAK_THRESHOLD) {
+                lease.reported = true;
+                Verbose.error("Possible database connection leak, connection has been in use for " + (now - lease.since) + "ms");
+                if (lease.origin != null) {
+                    lease.origin.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes all connections. Leased connections are closed when they're returned.
+     */
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Gets the amount of open connections
+     *
+     * @return the amount of connections
+     */
+    public int getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Gets the amount of connections which are currently in use
+     *
+     * @return the amount of leased connections
+     */
+    public int getLeased() {
+        return leased.size();
+    }
+
+    // opens a new connection if the pool isn't full, or returns null if it is
+    private PooledConnection open() throws SQLException {
+        int current;
+        do {
+            current = total.get();
+            if (current >= size) {
+                return null;
+            }
+        } while (!total.compareAndSet(current, current + 1));
+        try {
+            return new PooledConnection(DriverManager.getConnection(url, username, password));
+        } catch (SQLException ex) {
+            total.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.currentTimeMillis();
+        if (now - pooled.created > MAX_LIFETIME) {
+            return false;
+        }
+        if (now - pooled.lastUsed > VALIDATE_AFTER) {
+            try {
+                return pooled.connection.isValid(2);
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void release(Lease lease, boolean broken) {
+        leased.remove(lease);
+        PooledConnection pooled = lease.pooled;
+        if (closed || broken) {
+            discard(pooled);
+            return;
+        }
+        pooled.lastUsed = System.currentTimeMillis();
+        idle.offerFirst(pooled); // the most recently used connection is the least likely to have gone stale
+    }
+
+    private void discard(PooledConnection pooled) {
+        total.decrementAndGet();
+        pooled.statements.close();
+        try {
+            pooled.connection.close();
+        } catch (SQLException ex) {
+            Verbose.verbose("Error while closing database connection: " + ex.getMessage());
+        }
+    }
+
+    private static class PooledConnection {
+
+        private final Connection connection;
+        private final StatementCache statements;
+        private final long created;
+        private volatile long lastUsed;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.statements = new StatementCache(connection);
+            this.created = System.currentTimeMillis();
+            this.lastUsed = created;
+        }
+    }
+
+    /**
+     * A connection which has been taken from the pool. Closing it returns the connection.
+     */
+    public class Lease implements AutoCloseable {
+
+        private final PooledConnection pooled;
+        private final long since;
+        private final Throwable origin;
+        private volatile boolean reported;
+        private boolean broken;
+        private boolean released;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+            this.since = System.currentTimeMillis();
+            this.origin = Option.get().verbose ? new Throwable("Connection taken here") : null; // only when debugging, since it's slow
+        }
+
+        public Connection getConnection() {
+            return pooled.connection;
+        }
+
+        /**
+         * Gets a cached prepared statement of this connection. It should not be closed.
+         *
+         * @param   sql
+         *          The SQL, with '?' for parameters
+         *
+         * @param   params
+         *          The parameters, bound using {@link Binder#of(Object)}
+         *
+         * @return the statement
+         *
+         * @throws  SQLException
+         *          If preparing or binding goes wrong
+         */
+        public PreparedStatement prepare(String sql, Object... params) throws SQLException {
+            PreparedStatement statement = pooled.statements.prepare(sql);
+            Binder.bindAll(statement, params);
+            return statement;
+        }
+
+        /**
+         * Marks this connection as broken, so it's closed instead of returned to the pool
+         */
+        public void setBroken() {
+            this.broken = true;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(this, broken);
+            }
+        }
+    }
+}
@@ -2,25 +2,35 @@ package dev.efnilite.witp.util.sql;
 
 import dev.efnilite.witp.util.Verbose;
 import dev.efnilite.witp.util.config.Option;
-import org.jetbrains.annotations.Nullable;
+import dev.efnilite.witp.util.task.Tasks;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * # Options for MySQL
+ * <p>
+ * All queries are run by a {@link DatabaseExecutor}, using connections from a {@link ConnectionPool}.
+ * </p>
  **/
 
 public class Database {
 
-    private Connection connection;
-    private String database;
+    private ConnectionPool pool;
+    private DatabaseExecutor executor;
+    private BukkitTask leakDetector;
 
     public void connect(String url, int port, String database, String username, String password) {
-        this.database = database;
-
         try {
             Verbose.info("Connecting to SQL...");
             try {
@@ -28,10 +38,13 @@ public class Database {
             } catch (ClassNotFoundException ignored) {
                 Class.forName("com.mysql.jdbc.Driver"); // For older versions
             }
-            connection = DriverManager.getConnection("jdbc:mysql://" + url + ":" + port + "/" + database
+            pool = new ConnectionPool("jdbc:mysql://" + url + ":" + port + "/" + database
                     + "?allowPublicKeyRetrieval=true&useSSL=false&useUnicode=true&characterEncoding=utf-8"
-                    + "&autoReconnect=true", username, password);
+                    + "&createDatabaseIfNotExist=true&useServerPrepStmts=true&rewriteBatchedStatements=true&useCursorFetch=true", username, password, Option.get().sqlPoolSize);
+            executor = new DatabaseExecutor(pool, Option.get().sqlPoolSize);
+            execute(connection -> null); // checks whether a connection can be made
             init();
+            leakDetector = Tasks.asyncRepeat(pool::detectLeaks, 30 * 20);
             Verbose.info("Connected to SQL!");
         } catch (SQLException | ClassNotFoundException ex) {
             ex.printStackTrace();
@@ -39,9 +52,18 @@ public class Database {
         }
     }
 
-    public void query(String query) {
+    /**
+     * Runs an update. Values are bound to the '?' parameters in the query.
+     *
+     * @param   query
+     *          The query
+     *
+     * @param   params
+     *          The values of the parameters, in order
+     */
+    public void query(String query, Object... params) {
         try {
-            connection.prepareStatement(query).executeUpdate();
+            execute(connection -> connection.prepare(query, params).executeUpdate());
         } catch (SQLException ex) {
             ex.printStackTrace();
             Verbose.error("Error while trying to update MySQL database!");
@@ -49,53 +71,329 @@ public class Database {
         }
     }
 
+    /**
+     * Runs an update for multiple rows in one JDBC batch, which the driver sends as a single multi-row statement.
+     * All rows are written in one transaction.
+     *
+     * @param   query
+     *          The query, with '?' for the values of a row
+     *
+     * @param   rows
+     *          The values of every row, in order
+     *
+     * @throws  SQLException
+     *          If the update fails, in which case none of the rows are written
+     */
+    public void batch(String query, List<Object[]> rows) throws SQLException {
+        try {
+            execute(connection -> {
+                Connection sql = connection.getConnection();
+                PreparedStatement statement = connection.prepare(query);
+                sql.setAutoCommit(false);
+                try {
+                    for (Object[] row : rows) {
+                        Binder.bindAll(statement, row);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    sql.commit();
+                } catch (SQLException ex) {
+                    sql.rollback();
+                    throw ex;
+                } finally {
+                    statement.clearBatch(); // the statement is cached, so it can't keep half a batch
+                    sql.setAutoCommit(true);
+                }
+                return null;
+            });
+        } catch (SQLException ex) {
+            Verbose.error("Error while trying to update MySQL database!");
+            Verbose.error("Query: " + query + " (" + rows.size() + " rows)");
+            throw ex;
+        }
+    }
+
     public void suppressedQuery(String query) {
         try {
-            connection.prepareStatement(query).executeUpdate();
+            execute(connection -> {
+                try (java.sql.Statement statement = connection.getConnection().createStatement()) { // not cached, since these only run once
+                    statement.executeUpdate(query);
+                }
+                return null;
+            });
         } catch (SQLException ex) {
             // lol
         }
     }
 
-    public @Nullable ResultSet resultQuery(String query) {
+    /**
+     * Runs a query and reads the results. The result set is closed afterwards.
+     * Values are bound to the '?' parameters in the query.
+     *
+     * @param   query
+     *          The query
+     *
+     * @param   reader
+     *          Reads the results
+     *
+     * @param   params
+     *          The values of the parameters, in order
+     *
+     * @param   <T>
+     *          The type of the result
+     *
+     * @return what the reader returned
+     *
+     * @throws  SQLException
+     *          If the query fails
+     */
+    public <T> T resultQuery(String query, @NotNull ResultReader<T> reader, Object... params) throws SQLException {
         try {
-            return connection.prepareStatement(query).executeQuery();
+            return execute(connection -> {
+                try (ResultSet set = connection.prepare(query, params).executeQuery()) {
+                    return reader.read(set);
+                }
+            });
         } catch (SQLException ex) {
-            ex.printStackTrace();
             Verbose.error("Error while trying to fetch from MySQL database!");
             Verbose.error("Query: " + query);
-            return null;
+            throw ex;
         }
     }
 
-    private void init() {
-        query("CREATE DATABASE IF NOT EXISTS `" + database + "`;");
-        query("USE `" + database + "`;");
+    /**
+     * Runs a query and passes every row to a consumer as soon as it's read, so large results never have to be
+     * in memory at once. Values are bound to the '?' parameters in the query.
+     *
+     * @param   query
+     *          The query
+     *
+     * @param   fetchSize
+     *          The amount of rows which are fetched from the server at once, or 0 to fetch all rows at once
+     *
+     * @param   mapper
+     *          Maps every row
+     *
+     * @param   consumer
+     *          Receives every mapped row, on the database thread
+     *
+     * @param   params
+     *          The values of the parameters, in order
+     *
+     * @param   <T>
+     *          The type of the mapped rows
+     *
+     * @return the amount of rows
+     *
+     * @throws  SQLException
+     *          If the query fails
+     */
+    public <T> int stream(String query, int fetchSize, @NotNull RowMapper<T> mapper, @NotNull Consumer<T> consumer,
+                          Object... params) throws SQLException {
+        try {
+            return execute(connection -> {
+                PreparedStatement statement = connection.prepare(query, params);
+                statement.setFetchSize(fetchSize);
+                int rows = 0;
+                try (ResultSet set = statement.executeQuery()) {
+                    while (set.next()) {
+                        consumer.accept(mapper.map(set));
+                        rows++;
+                    }
+                } finally {
+                    statement.setFetchSize(0); // the statement is cached
+                }
+                return rows;
+            });
+        } catch (SQLException ex) {
+            Verbose.error("Error while trying to fetch from MySQL database!");
+            Verbose.error("Query: " + query);
+            throw ex;
+        }
+    }
+
+    /**
+     * Runs a query and maps every row. Values are bound to the '?' parameters in the query.
+     *
+     * @param   query
+     *          The query
+     *
+     * @param   mapper
+     *          Maps every row
+     *
+     * @param   params
+     *          The values of the parameters, in order
+     *
+     * @param   <T>
+     *          The type of the mapped rows
+     *
+     * @return the mapped rows, in order
+     *
+     * @throws  SQLException
+     *          If the query fails
+     */
+    public <T> List<T> list(String query, @NotNull RowMapper<T> mapper, Object... params) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        stream(query, 0, mapper, rows::add, params);
+        return rows;
+    }
+
+    /**
+     * Runs work with a connection on the database threads, without waiting for it
+     *
+     * @see DatabaseExecutor#submit(DatabaseExecutor.SqlTask)
+     */
+    public <T> CompletableFuture<T> submit(@NotNull DatabaseExecutor.SqlTask<T> task) {
+        return executor.submit(task);
+    }
 
-        query("CREATE TABLE IF NOT EXISTS `" + Option.SQL_PREFIX + "players` (`uuid` CHAR(36) NOT NULL, `name` VARCHAR(20) NULL, `highscore` INT NOT NULL, " +
+    /**
+     * Runs work with a connection on the database threads and waits for it
+     *
+     * @see DatabaseExecutor#execute(DatabaseExecutor.SqlTask)
+     */
+    public <T> T execute(@NotNull DatabaseExecutor.SqlTask<T> task) throws SQLException {
+        if (executor == null) {
+            throw new SQLException("Not connected to the database");
+        }
+        return executor.execute(task);
+    }
+
+    /**
+     * Gets statistics about the queries, used by /witp database
+     *
+     * @return the statistics as lines
+     */
+    public String[] getMetrics() {
+        return executor != null ? executor.getMetrics() : new String[] { "Not connected" };
+    }
+
+    private void init() {
+        query("CREATE TABLE IF NOT EXISTS `" + Option.get().sqlPrefix + "players` (`uuid` CHAR(36) NOT NULL, `name` VARCHAR(20) NULL, `highscore` INT NOT NULL, " +
                 "`hstime` VARCHAR(13) NULL, PRIMARY KEY (`uuid`)) ENGINE = InnoDB CHARSET = utf8;");
-        query("CREATE TABLE IF NOT EXISTS `" + Option.SQL_PREFIX + "options` (`uuid` CHAR(36) NOT NULL, `time` VARCHAR(8), `style` VARCHAR(10)," +
+        query("CREATE TABLE IF NOT EXISTS `" + Option.get().sqlPrefix + "options` (`uuid` CHAR(36) NOT NULL, `time` VARCHAR(8), `style` VARCHAR(10)," +
                 " `blockLead` INT, `useParticles` BOOLEAN, `useDifficulty` BOOLEAN, `useStructure` BOOLEAN, `useSpecial` BOOLEAN, " +
                 "`showFallMsg` BOOLEAN, `showScoreboard` BOOLEAN, PRIMARY KEY (`uuid`)) ENGINE = InnoDB CHARSET = utf8;");
-        query("CREATE TABLE IF NOT EXISTS `" + Option.SQL_PREFIX + "game-history` (`code` CHAR(9) NOT NULL, `uuid` VARCHAR(36), " +
+        query("CREATE TABLE IF NOT EXISTS `" + Option.get().sqlPrefix + "game-history` (`code` CHAR(14) NOT NULL, `uuid` VARCHAR(36), " +
                 "`name` VARCHAR(20), `score` VARCHAR(10), `hstime` VARCHAR(13) NULL, `difficultyScore` DECIMAL, PRIMARY KEY (`code`)) ENGINE = InnoDB CHARSET = utf8;");
-        suppressedQuery("ALTER TABLE `" + Option.SQL_PREFIX + "players` ADD `lang` VARCHAR(5)");
-        suppressedQuery("ALTER TABLE `" + Option.SQL_PREFIX + "players` ADD `hsdiff` VARCHAR(3)");
-        suppressedQuery("ALTER TABLE `" + Option.SQL_PREFIX + "game-history` ADD `scoreDiff` VARCHAR(3)");
+        query("CREATE TABLE IF NOT EXISTS `" + Option.get().sqlPrefix + "periods` (`period` VARCHAR(7) NOT NULL, `window` VARCHAR(10) NOT NULL, " +
+                "`uuid` CHAR(36) NOT NULL, `name` VARCHAR(20), `score` INT NOT NULL, `hstime` VARCHAR(13), `hsdiff` VARCHAR(3), " +
+                "PRIMARY KEY (`period`, `uuid`)) ENGINE = InnoDB CHARSET = utf8;");
+        query("CREATE TABLE IF NOT EXISTS `" + Option.get().sqlPrefix + "nodes` (`id` INT NOT NULL AUTO_INCREMENT, `created` BIGINT NOT NULL, " +
+                "PRIMARY KEY (`id`)) ENGINE = InnoDB CHARSET = utf8;");
+        query("CREATE TABLE IF NOT EXISTS `" + Option.get().sqlPrefix + "rewards` (`uuid` CHAR(36) NOT NULL, `score` INT NOT NULL, " +
+                "PRIMARY KEY (`uuid`, `score`)) ENGINE = InnoDB CHARSET = utf8;");
+        query("CREATE TABLE IF NOT EXISTS `" + Option.get().sqlPrefix + "schema` (`version` INT NOT NULL, PRIMARY KEY (`version`)) ENGINE = InnoDB CHARSET = utf8;");
+        try {
+            migrate();
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            Verbose.error("Error while trying to read the version of the database tables, some features may not work!");
+        }
         Verbose.info("Initialized database");
     }
 
+    // runs the migrations which haven't been run yet, in order, and remembers every one that was run.
+    // a migration that fails only holds back the migrations that require it
+    private void migrate() throws SQLException {
+        String schema = "`" + Option.get().sqlPrefix + "schema`";
+        Set<Integer> applied = new HashSet<>(list("SELECT `version` FROM " + schema + ";", set -> set.getInt(1)));
+        for (Migration migration : Migration.values()) {
+            if (applied.contains(migration.version)) {
+                continue;
+            }
+            if (migration.requires != 0 && !applied.contains(migration.requires)) {
+                Verbose.error("Skipped updating database tables to version " + migration.version
+                        + ", since it needs version " + migration.requires + " which couldn't be run");
+                continue;
+            }
+            Verbose.info("Updating database tables to version " + migration.version + "..");
+            try {
+                for (String statement : migration.statements) {
+                    String sql = statement.replace("%prefix%", Option.get().sqlPrefix);
+                    if (migration.lenient) {
+                        suppressedQuery(sql);
+                    } else {
+                        execute(connection -> {
+                            try (java.sql.Statement update = connection.getConnection().createStatement()) {
+                                update.executeUpdate(sql);
+                            }
+                            return null;
+                        });
+                    }
+                }
+                execute(connection -> connection.prepare("INSERT INTO " + schema + " (`version`) VALUES (?);", migration.version).executeUpdate());
+                applied.add(migration.version);
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+                Verbose.error("Error while trying to update the database tables to version " + migration.version + "!");
+            }
+        }
+    }
+
+    /**
+     * Finishes all queued queries and closes all connections
+     */
     public void close() {
-        try {
-            connection.close();
-            Verbose.info("Closed connection to MySQL");
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            Verbose.error("Error while trying to close connection to MySQL database!");
+        if (leakDetector != null) {
+            leakDetector.cancel();
+        }
+        if (executor != null) {
+            executor.shutdown(30_000);
+        }
+        if (pool != null) {
+            pool.close();
+        }
+        Verbose.info("Closed connection to MySQL");
+    }
+
+    /**
+     * The changes to the tables, in order. Every migration is only run once, after which its version is stored.
+     * A migration that fails is tried again on the next start, and holds back the migrations which require it.
+     * New migrations should be added at the end.
+     */
+    private enum Migration {
+
+        // the changes from before tables were versioned, which may already have been made
+        LEGACY(1, 0, true,
+                "ALTER TABLE `%prefix%players` ADD `lang` VARCHAR(5)",
+                "ALTER TABLE `%prefix%players` ADD `hsdiff` VARCHAR(3)",
+                "ALTER TABLE `%prefix%game-history` ADD `scoreDiff` VARCHAR(3)",
+                "ALTER TABLE `%prefix%game-history` MODIFY `code` CHAR(12) NOT NULL",
+                "CREATE INDEX `%prefix%players_highscore` ON `%prefix%players` (`highscore` DESC, `uuid`)"),
+        // typed game history with the time of every run, indexed for the stats of a player
+        GAME_HISTORY_STATS(2, 1, false,
+                "ALTER TABLE `%prefix%game-history` MODIFY `score` INT NOT NULL DEFAULT 0, "
+                        + "ADD `played` BIGINT NOT NULL DEFAULT 0, ADD `duration` INT NULL, "
+                        + "ADD INDEX `%prefix%game-history_player` (`uuid`, `played`, `score`, `duration`), "
+                        + "ADD INDEX `%prefix%game-history_played` (`played`)"),
+        // codes with the number of the server, which is given out by the nodes table
+        GAME_HISTORY_NODES(3, 1, false,
+                "ALTER TABLE `%prefix%game-history` MODIFY `code` CHAR(14) NOT NULL");
+
+        private final int version;
+        private final int requires; // the version this needs, or 0 if it doesn't need any
+        private final boolean lenient; // whether errors are ignored
+        private final String[] statements;
+
+        Migration(int version, int requires, boolean lenient, String... statements) {
+            this.version = version;
+            this.requires = requires;
+            this.lenient = lenient;
+            this.statements = statements;
         }
     }
 
-    public Connection getConnection() {
-        return connection;
+    /**
+     * Reads the results of a query
+     *
+     * @param   <T>
+     *          The type of the result
+     */
+    @FunctionalInterface
+    public interface ResultReader<T> {
+
+        T read(ResultSet set) throws SQLException;
+
     }
 }
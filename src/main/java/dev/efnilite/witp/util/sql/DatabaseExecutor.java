@@ -0,0 +1,200 @@
+package dev.efnilite.witp.util.sql;
+
+import dev.efnilite.witp.WITP;
+import dev.efnilite.witp.util.Verbose;
+import dev.efnilite.witp.util.task.Tasks;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.SQLException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs all database work on a few dedicated threads, each with a connection from the {@link ConnectionPool}.
+ * <p>
+ * The queue is bounded. Async callers wait when it's full, so a slow database slows down the producers instead
+ * of letting the queue grow forever. The main thread never waits: its work is handed to an async task instead.
+ * </p>
+ */
+public class DatabaseExecutor {
+
+    /**
+     * The max amount of tasks waiting to be run
+     */
+    private static final int QUEUE_SIZE = 500;
+    /**
+     * The max time (in ms) to wait for a connection
+     */
+    private static final long CONNECTION_TIMEOUT = 10_000;
+
+    private final ConnectionPool pool;
+    private final ThreadPoolExecutor executor;
+    private final BlockingQueue<Runnable> queue;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong handedOff = new AtomicLong();
+    private final AtomicLong totalWait = new AtomicLong(); // in ns
+    private final AtomicLong totalLatency = new AtomicLong(); // in ns
+    private final AtomicLong maxLatency = new AtomicLong(); // in ns
+
+    public DatabaseExecutor(@NotNull ConnectionPool pool, int threads) {
+        this.pool = pool;
+        this.queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, "WITP Database #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.prestartAllCoreThreads(); // tasks are put in the queue directly, so the threads have to exist
+    }
+
+    /**
+     * Submits work to the database threads
+     *
+     * @param   task
+     *          The work, which gets a connection to use
+     *
+     * @param   <T>
+     *          The type of the result
+     *
+     * @return a future with the result of the work
+     */
+    public <T> CompletableFuture<T> submit(@NotNull SqlTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queued = System.nanoTime();
+        Runnable runnable = () -> run(task, future, queued);
+
+        if (executor.isShutdown()) {
+            future.completeExceptionally(new SQLException("Database has been closed"));
+        } else if (Bukkit.isPrimaryThread() && WITP.getInstance().isEnabled()) {
+            if (!queue.offer(runnable)) { // never block the main thread
+                handedOff.incrementAndGet();
+                Tasks.asyncTask(() -> enqueue(runnable, future));
+            }
+        } else {
+            enqueue(runnable, future);
+        }
+        return future;
+    }
+
+    /**
+     * Runs work on the database threads and waits for the result.
+     * Should not be used on the main thread, since it blocks until the work is done.
+     *
+     * @param   task
+     *          The work, which gets a connection to use
+     *
+     * @param   <T>
+     *          The type of the result
+     *
+     * @return the result of the work
+     *
+     * @throws  SQLException
+     *          If the work failed
+     */
+    public <T> T execute(@NotNull SqlTask<T> task) throws SQLException {
+        try {
+            return submit(task).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    /**
+     * Runs all queued work and stops the threads
+     *
+     * @param   timeout
+     *          The max time to wait, in ms
+     */
+    public void shutdown(long timeout) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                Verbose.error("Not all database tasks could be finished in time, " + queue.size() + " remain");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets a summary of the executor statistics, used by /witp database
+     *
+     * @return the statistics as lines
+     */
+    public String[] getMetrics() {
+        long done = completed.get() + failed.get();
+        return new String[] {
+                "Queue: " + queue.size() + "/" + QUEUE_SIZE + " (" + executor.getActiveCount() + " running)",
+                "Connections: " + pool.getLeased() + " in use, " + pool.getTotal() + " open",
+                "Completed: " + completed.get() + ", failed: " + failed.get() + ", handed off from main thread: " + handedOff.get(),
+                "Average wait: " + toMillis(done == 0 ? 0 : totalWait.get() / done) + "ms",
+                "Average query time: " + toMillis(done == 0 ? 0 : totalLatency.get() / done) + "ms (max " + toMillis(maxLatency.get()) + "ms)"
+        };
+    }
+
+    private void enqueue(Runnable runnable, CompletableFuture<?> future) {
+        try {
+            queue.put(runnable); // waits if the queue is full
+            if (executor.isShutdown() && queue.remove(runnable)) {
+                future.completeExceptionally(new SQLException("Database has been closed"));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(ex);
+        }
+    }
+
+    private <T> void run(SqlTask<T> task, CompletableFuture<T> future, long queued) {
+        long start = System.nanoTime();
+        totalWait.addAndGet(start - queued);
+        try (ConnectionPool.Lease lease = pool.borrow(CONNECTION_TIMEOUT)) {
+            try {
+                future.complete(task.run(lease));
+                completed.incrementAndGet();
+            } catch (SQLException ex) {
+                if (ex.getSQLState() != null && ex.getSQLState().startsWith("08")) { // connection errors
+                    lease.setBroken();
+                }
+                throw ex;
+            }
+        } catch (Throwable throwable) {
+            failed.incrementAndGet();
+            future.completeExceptionally(throwable);
+        } finally {
+            long latency = System.nanoTime() - start;
+            totalLatency.addAndGet(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Work which uses a database connection
+     *
+     * @param   <T>
+     *          The type of the result
+     */
+    @FunctionalInterface
+    public interface SqlTask<T> {
+
+        T run(ConnectionPool.Lease connection) throws SQLException;
+
+    }
+}
@@ -21,31 +21,7 @@ public class InsertStatement extends Statement {
         if (values.size() == 0) {
             throw new InvalidStatementException("Invalid InsertStatement");
         }
-        StringBuilder statement = new StringBuilder("INSERT INTO `" + table + "` (");
-        int i = 0;
-        int im = values.keySet().size();
-        for (String key : values.keySet()) {
-            statement.append("`").append(key).append("`");
-            i++;
-            if (i != im) {
-                statement.append(", ");
-            }
-        }
-        statement.append(") VALUES (");
-        i = 0;
-        for (String key : values.keySet()) {
-            Object value = values.get(key);
-            if (value instanceof Number || value instanceof Boolean) {
-                statement.append(value);
-            } else {
-                statement.append("'").append(value).append("'");
-            }
-            i++;
-            if (i != im) {
-                statement.append(", ");
-            }
-        }
-        statement.append(");");
-        database.query(statement.toString());
+        String statement = "INSERT INTO `" + table + "` (" + columns(values.keySet(), "") + ") VALUES (" + parameters(values.size()) + ");";
+        database.query(statement, values.values().toArray());
     }
 }
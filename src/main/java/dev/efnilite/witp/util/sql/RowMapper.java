@@ -0,0 +1,17 @@
+package dev.efnilite.witp.util.sql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to an object. Shouldn't move the cursor.
+ *
+ * @param   <T>
+ *          The type of the object
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    T map(ResultSet set) throws SQLException;
+
+}
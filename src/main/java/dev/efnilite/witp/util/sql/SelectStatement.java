@@ -1,27 +1,57 @@
 package dev.efnilite.witp.util.sql;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.function.Consumer;
 
+/**
+ * A select of which the rows are mapped to typed objects using a {@link RowMapper}.
+ * <p>
+ * Large selects should use {@link #stream(RowMapper, Consumer)}, which fetches {@link #setFetchSize(int) a few rows}
+ * at a time instead of reading the whole result into memory.
+ * </p>
+ */
 public class SelectStatement extends Statement {
 
+    /**
+     * The default amount of rows fetched at once when streaming
+     */
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
     private final List<String> columns;
     private String condition;
+    private Object[] conditionParams;
+    private String order;
+    private int fetchSize;
 
     public SelectStatement(Database database, String table) {
         super(database, table);
         this.columns = new ArrayList<>();
         this.condition = null;
+        this.conditionParams = new Object[0];
+        this.order = null;
+        this.fetchSize = DEFAULT_FETCH_SIZE;
     }
 
-    public SelectStatement addCondition(String condition) {
+    /**
+     * Sets the condition of the select
+     *
+     * @param   condition
+     *          The condition, with '?' for values (e.g. "`uuid` = ?")
+     *
+     * @param   params
+     *          The values in the condition
+     *
+     * @return this instance
+     */
+    public SelectStatement addCondition(String condition, Object... params) {
         this.condition = condition;
+        this.conditionParams = params;
         return this;
     }
 
@@ -30,58 +60,106 @@ public class SelectStatement extends Statement {
         return this;
     }
 
+    /**
+     * Sets the order of the rows
+     *
+     * @param   order
+     *          The order (e.g. "`highscore` DESC")
+     *
+     * @return this instance
+     */
+    public SelectStatement setOrder(String order) {
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * Sets the amount of rows fetched from the server at once when streaming
+     *
+     * @param   fetchSize
+     *          The amount of rows, or 0 to fetch all rows at once
+     *
+     * @return this instance
+     */
+    public SelectStatement setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
     @Override
     public void query() {
         throw new IllegalStateException("Wrong method usage in SelectStatement");
     }
 
     /**
-     * Fetches data from a table and sorts it based on the first table column.
+     * Passes every row to a consumer as soon as it's read. The rows are fetched in groups of the fetch size.
+     *
+     * @param   mapper
+     *          Maps every row. The columns are in the order they were added.
      *
-     * @return a map with key as first table column
+     * @param   consumer
+     *          Receives every mapped row, on the database thread
      *
-     * @throws SQLException if something goes wrong
+     * @param   <T>
+     *          The type of the mapped rows
+     *
+     * @return the amount of rows
+     *
+     * @throws  SQLException
+     *          If something goes wrong
+     */
+    public <T> int stream(@NotNull RowMapper<T> mapper, @NotNull Consumer<T> consumer) throws SQLException {
+        return database.stream(build(), fetchSize, mapper, consumer, conditionParams);
+    }
+
+    /**
+     * Maps every row
+     *
+     * @param   mapper
+     *          Maps every row. The columns are in the order they were added.
+     *
+     * @param   <T>
+     *          The type of the mapped rows
+     *
+     * @return the mapped rows, in order
+     *
+     * @throws  SQLException
+     *          If something goes wrong
+     */
+    public <T> List<T> list(@NotNull RowMapper<T> mapper) throws SQLException {
+        return database.list(build(), mapper, conditionParams);
+    }
+
+    /**
+     * Maps the first row
+     *
+     * @param   mapper
+     *          Maps the row. The columns are in the order they were added.
+     *
+     * @param   <T>
+     *          The type of the mapped row
+     *
+     * @return the mapped row, or null if there are no rows
+     *
+     * @throws  SQLException
+     *          If something goes wrong
      */
-    public @Nullable LinkedHashMap<String, List<Object>> fetch() throws SQLException {
-        if (columns.size() == 0) {
+    public <T> @Nullable T first(@NotNull RowMapper<T> mapper) throws SQLException {
+        return database.resultQuery(build(), set -> set.next() ? mapper.map(set) : null, conditionParams);
+    }
+
+    private String build() throws InvalidStatementException {
+        if (columns.isEmpty()) {
             throw new InvalidStatementException("Invalid SelectStatement");
         }
-        StringBuilder statement = new StringBuilder("SELECT ");
-        int i = 0;
-        int im = columns.size();
-        for (String column : columns) {
-            statement.append(column);
-            i++;
-            if (i != im && columns.size() > 1) {
-                statement.append(", ");
-            }
-        }
-        statement.append(" FROM ").append("`").append(table).append("`");
+        StringBuilder statement = new StringBuilder("SELECT ").append(columns(columns, ""))
+                .append(" FROM `").append(table).append("`");
         if (condition != null) {
             statement.append(" WHERE ").append(condition);
         }
-        statement.append(";");
-        ResultSet set = database.resultQuery(statement.toString());
-        LinkedHashMap<String, List<Object>> map = new LinkedHashMap<>();
-        if (set == null) {
-            return null;
-        }
-        while (set.next()) {
-            String key = set.getString(1);
-            List<Object> values = new ArrayList<>();
-            if (columns.size() > 1) {
-                for (int j = 0; j < columns.size(); j++) {
-                    if (j == columns.size() - 1) {
-                        values.add(set.getString(j + 1));
-                        continue;
-                    }
-                    values.add(set.getString(j + 2));
-                }
-            } else {
-                values.add(key);
-            }
-            map.put(key, values);
+        if (order != null) {
+            statement.append(" ORDER BY ").append(order);
         }
-        return map;
+        return statement.append(";").toString();
     }
 }
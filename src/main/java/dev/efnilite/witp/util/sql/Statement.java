@@ -1,5 +1,12 @@
 package dev.efnilite.witp.util.sql;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Base of the fluent statements. Values are never put in the SQL itself, but bound to '?' parameters.
+ */
 public abstract class Statement {
 
     protected Database database;
@@ -11,4 +18,49 @@ public abstract class Statement {
     }
 
     public abstract void query() throws InvalidStatementException;
+
+    /**
+     * Joins column names, with backticks around the names
+     *
+     * @param   columns
+     *          The names
+     *
+     * @param   suffix
+     *          What to put after every name, e.g. " = ?"
+     *
+     * @return the joined names
+     */
+    protected static String columns(Iterable<String> columns, String suffix) {
+        StringBuilder builder = new StringBuilder();
+        for (String column : columns) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append("`").append(column.replace("`", "")).append("`").append(suffix);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Creates a list of '?' parameters
+     *
+     * @param   amount
+     *          The amount of parameters
+     *
+     * @return the parameters, e.g. "?, ?, ?"
+     */
+    protected static String parameters(int amount) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < amount; i++) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.toString();
+    }
+
+    protected static List<Object> concat(Iterable<Object> first, Object... second) {
+        List<Object> list = new ArrayList<>();
+        first.forEach(list::add);
+        list.addAll(Arrays.asList(second));
+        return list;
+    }
 }
@@ -0,0 +1,76 @@
+package dev.efnilite.witp.util.sql;
+
+import dev.efnilite.witp.util.Verbose;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the most recently used prepared statements of a single connection open, so the same SQL
+ * doesn't have to be prepared again.
+ */
+class StatementCache {
+
+    private static final int SIZE = 64;
+
+    private final Connection connection;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    StatementCache(Connection connection) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > SIZE) {
+                    close(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets the prepared statement for some SQL, with its parameters cleared.
+     * The statement should not be closed, since it will be used again.
+     *
+     * @param   sql
+     *          The SQL
+     *
+     * @return the statement
+     *
+     * @throws  SQLException
+     *          If preparing the statement goes wrong
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    /**
+     * Closes all statements
+     */
+    void close() {
+        for (PreparedStatement statement : statements.values()) {
+            close(statement);
+        }
+        statements.clear();
+    }
+
+    private static void close(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ex) {
+            Verbose.verbose("Error while closing statement: " + ex.getMessage());
+        }
+    }
+}
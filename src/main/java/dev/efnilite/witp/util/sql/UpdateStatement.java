@@ -5,6 +5,7 @@ import java.util.LinkedHashMap;
 public class UpdateStatement extends Statement {
 
     private String condition;
+    private Object[] conditionParams;
     private final LinkedHashMap<String, Object> values;
 
     public UpdateStatement(Database database, String table) {
@@ -12,8 +13,20 @@ public class UpdateStatement extends Statement {
         this.values = new LinkedHashMap<>();
     }
 
-    public UpdateStatement setCondition(String condition) {
+    /**
+     * Sets the condition of the update
+     *
+     * @param   condition
+     *          The condition, with '?' for values (e.g. "`uuid` = ?")
+     *
+     * @param   params
+     *          The values in the condition
+     *
+     * @return this instance
+     */
+    public UpdateStatement setCondition(String condition, Object... params) {
         this.condition = condition;
+        this.conditionParams = params;
         return this;
     }
 
@@ -27,23 +40,7 @@ public class UpdateStatement extends Statement {
         if (condition == null || values.size() == 0) {
             throw new InvalidStatementException("Invalid UpdateStatement");
         }
-        StringBuilder statement = new StringBuilder("UPDATE `" + table + "` SET ");
-        int i = 0;
-        int im = values.keySet().size();
-        for (String key : values.keySet()) {
-            statement.append(key).append(" = ");
-            Object value = values.get(key);
-            if (value instanceof Number || value instanceof Boolean) {
-                statement.append(value);
-            } else {
-                statement.append("'").append(value).append("'");
-            }
-            i++;
-            if (i != im) {
-                statement.append(", ");
-            }
-        }
-        statement.append(" WHERE ").append(condition).append(";");
-        database.query(statement.toString());
+        String statement = "UPDATE `" + table + "` SET " + columns(values.keySet(), " = ?") + " WHERE " + condition + ";";
+        database.query(statement, concat(values.values(), conditionParams).toArray());
     }
 }
@@ -3,21 +3,27 @@ package dev.efnilite.witp.util.sql;
 import dev.efnilite.witp.util.Verbose;
 
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.List;
+import java.util.*;
 
 /**
- * Updates or inserts, depending on whether the value in the table is already set.
+ * Updates or inserts rows in a single query, using INSERT ... ON DUPLICATE KEY UPDATE.
+ * <p>
+ * Multiple rows can be added with {@link #addRow()}, which are then sent in one JDBC batch.
+ * </p>
  */
 public class UpdertStatement extends Statement {
 
     private final LinkedHashMap<String, Object> defaults;
-    private String condition;
+    private final List<String> columns;
+    private final Set<String> keys;
+    private final List<Object[]> rows;
 
     public UpdertStatement(Database database, String table) {
         super(database, table);
         this.defaults = new LinkedHashMap<>();
+        this.columns = new ArrayList<>();
+        this.keys = new HashSet<>();
+        this.rows = new ArrayList<>();
     }
 
     public UpdertStatement setDefault(String column, Object value) {
@@ -25,39 +31,79 @@ public class UpdertStatement extends Statement {
         return this;
     }
 
-    public UpdertStatement setCondition(String condition) {
-        this.condition = condition;
+    /**
+     * Sets the columns of the primary key, which aren't changed if the row already exists
+     *
+     * @param   columns
+     *          The columns of the key
+     *
+     * @return this instance
+     */
+    public UpdertStatement setKey(String... columns) {
+        keys.addAll(Arrays.asList(columns));
+        return this;
+    }
+
+    /**
+     * Finishes the current row, so the next values are set for a new row.
+     * Every row has to set the same columns.
+     *
+     * @return this instance
+     *
+     * @throws  InvalidStatementException
+     *          If the row has different columns than the first row
+     */
+    public UpdertStatement addRow() throws InvalidStatementException {
+        if (columns.isEmpty()) {
+            columns.addAll(defaults.keySet());
+        } else if (!columns.equals(new ArrayList<>(defaults.keySet()))) {
+            throw new InvalidStatementException("Rows of an UpdertStatement have different columns");
+        }
+        rows.add(defaults.values().toArray());
+        defaults.clear();
         return this;
     }
 
     @Override
     public void query() throws InvalidStatementException {
-        if (defaults.size() == 0 || condition == null) {
-            throw new InvalidStatementException("Invalid UpdertStatement");
-        }
-        SelectStatement statement = new SelectStatement(database, table);
-        statement.addColumns("*").addCondition(condition);
         try {
-            HashMap<String, List<Object>> map = statement.fetch();
-            String key = condition.split("=")[1].replaceAll("[' ]", "");
-            List<Object> objects = map != null ? map.get(key) : null;
-            if (objects == null) {
-                InsertStatement insert = new InsertStatement(database, table);
-                for (String skey : defaults.keySet()) {
-                    insert.setValue(skey, defaults.get(skey));
-                }
-                insert.query();
-            } else {
-                UpdateStatement update = new UpdateStatement(database, table);
-                for (String skey : defaults.keySet()) {
-                    update.setValue(skey, defaults.get(skey));
-                }
-                update.setCondition(condition);
-                update.query();
-            }
+            execute();
+        } catch (InvalidStatementException ex) {
+            throw ex;
         } catch (SQLException ex) {
             ex.printStackTrace();
             Verbose.error("Error while trying to update/insert values");
         }
     }
+
+    /**
+     * Runs the statement, without catching database errors
+     *
+     * @throws  SQLException
+     *          If writing fails, in which case none of the rows are written, or an {@link InvalidStatementException}
+     *          if there is nothing to write or the key columns aren't set
+     */
+    public void execute() throws SQLException {
+        if (!defaults.isEmpty()) {
+            addRow();
+        }
+        if (rows.isEmpty() || keys.isEmpty() || !columns.containsAll(keys)) {
+            throw new InvalidStatementException("Invalid UpdertStatement");
+        }
+        List<String> updated = new ArrayList<>(columns);
+        updated.removeAll(keys);
+        StringBuilder update = new StringBuilder();
+        for (String column : updated) {
+            if (update.length() > 0) {
+                update.append(", ");
+            }
+            String name = "`" + column.replace("`", "") + "`";
+            update.append(name).append(" = VALUES(").append(name).append(")");
+        }
+        String statement = updated.isEmpty() // only key columns, so existing rows don't change
+                ? "INSERT IGNORE INTO `" + table + "` (" + columns(columns, "") + ") VALUES (" + parameters(columns.size()) + ");"
+                : "INSERT INTO `" + table + "` (" + columns(columns, "") + ") VALUES (" + parameters(columns.size()) + ")"
+                + " ON DUPLICATE KEY UPDATE " + update + ";";
+        database.batch(statement, rows);
+    }
 }
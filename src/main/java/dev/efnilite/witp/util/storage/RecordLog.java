@@ -0,0 +1,548 @@
+package dev.efnilite.witp.util.storage;
+
+import dev.efnilite.witp.util.Verbose;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded key-value store which keeps all values in a single append-only file.
+ * <p>
+ * Every change is appended to the log as a record with a checksum, so a crash can at most lose the record
+ * that was being written, which is cut off the next time the log is opened. The position of the latest record
+ * of every key is kept in a memory-mapped hash table, so reads take a single seek.
+ * </p>
+ * <p>
+ * Appends aren't forced to the disk one by one: {@link #sync()} forces everything that was appended since
+ * the last sync at once. When more than half of the log consists of old records, {@link #compact()} rewrites it
+ * with only the latest records.
+ * </p>
+ * <p>
+ * The hash table is only trusted if the log was closed properly. Otherwise, it's rebuilt by reading the log.
+ * </p>
+ */
+public class RecordLog {
+
+    private static final int MAGIC = 0x5749544C; // WITL
+    private static final int INDEX_MAGIC = 0x57495449; // WITI
+    private static final int VERSION = 1;
+
+    private static final int LOG_HEADER = 8; // magic, version
+    private static final int RECORD_HEADER = 4 + 16 + 1; // length, key, type
+    private static final int RECORD_OVERHEAD = RECORD_HEADER + 4; // with the checksum
+    private static final byte PUT = 0;
+    private static final byte DELETE = 1;
+
+    private static final int INDEX_HEADER = 40; // magic, version, capacity, clean, count, used, live, size
+    private static final int SLOT_SIZE = 24; // key, offset
+    private static final long EMPTY = 0; // no record is at offset 0, that's the header
+    private static final long REMOVED = -1;
+    private static final int MIN_CAPACITY = 1024;
+    private static final long COMPACT_MIN = 1 << 20; // don't bother compacting logs smaller than 1 MB
+
+    private final File logFile;
+    private final File indexFile;
+    private FileChannel log;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+
+    private int capacity;
+    private int count; // live keys
+    private int used; // live keys and removed slots
+    private long live; // bytes of the latest records
+    private long size; // the end of the log
+    private boolean unsynced;
+
+    public RecordLog(@NotNull File logFile, @NotNull File indexFile) {
+        this.logFile = logFile;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Opens the log, and rebuilds the hash table if the log wasn't closed properly
+     *
+     * @throws  IOException
+     *          If the log can't be read or has an unknown format
+     */
+    public synchronized void open() throws IOException {
+        log = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (log.size() < LOG_HEADER) {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            log.truncate(0);
+            log.write(header, 0);
+            log.force(true);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER);
+            read(header, 0);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(logFile.getName() + " has an unknown format");
+            }
+        }
+        size = log.size();
+
+        indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (!openIndex()) {
+            Verbose.info("Rebuilding the index of " + logFile.getName() + "..");
+            rebuild();
+        }
+        index.putInt(12, 0); // not closed properly until close() is called
+        index.force();
+    }
+
+    /**
+     * Gets the latest value of a key
+     *
+     * @param   key
+     *          The key
+     *
+     * @return the value, or null if there is none
+     *
+     * @throws  IOException
+     *          If reading fails or the record is corrupt
+     */
+    public synchronized @Nullable byte[] get(@NotNull UUID key) throws IOException {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        return readValue(key, index.getLong(slotPosition(slot) + 16));
+    }
+
+    /**
+     * Appends a new value for a key. It's only guaranteed to be on the disk after {@link #sync()}.
+     *
+     * @param   key
+     *          The key
+     *
+     * @param   value
+     *          The value
+     *
+     * @throws  IOException
+     *          If writing fails
+     */
+    public synchronized void put(@NotNull UUID key, @NotNull byte[] value) throws IOException {
+        long offset = append(key, PUT, value);
+        int slot = find(key);
+        if (slot >= 0) {
+            live -= recordSize(index.getLong(slotPosition(slot) + 16));
+            index.putLong(slotPosition(slot) + 16, offset);
+        } else {
+            insert(key, offset);
+        }
+        live += RECORD_OVERHEAD + value.length;
+        writeHeader();
+    }
+
+    /**
+     * Removes a key
+     *
+     * @param   key
+     *          The key
+     *
+     * @throws  IOException
+     *          If writing fails
+     */
+    public synchronized void remove(@NotNull UUID key) throws IOException {
+        int slot = find(key);
+        if (slot < 0) {
+            return;
+        }
+        append(key, DELETE, new byte[0]);
+        live -= recordSize(index.getLong(slotPosition(slot) + 16));
+        index.putLong(slotPosition(slot) + 16, REMOVED);
+        count--;
+        writeHeader();
+    }
+
+    /**
+     * Goes over the latest value of every key
+     *
+     * @param   consumer
+     *          What to do with every key and value
+     *
+     * @throws  IOException
+     *          If reading fails
+     */
+    public synchronized void forEach(@NotNull BiConsumer<UUID, byte[]> consumer) throws IOException {
+        for (int slot = 0; slot < capacity; slot++) {
+            long offset = index.getLong(slotPosition(slot) + 16);
+            if (offset != EMPTY && offset != REMOVED) {
+                UUID key = new UUID(index.getLong(slotPosition(slot)), index.getLong(slotPosition(slot) + 8));
+                consumer.accept(key, readValue(key, offset));
+            }
+        }
+    }
+
+    /**
+     * Gets every key, without reading the values
+     *
+     * @return the keys, in no particular order
+     */
+    public synchronized List<UUID> keys() {
+        List<UUID> keys = new ArrayList<>(count);
+        for (int slot = 0; slot < capacity; slot++) {
+            long offset = index.getLong(slotPosition(slot) + 16);
+            if (offset != EMPTY && offset != REMOVED) {
+                keys.add(new UUID(index.getLong(slotPosition(slot)), index.getLong(slotPosition(slot) + 8)));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Gets the amount of keys
+     *
+     * @return the amount of keys
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Forces everything that was appended since the last sync to the disk
+     *
+     * @throws  IOException
+     *          If forcing fails
+     */
+    public synchronized void sync() throws IOException {
+        if (unsynced) {
+            log.force(false);
+            index.force();
+            unsynced = false;
+        }
+    }
+
+    /**
+     * Rewrites the log with only the latest records, if more than half of it consists of old records
+     *
+     * @throws  IOException
+     *          If rewriting fails, in which case the current log is kept
+     */
+    public synchronized void compact() throws IOException {
+        long total = size - LOG_HEADER;
+        if (size < COMPACT_MIN || total - live <= live) {
+            return;
+        }
+        Verbose.verbose("Compacting " + logFile.getName() + " (" + live + " of " + total + " bytes in use)");
+        sync();
+        File temp = new File(logFile.getPath() + ".compact");
+        long[] moved = new long[count * 3]; // key and new offset of every record
+        int found = 0;
+        long position = LOG_HEADER;
+        try (FileChannel compacted = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            compacted.write(header);
+            for (int slot = 0; slot < capacity; slot++) {
+                long offset = index.getLong(slotPosition(slot) + 16);
+                if (offset == EMPTY || offset == REMOVED) {
+                    continue;
+                }
+                ByteBuffer record = ByteBuffer.allocate((int) recordSize(offset));
+                read(record, offset);
+                record.flip();
+                moved[found * 3] = index.getLong(slotPosition(slot));
+                moved[found * 3 + 1] = index.getLong(slotPosition(slot) + 8);
+                moved[found * 3 + 2] = position;
+                found++;
+                while (record.hasRemaining()) {
+                    position += compacted.write(record);
+                }
+            }
+            compacted.force(true);
+        }
+
+        // the index isn't marked as closed properly, so if anything goes wrong from here it's rebuilt from the new log
+        log.close();
+        try {
+            Files.move(temp.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) { // e.g. atomic moves aren't supported, the current log and index are still valid
+            log = FileChannel.open(logFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Files.deleteIfExists(temp.toPath());
+            throw ex;
+        }
+        log = FileChannel.open(logFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        clearIndex(capacity); // also clears the removed slots
+        for (int i = 0; i < found; i++) {
+            insert(new UUID(moved[i * 3], moved[i * 3 + 1]), moved[i * 3 + 2]);
+        }
+        size = position;
+        live = size - LOG_HEADER;
+        writeHeader();
+        index.force();
+    }
+
+    /**
+     * Forces everything to the disk and closes the log
+     *
+     * @throws  IOException
+     *          If forcing or closing fails
+     */
+    public synchronized void close() throws IOException {
+        if (log == null) {
+            return;
+        }
+        unsynced = true;
+        sync();
+        index.putInt(12, 1);
+        index.force();
+        log.close();
+        indexChannel.close(); // the mapping stays valid until it's garbage collected
+        log = null;
+    }
+
+    // maps the index, returns false if it can't be trusted
+    private boolean openIndex() throws IOException {
+        if (indexChannel.size() >= INDEX_HEADER) {
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER);
+            while (header.hasRemaining() && indexChannel.read(header, header.position()) != -1) {
+                // read the entire header
+            }
+            header.flip();
+            int capacity = header.getInt(8);
+            boolean valid = header.getInt(0) == INDEX_MAGIC && header.getInt(4) == VERSION && header.getInt(12) == 1
+                    && header.getLong(32) == size && Integer.bitCount(capacity) == 1
+                    && indexChannel.size() >= INDEX_HEADER + (long) capacity * SLOT_SIZE;
+            if (valid) {
+                this.capacity = capacity;
+                this.index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER + (long) capacity * SLOT_SIZE);
+                this.count = header.getInt(16);
+                this.used = header.getInt(20);
+                this.live = header.getLong(24);
+                return true;
+            }
+        }
+        clearIndex(MIN_CAPACITY);
+        return false;
+    }
+
+    // reads the entire log to find the latest record of every key, and cuts off a partially written record
+    private void rebuild() throws IOException {
+        count = 0;
+        used = 0;
+        live = 0;
+        long position = LOG_HEADER;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        CRC32 crc = new CRC32();
+        while (position + RECORD_OVERHEAD <= size) {
+            header.clear();
+            read(header, position);
+            header.flip();
+            int length = header.getInt();
+            if (length < 0 || position + RECORD_OVERHEAD + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length + 4);
+            read(body, position + RECORD_HEADER);
+            body.flip();
+            crc.reset();
+            crc.update(header.array(), 4, RECORD_HEADER - 4);
+            crc.update(body.array(), 0, length);
+            if ((int) crc.getValue() != body.getInt(length)) {
+                break;
+            }
+            UUID key = new UUID(header.getLong(4), header.getLong(12));
+            int slot = find(key);
+            if (slot >= 0) {
+                live -= recordSize(index.getLong(slotPosition(slot) + 16));
+            }
+            if (header.get(20) == DELETE) {
+                if (slot >= 0) {
+                    index.putLong(slotPosition(slot) + 16, REMOVED);
+                    count--;
+                }
+            } else {
+                if (slot >= 0) {
+                    index.putLong(slotPosition(slot) + 16, position);
+                } else {
+                    insert(key, position);
+                }
+                live += RECORD_OVERHEAD + length;
+            }
+            position += RECORD_OVERHEAD + length;
+        }
+        if (position != size) {
+            Verbose.info("Removing incomplete record from " + logFile.getName());
+            log.truncate(position);
+            log.force(true);
+            size = position;
+        }
+        writeHeader();
+        index.force();
+    }
+
+    private long append(UUID key, byte type, byte[] value) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + value.length);
+        record.putInt(value.length);
+        record.putLong(key.getMostSignificantBits());
+        record.putLong(key.getLeastSignificantBits());
+        record.put(type);
+        record.put(value);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, RECORD_HEADER - 4 + value.length);
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        long offset = size;
+        long position = offset;
+        while (record.hasRemaining()) {
+            position += log.write(record, position);
+        }
+        size = position;
+        unsynced = true;
+        return offset;
+    }
+
+    private byte[] readValue(UUID key, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        read(header, offset);
+        header.flip();
+        int length = header.getInt();
+        if (length < 0 || offset + RECORD_OVERHEAD + length > size
+                || header.getLong(4) != key.getMostSignificantBits() || header.getLong(12) != key.getLeastSignificantBits()) {
+            throw new IOException("Record of " + key + " in " + logFile.getName() + " is corrupt");
+        }
+        ByteBuffer body = ByteBuffer.allocate(length + 4);
+        read(body, offset + RECORD_HEADER);
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), 4, RECORD_HEADER - 4);
+        crc.update(body.array(), 0, length);
+        if ((int) crc.getValue() != body.getInt(length)) {
+            throw new IOException("Record of " + key + " in " + logFile.getName() + " is corrupt");
+        }
+        byte[] value = new byte[length];
+        System.arraycopy(body.array(), 0, value, 0, length);
+        return value;
+    }
+
+    private long recordSize(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        read(length, offset);
+        return RECORD_OVERHEAD + length.getInt(0);
+    }
+
+    private void read(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, position + buffer.position()) == -1) {
+                throw new IOException("Unexpected end of " + logFile.getName());
+            }
+        }
+    }
+
+    // gets the slot of a key, or -1 if it isn't in the index
+    private int find(UUID key) {
+        int slot = hash(key) & (capacity - 1);
+        for (int i = 0; i < capacity; i++) {
+            int position = slotPosition(slot);
+            long offset = index.getLong(position + 16);
+            if (offset == EMPTY) {
+                return -1;
+            }
+            if (offset != REMOVED && index.getLong(position) == key.getMostSignificantBits()
+                    && index.getLong(position + 8) == key.getLeastSignificantBits()) {
+                return slot;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        return -1;
+    }
+
+    // adds a key which isn't in the index yet
+    private void insert(UUID key, long offset) throws IOException {
+        if ((used + 1) * 10L > capacity * 7L) { // keep the load under 70%
+            resize();
+        }
+        int slot = hash(key) & (capacity - 1);
+        while (true) {
+            int position = slotPosition(slot);
+            long current = index.getLong(position + 16);
+            if (current == EMPTY || current == REMOVED) {
+                index.putLong(position, key.getMostSignificantBits());
+                index.putLong(position + 8, key.getLeastSignificantBits());
+                index.putLong(position + 16, offset);
+                if (current == EMPTY) {
+                    used++;
+                }
+                count++;
+                return;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    // doubles the table if most slots hold keys, otherwise only clears the removed slots
+    private void resize() throws IOException {
+        long[] keys = new long[count * 3];
+        int found = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = slotPosition(slot);
+            long offset = index.getLong(position + 16);
+            if (offset != EMPTY && offset != REMOVED) {
+                keys[found * 3] = index.getLong(position);
+                keys[found * 3 + 1] = index.getLong(position + 8);
+                keys[found * 3 + 2] = offset;
+                found++;
+            }
+        }
+        int newCapacity = capacity;
+        while ((found + 1) * 2L > newCapacity) {
+            newCapacity *= 2;
+        }
+        clearIndex(newCapacity);
+        for (int i = 0; i < found; i++) {
+            insert(new UUID(keys[i * 3], keys[i * 3 + 1]), keys[i * 3 + 2]);
+        }
+    }
+
+    // maps an empty table with a capacity. The file only grows, since a mapped file can't be shrunk on Windows.
+    private void clearIndex(int capacity) throws IOException {
+        long length = INDEX_HEADER + (long) capacity * SLOT_SIZE;
+        if (index == null || index.capacity() < length) {
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+        for (long position = INDEX_HEADER; position < length; position += 8) {
+            index.putLong((int) position, 0);
+        }
+        this.capacity = capacity;
+        this.count = 0;
+        this.used = 0;
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, VERSION);
+        index.putInt(8, capacity);
+        index.putInt(12, 0);
+    }
+
+    private void writeHeader() {
+        index.putInt(16, count);
+        index.putInt(20, used);
+        index.putLong(24, live);
+        index.putLong(32, size);
+    }
+
+    private static int slotPosition(int slot) {
+        return INDEX_HEADER + slot * SLOT_SIZE;
+    }
+
+    private static int hash(UUID key) {
+        long hash = key.getMostSignificantBits() ^ key.getLeastSignificantBits();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+}
@@ -6,7 +6,8 @@ import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utilities for Runnables
@@ -14,11 +15,11 @@ import java.util.HashMap;
 public class Tasks {
 
     private static final Plugin plugin;
-    private static final HashMap<String, Long> timingKeys;
+    private static final Map<String, Long> timingKeys; // also used off the main thread, e.g. when reloading
 
     static {
         plugin = WITP.getInstance();
-        timingKeys = new HashMap<>();
+        timingKeys = new ConcurrentHashMap<>();
     }
 
     public static void time(String key) {
@@ -26,8 +27,7 @@ public class Tasks {
     }
 
     public static long end(String key) {
-        long then = timingKeys.get(key);
-        timingKeys.remove(key);
+        long then = timingKeys.remove(key);
         return System.currentTimeMillis() - then;
     }
 